@@ -0,0 +1,133 @@
+package com.github.powerlibraries.io.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.powerlibraries.io.In;
+import com.github.powerlibraries.io.Out;
+
+/**
+ * Benchmarks for reading files with the {@link In} builders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InBenchmark {
+
+	@Param({"1024", "1048576", "16777216"})
+	public int size;
+
+	private File file;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		file=File.createTempFile("iopower-bench", ".bin");
+		Out.file(file).writeBytes(Payloads.bytes(size));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file.toPath());
+	}
+
+	@Benchmark
+	public String readAll(TextFiles text) throws IOException {
+		return In.file(text.file).withCharset(text.encoding).readAll();
+	}
+
+	@Benchmark
+	public List<String> readLines(TextFiles text) throws IOException {
+		return In.file(text.file).withCharset(text.encoding).readLines();
+	}
+
+	@Benchmark
+	public long streamLines(TextFiles text) throws IOException {
+		try(Stream<String> lines=In.file(text.file).withCharset(text.encoding).streamLines()) {
+			return lines.mapToInt(String::length).sum();
+		}
+	}
+
+	@Benchmark
+	public long streamLinesParallel(TextFiles text) throws IOException {
+		try(Stream<String> lines=In.file(text.file).withCharset(text.encoding).streamLines()) {
+			return lines.parallel().mapToInt(String::length).sum();
+		}
+	}
+
+	@Benchmark
+	public void copyToStream() throws IOException {
+		In.file(file).copyTo(Payloads.NULL_STREAM);
+	}
+
+	@Benchmark
+	public void copyToWriter(TextFiles text) throws IOException {
+		In.file(text.file).withCharset(text.encoding).copyTo(Payloads.NULL_WRITER);
+	}
+
+	@Benchmark
+	public String readAllGzip(TextFiles text) throws IOException {
+		return In.file(text.gzipFile).withCharset(text.encoding).decompress().readAll();
+	}
+
+	@Benchmark
+	public String readAllBase64(TextFiles text) throws IOException {
+		return In.file(text.base64File).withCharset(text.encoding).decodeBase64().readAll();
+	}
+
+	/**
+	 * The text files are a separate state with the charset as parameter, so that only the benchmarks that decode 
+	 * text run once per charset.
+	 */
+	@State(Scope.Benchmark)
+	public static class TextFiles {
+
+		@Param({"UTF-8", "ISO-8859-1"})
+		public String charset;
+
+		private Charset encoding;
+		private File file;
+		private File gzipFile;
+		private File base64File;
+
+		@Setup(Level.Trial)
+		public void setup(InBenchmark benchmark) throws IOException {
+			encoding=Charset.forName(charset);
+			String text=Payloads.text(benchmark.size);
+			file=File.createTempFile("iopower-bench", ".txt");
+			gzipFile=File.createTempFile("iopower-bench", ".txt.gz");
+			base64File=File.createTempFile("iopower-bench", ".b64");
+			Out.file(file).withCharset(encoding).write(text);
+			Out.file(gzipFile).withCharset(encoding).compress().write(text);
+			Out.file(base64File).withCharset(encoding).encodeBase64().write(text);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			Files.deleteIfExists(file.toPath());
+			Files.deleteIfExists(gzipFile.toPath());
+			Files.deleteIfExists(base64File.toPath());
+		}
+	}
+}
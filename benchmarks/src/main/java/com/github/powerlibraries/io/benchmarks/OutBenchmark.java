@@ -0,0 +1,131 @@
+package com.github.powerlibraries.io.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.powerlibraries.io.Out;
+import com.github.powerlibraries.io.builder.ByteOutBuilder;
+import com.github.powerlibraries.io.helper.byteout.BAOutputStream;
+
+/**
+ * Benchmarks for writing to memory with the {@link Out} builders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OutBenchmark {
+
+	@Param({"1024", "1048576", "16777216"})
+	public int size;
+
+	private byte[] bytes;
+	private String text;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		bytes=Payloads.bytes(size);
+		text=Payloads.text(size);
+	}
+
+	@Benchmark
+	public byte[] writeBytes() throws IOException {
+		return Out.bytes().writeBytes(bytes);
+	}
+
+	/**
+	 * Writes the payload with one bulk write through the compression or Base64 stream of the chain.
+	 */
+	@Benchmark
+	public byte[] writeChainBulk(Chain chain) throws IOException {
+		return chain.builder().writeBytes(bytes);
+	}
+
+	/**
+	 * Writes the payload byte by byte through the same chain. This is how every bulk write reached the chain before
+	 * {@link BAOutputStream} forwarded bulk writes, so it is the baseline for {@link #writeChainBulk(Chain)}.
+	 */
+	@Benchmark
+	public byte[] writeChainSingle(Chain chain) throws IOException {
+		BAOutputStream out=chain.builder().asStream();
+		try {
+			for(int i=0;i<bytes.length;i++)
+				out.write(bytes[i]);
+		} finally {
+			out.close();
+		}
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public String writeString() throws IOException {
+		return Out.string().write(text);
+	}
+
+	@Benchmark
+	public byte[] writeText(Encoding encoding) throws IOException {
+		return Out.bytes().withCharset(encoding.value).write(text);
+	}
+
+	@Benchmark
+	public byte[] writeCompressed() throws IOException {
+		return Out.bytes().compress().writeBytes(bytes);
+	}
+
+	@Benchmark
+	public byte[] writeBase64() throws IOException {
+		return Out.bytes().encodeBase64().writeBytes(bytes);
+	}
+
+	@Benchmark
+	public byte[] writeCompressedBase64() throws IOException {
+		return Out.bytes().compress().encodeBase64().writeBytes(bytes);
+	}
+
+	/**
+	 * The wrapping stream the chain benchmarks write through.
+	 */
+	@State(Scope.Benchmark)
+	public static class Chain {
+
+		@Param({"compress", "base64"})
+		public String wrapper;
+
+		private ByteOutBuilder builder() {
+			return "compress".equals(wrapper)?Out.bytes().compress():Out.bytes().encodeBase64();
+		}
+	}
+
+	/**
+	 * The charset is a separate state, so that only the benchmarks that encode text run once per charset.
+	 */
+	@State(Scope.Benchmark)
+	public static class Encoding {
+
+		@Param({"UTF-8", "ISO-8859-1"})
+		public String charset;
+
+		private Charset value;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			value=Charset.forName(charset);
+		}
+	}
+}
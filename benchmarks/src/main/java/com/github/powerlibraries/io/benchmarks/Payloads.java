@@ -0,0 +1,96 @@
+package com.github.powerlibraries.io.benchmarks;
+
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * This class creates the deterministic payloads used by the benchmarks.
+ */
+final class Payloads {
+
+	/**
+	 * An {@link OutputStream} that discards all bytes.
+	 */
+	static final OutputStream NULL_STREAM=new OutputStream() {
+		@Override
+		public void write(int b) {}
+
+		@Override
+		public void write(byte[] b, int off, int len) {}
+	};
+
+	/**
+	 * A {@link Writer} that discards all characters.
+	 */
+	static final Writer NULL_WRITER=new Writer() {
+		@Override
+		public void write(char[] cbuf, int off, int len) {}
+
+		@Override
+		public void flush() {}
+
+		@Override
+		public void close() {}
+	};
+
+	private static final String WORDS="lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod tempor "
+		+"äöü ß € été naïve";
+
+	private Payloads() {}
+
+	/**
+	 * @param size the approximate number of characters
+	 * @return a text of lines with 40 to 120 characters each
+	 */
+	static String text(int size) {
+		Random r=new Random(42);
+		StringBuilder sb=new StringBuilder(size+128);
+		while(sb.length()<size) {
+			int length=40+r.nextInt(80);
+			for(int i=0;i<length;i++)
+				sb.append(WORDS.charAt(r.nextInt(WORDS.length())));
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param size the number of bytes
+	 * @return random bytes
+	 */
+	static byte[] bytes(int size) {
+		byte[] bytes=new byte[size];
+		new Random(42).nextBytes(bytes);
+		return bytes;
+	}
+
+	/**
+	 * @param count the number of objects
+	 * @return simple serializable objects
+	 */
+	static Item[] items(int count) {
+		Random r=new Random(42);
+		Item[] items=new Item[count];
+		for(int i=0;i<count;i++)
+			items[i]=new Item(i, r.nextDouble(), "item "+i);
+		return items;
+	}
+
+	/**
+	 * A small serializable value object.
+	 */
+	static final class Item implements Serializable {
+		private static final long serialVersionUID=1L;
+		final int id;
+		final double value;
+		final String name;
+
+		Item(int id, double value, String name) {
+			this.id=id;
+			this.value=value;
+			this.name=name;
+		}
+	}
+}
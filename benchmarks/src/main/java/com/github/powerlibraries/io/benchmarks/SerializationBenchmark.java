@@ -0,0 +1,67 @@
+package com.github.powerlibraries.io.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.powerlibraries.io.In;
+import com.github.powerlibraries.io.Out;
+
+/**
+ * Benchmarks for writing and reading objects with {@link Out} and {@link In}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+	@Param({"10", "1000", "100000"})
+	public int count;
+
+	private Object[] items;
+	private byte[] serialized;
+	private byte[] serializedCompressed;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		items=Payloads.items(count);
+		serialized=Out.bytes().writeObjects(items);
+		serializedCompressed=Out.bytes().compress().writeObjects(items);
+	}
+
+	@Benchmark
+	public byte[] writeObjects() throws IOException {
+		return Out.bytes().writeObjects(items);
+	}
+
+	@Benchmark
+	public List<Object> readObjects() throws IOException, ClassNotFoundException {
+		return In.bytes(serialized).readObjects();
+	}
+
+	@Benchmark
+	public byte[] writeObjectsCompressed() throws IOException {
+		return Out.bytes().compress().writeObjects(items);
+	}
+
+	@Benchmark
+	public List<Object> readObjectsCompressed() throws IOException, ClassNotFoundException {
+		return In.bytes(serializedCompressed).decompress().readObjects();
+	}
+}
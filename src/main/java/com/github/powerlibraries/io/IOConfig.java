@@ -1,7 +1,14 @@
 package com.github.powerlibraries.io;
 
+import java.lang.reflect.Method;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.github.powerlibraries.io.helper.BufferPool;
+import com.github.powerlibraries.io.metrics.IOListener;
 
 /**
  * This class contains static constants used by IO Power.
@@ -51,4 +58,91 @@ public final class IOConfig {
 	public static void setDefaultCharset(String charsetName) throws UnsupportedCharsetException{
 		DEFAULT_CHARSET=Charset.forName(charsetName);
 	}
+	
+	private static volatile Executor ASYNC_EXECUTOR;
+	
+	/**
+	 * This method returns the {@link Executor} that runs the asynchronous operations of all In and OutBuilders,
+	 * e.g. {@link com.github.powerlibraries.io.builder.InBuilder#readAllAsync()}. By default this is an executor 
+	 * that starts a new virtual thread for each task if the running Java version supports virtual threads or
+	 * otherwise a cached pool of daemon threads.
+	 * @return the executor used for asynchronous operations
+	 */
+	public static Executor getAsyncExecutor() {
+		Executor executor=ASYNC_EXECUTOR;
+		if(executor==null) {
+			synchronized(IOConfig.class) {
+				executor=ASYNC_EXECUTOR;
+				if(executor==null)
+					ASYNC_EXECUTOR=executor=createDefaultAsyncExecutor();
+			}
+		}
+		return executor;
+	}
+	
+	/**
+	 * This method sets the {@link Executor} that runs the asynchronous operations of all In and OutBuilders.
+	 * @param executor the executor that should be used for asynchronous operations
+	 */
+	public static void setAsyncExecutor(Executor executor) {
+		if(executor==null)
+			throw new NullPointerException("executor can not be null");
+		ASYNC_EXECUTOR=executor;
+	}
+	
+	private static volatile BufferPool BUFFER_POOL=new BufferPool(4L<<20);
+	
+	/**
+	 * This method returns the {@link BufferPool} that all In and OutBuilders take their copy and stream buffers from.
+	 * By default this is a pool that retains up to 4 MB.
+	 * @return the buffer pool used by IOPower classes
+	 */
+	public static BufferPool getBufferPool() {
+		return BUFFER_POOL;
+	}
+	
+	/**
+	 * This method sets the {@link BufferPool} that all In and OutBuilders take their copy and stream buffers from.
+	 * A pool created with a limit of 0 effectively disables pooling.
+	 * @param pool the pool that should be used
+	 */
+	public static void setBufferPool(BufferPool pool) {
+		if(pool==null)
+			throw new NullPointerException("pool can not be null");
+		BUFFER_POOL=pool;
+	}
+	
+	private static volatile IOListener LISTENER;
+	
+	/**
+	 * This method returns the {@link IOListener} that is notified about all streams opened by In and OutBuilders.
+	 * By default there is no listener and the streams are not measured at all.
+	 * @return the listener or null if metrics are disabled
+	 */
+	public static IOListener getListener() {
+		return LISTENER;
+	}
+	
+	/**
+	 * This method sets the {@link IOListener} that is notified about all streams opened by In and OutBuilders 
+	 * afterwards, e.g. an {@link com.github.powerlibraries.io.metrics.IOStatistics}.
+	 * @param listener the listener or null to disable metrics
+	 */
+	public static void setListener(IOListener listener) {
+		LISTENER=listener;
+	}
+	
+	private static Executor createDefaultAsyncExecutor() {
+		try {
+			Method factory=Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)factory.invoke(null);
+		} catch(ReflectiveOperationException | RuntimeException e) {
+			//virtual threads are not available
+		}
+		return Executors.newCachedThreadPool(r -> {
+			Thread t=new Thread(r, "iopower-async");
+			t.setDaemon(true);
+			return t;
+		});
+	}
 }
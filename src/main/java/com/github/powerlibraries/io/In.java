@@ -4,11 +4,13 @@ import java.io.File;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 
 import com.github.powerlibraries.io.builder.InBuilder;
 import com.github.powerlibraries.io.builder.sources.ByteArraySource;
 import com.github.powerlibraries.io.builder.sources.FileSource;
 import com.github.powerlibraries.io.builder.sources.InputStreamSource;
+import com.github.powerlibraries.io.builder.sources.MappedFileSource;
 import com.github.powerlibraries.io.builder.sources.Source;
 import com.github.powerlibraries.io.builder.sources.StringSource;
 import com.github.powerlibraries.io.builder.sources.URLSource;
@@ -73,6 +75,34 @@ public interface In {
 		return new InBuilder(new FileSource(file));
 	}
 
+	/**
+	 * This creates an input of any kind from a {@link Path} that is mapped into memory instead of being read 
+	 * through a {@link java.io.FileInputStream}. The returned {@link InBuilder} can be used
+	 * to specifiy which kind of Reader or InputStream should be created and allows you to specify further how
+	 * the input chain is build. Readers created from such a builder decode the mapped memory directly.
+	 * @param path the file to map
+	 * @return an {@link InBuilder} used to specify which kind of input should be created
+	 */
+	public static InBuilder mapped(Path path) {
+		if(path==null)
+			throw new NullPointerException("The given path was null");
+		return new InBuilder(new MappedFileSource(path));
+	}
+	
+	/**
+	 * This creates an input of any kind from a {@link File} that is mapped into memory instead of being read 
+	 * through a {@link java.io.FileInputStream}. The returned {@link InBuilder} can be used
+	 * to specifiy which kind of Reader or InputStream should be created and allows you to specify further how
+	 * the input chain is build. Readers created from such a builder decode the mapped memory directly.
+	 * @param file the file to map
+	 * @return an {@link InBuilder} used to specify which kind of input should be created
+	 */
+	public static InBuilder mapped(File file) {
+		if(file==null)
+			throw new NullPointerException("The given file was null");
+		return mapped(file.toPath());
+	}
+
 	/**
 	 * This creates an input of any kind from an {@link URL}. The returned {@link InBuilder} can be used
 	 * to specifiy which kind of Reader or InputStream should be created and allows you to specify further how
@@ -5,13 +5,15 @@ import java.io.File;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.io.ObjectInputStream.GetField;
+import java.nio.file.Path;
 
 import com.github.powerlibraries.io.builder.ByteOutBuilder;
+import com.github.powerlibraries.io.builder.FileOutBuilder;
 import com.github.powerlibraries.io.builder.OutBuilder;
 import com.github.powerlibraries.io.builder.StringOutBuilder;
-import com.github.powerlibraries.io.builder.targets.FileTarget;
 import com.github.powerlibraries.io.builder.targets.OutputStreamTarget;
 import com.github.powerlibraries.io.builder.targets.Target;
+import com.github.powerlibraries.io.builder.targets.TeeTarget;
 
 /**
  * This class contains a number of useful static methods that help creating OutputStreams and Writers.
@@ -40,9 +42,18 @@ public interface Out {
 	 * @return an {@link OutBuilder} used to specify which kind of output should be created
 	 */
 	public static OutBuilder file(File file) {
-		if(file==null)
-			throw new NullPointerException("The given file was null");
-		return new OutBuilder(new FileTarget(file));
+		return fileWith(file);
+	}
+	
+	/**
+	 * This creates an ouput of any kind to a {@link Path}. The returned {@link OutBuilder} can be used
+	 * to specifiy which kind of Writer or OutputStream should be created and allows you to specify further how
+	 * the output chain is build.
+	 * @param path the path of the file to output to
+	 * @return an {@link OutBuilder} used to specify which kind of output should be created
+	 */
+	public static OutBuilder file(Path path) {
+		return fileWith(path);
 	}
 	
 	/**
@@ -56,7 +67,7 @@ public interface Out {
 	public static OutBuilder file(File parent, String child) {
 		if(parent==null || child==null)
 			throw new NullPointerException("The given file was null");
-		return new OutBuilder(new FileTarget(new File(parent, child)));
+		return fileWith(new File(parent, child));
 	}
 	
 	/**
@@ -70,7 +81,46 @@ public interface Out {
 	public static OutBuilder file(String parent, String child) {
 		if(parent==null || child==null)
 			throw new NullPointerException("The given file was null");
-		return new OutBuilder(new FileTarget(new File(parent, child)));
+		return fileWith(new File(parent, child));
+	}
+	
+	/**
+	 * This creates an ouput of any kind to a {@link File} like {@link #file(String)}. The returned 
+	 * {@link FileOutBuilder} additionally allows you to choose how the file is written, e.g. atomically or by 
+	 * appending to it.
+	 * @param file the path to output to
+	 * @return a {@link FileOutBuilder} used to specify which kind of output should be created
+	 */
+	public static FileOutBuilder fileWith(String file) {
+		if(file==null)
+			throw new NullPointerException("The given file was null");
+		return fileWith(new File(file));
+	}
+	
+	/**
+	 * This creates an ouput of any kind to a {@link File} like {@link #file(File)}. The returned 
+	 * {@link FileOutBuilder} additionally allows you to choose how the file is written, e.g. atomically or by 
+	 * appending to it.
+	 * @param file the file to output to
+	 * @return a {@link FileOutBuilder} used to specify which kind of output should be created
+	 */
+	public static FileOutBuilder fileWith(File file) {
+		if(file==null)
+			throw new NullPointerException("The given file was null");
+		return new FileOutBuilder(file);
+	}
+	
+	/**
+	 * This creates an ouput of any kind to a {@link Path} like {@link #file(Path)}. The returned 
+	 * {@link FileOutBuilder} additionally allows you to choose how the file is written, e.g. atomically or by 
+	 * appending to it.
+	 * @param path the path of the file to output to
+	 * @return a {@link FileOutBuilder} used to specify which kind of output should be created
+	 */
+	public static FileOutBuilder fileWith(Path path) {
+		if(path==null)
+			throw new NullPointerException("The given path was null");
+		return new FileOutBuilder(path);
 	}
 
 	/**
@@ -102,6 +152,36 @@ public interface Out {
 		return new OutBuilder(target);
 	}
 	
+	/**
+	 * This creates an ouput of any kind to several {@link Target}s at once. Everything written to the output is 
+	 * written to each target one after another. The options of the returned {@link OutBuilder} apply before the 
+	 * output is split, a target created with {@link OutBuilder#asTarget()} adds its own options for its branch.
+	 * @param targets the targets to output to
+	 * @return an {@link OutBuilder} used to specify which kind of output should be created
+	 */
+	public static OutBuilder tee(Target... targets) {
+		if(targets==null)
+			throw new NullPointerException("The given targets were null");
+		return new OutBuilder(new TeeTarget(targets));
+	}
+	
+	/**
+	 * This creates an ouput of any kind to several {@link Target}s at once. Every target is written by its own 
+	 * task on the {@link IOConfig#getAsyncExecutor()} and receives the output through a bounded queue, so that a
+	 * slow target only slows down the others when its queue is full. Errors of a target are thrown by the next 
+	 * write, flush or close of the output.
+	 * @param queueCapacity the number of chunks that can be queued for each target
+	 * @param targets the targets to output to
+	 * @return an {@link OutBuilder} used to specify which kind of output should be created
+	 */
+	public static OutBuilder teeConcurrently(int queueCapacity, Target... targets) {
+		if(targets==null)
+			throw new NullPointerException("The given targets were null");
+		if(queueCapacity<=0)
+			throw new IllegalArgumentException("queueCapacity has to be positive");
+		return new OutBuilder(new TeeTarget(queueCapacity, targets));
+	}
+	
 	/**
 	 * This creates an ouput of any kind to a {@link ByteArrayOutputStream}. The returned {@link ByteOutBuilder} 
 	 * can be used to specifiy which kind of Writer or OutputStream should be created and allows you 
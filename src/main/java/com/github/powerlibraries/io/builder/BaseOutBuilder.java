@@ -1,9 +1,10 @@
 package com.github.powerlibraries.io.builder;
 
-import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
@@ -13,13 +14,24 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.ZipOutputStream;
 
+import com.github.powerlibraries.io.IOConfig;
 import com.github.powerlibraries.io.builder.targets.Target;
 import com.github.powerlibraries.io.functions.OutputStreamWrapper;
 import com.github.powerlibraries.io.functions.WriterWrapper;
+import com.github.powerlibraries.io.helper.Abortable;
+import com.github.powerlibraries.io.helper.AbortableOutputStream;
+import com.github.powerlibraries.io.helper.Backpressure;
+import com.github.powerlibraries.io.helper.BufferPool;
 import com.github.powerlibraries.io.helper.CompressorRegistry;
+import com.github.powerlibraries.io.helper.PooledBufferedOutputStream;
+import com.github.powerlibraries.io.helper.WriteBehindOutputStream;
+import com.github.powerlibraries.io.metrics.IOListener;
+import com.github.powerlibraries.io.metrics.StreamMeter;
+import com.github.powerlibraries.io.serialization.SerializationCodec;
 
 /**
  * This builder is used to create an output chain.
@@ -29,12 +41,19 @@ import com.github.powerlibraries.io.helper.CompressorRegistry;
  */
 @SuppressWarnings("unchecked")
 public abstract class BaseOutBuilder <SELF extends BaseOutBuilder<SELF>> extends CharsetHolder<SELF> {
+	private static final int AUTO_BUFFER_SIZE=-1;
+	
 	private Target target;
 	private boolean compress=false;
 	private Base64.Encoder base64Encoder=null;
 	private OutputStreamWrapper compressionWrapper;
 	private List<OutputStreamWrapper> streamWrappers;
 	private List<WriterWrapper> writerWrappers;
+	private CompressorRegistry compressorRegistry;
+	private SerializationCodec codec;
+	private int bufferSize=BufferPool.DEFAULT_BUFFER_SIZE;
+	private int writeBehindBuffers=0;
+	private Backpressure backpressure;
 
 	public BaseOutBuilder(Target target) {
 		this.target=target;
@@ -92,6 +111,91 @@ public abstract class BaseOutBuilder <SELF extends BaseOutBuilder<SELF>> extends
 		return (SELF)this;
 	}
 	
+	/**
+	 * This method sets the registry that is used to choose the compressor in {@link #compress()}. By default
+	 * the global registry returned by {@link CompressorRegistry#getInstance()} is used.
+	 * @param registry the registry to use for this builder
+	 * @return this builder
+	 */
+	public SELF withCompressorRegistry(CompressorRegistry registry) {
+		if(registry==null)
+			throw new NullPointerException("registry can not be null");
+		compressorRegistry=registry;
+		return (SELF)this;
+	}
+	
+	/**
+	 * This method sets the length of the buffers this builder uses for writing and copying. By default
+	 * {@link BufferPool#DEFAULT_BUFFER_SIZE} is used.
+	 * @param size the length of the buffers in bytes or chars
+	 * @return this builder
+	 */
+	public SELF withBufferSize(int size) {
+		if(size<=0)
+			throw new IllegalArgumentException("size has to be positive");
+		bufferSize=size;
+		return (SELF)this;
+	}
+	
+	/**
+	 * This method tells the builder to choose the length of its buffers from the target, see 
+	 * {@link Target#getPreferredBufferSize()}. In memory targets get small buffers, other targets use
+	 * {@link BufferPool#DEFAULT_BUFFER_SIZE}.
+	 * @return this builder
+	 */
+	public SELF withAutoBufferSize() {
+		bufferSize=AUTO_BUFFER_SIZE;
+		return (SELF)this;
+	}
+	
+	/**
+	 * This method tells the builder to write in the background. The written bytes are collected in buffers of 
+	 * {@link #getBufferSize()} bytes that are handed to a writer on the executor returned by 
+	 * {@link IOConfig#getAsyncExecutor()}, which compresses, encodes and writes them to the target. If the given
+	 * number of buffers is waiting the writing thread blocks.
+	 * @param buffers the number of filled buffers that can wait for the writer
+	 * @return this builder
+	 * @see WriteBehindOutputStream
+	 */
+	public SELF writeBehind(int buffers) {
+		return writeBehind(buffers, Backpressure.BLOCK);
+	}
+	
+	/**
+	 * This method tells the builder to write in the background. The written bytes are collected in buffers of 
+	 * {@link #getBufferSize()} bytes that are handed to a writer on the executor returned by 
+	 * {@link IOConfig#getAsyncExecutor()}, which compresses, encodes and writes them to the target. Closing the 
+	 * output waits until all buffers are written and throws the errors of the writer. With 
+	 * {@link Backpressure#DROP} the output silently misses the discarded buffers, even if it is an atomic file.
+	 * @param buffers the number of filled buffers that can wait for the writer
+	 * @param backpressure what happens to a filled buffer if the given number of buffers is already waiting
+	 * @return this builder
+	 * @see WriteBehindOutputStream
+	 */
+	public SELF writeBehind(int buffers, Backpressure backpressure) {
+		if(buffers<=0)
+			throw new IllegalArgumentException("buffers has to be positive");
+		if(backpressure==null)
+			throw new NullPointerException("backpressure can not be null");
+		writeBehindBuffers=buffers;
+		this.backpressure=backpressure;
+		return (SELF)this;
+	}
+	
+	/**
+	 * This method sets the codec that is used by the writeObject(s) methods of this builder. By default objects are 
+	 * written with an {@link ObjectOutputStream}. Methods that return an {@link ObjectOutputStream}, like 
+	 * {@link #asObjects()}, always use Java serialization.
+	 * @param codec the codec used to serialize objects
+	 * @return this builder
+	 */
+	public SELF withCodec(SerializationCodec codec) {
+		if(codec==null)
+			throw new NullPointerException("codec can not be null");
+		this.codec=codec;
+		return (SELF)this;
+	}
+	
 	/**
 	 * This method will add a {@link Base64.Encoder} to this chain.
 	 * @return this builder
@@ -120,6 +224,23 @@ public abstract class BaseOutBuilder <SELF extends BaseOutBuilder<SELF>> extends
 		return createOutputStream();
 	}
 	
+	/**
+	 * This method creates a {@link Target} that opens a new stream from this builder with all the chosen options 
+	 * every time it is opened. This can be used to give every target of {@link com.github.powerlibraries.io.Out#tee} 
+	 * its own compression or encoding. If the stream of the target of this builder is {@link Abortable}, e.g. for an
+	 * atomic file, the opened streams are {@link Abortable} too.
+	 * @return a {@link Target}
+	 */
+	public Target asTarget() {
+		return () -> {
+			OutputStream[] opened=new OutputStream[1];
+			OutputStream stream=createOutputStream(s -> opened[0]=s);
+			if(opened[0] instanceof Abortable)
+				return new AbortableOutputStream(stream, (Abortable)opened[0]);
+			return stream;
+		};
+	}
+	
 	/**
 	 * This method creates a {@link BufferedWriter} from this builder with all the chosen options. It uses the default 
 	 * {@link Charset} for that.
@@ -127,12 +248,7 @@ public abstract class BaseOutBuilder <SELF extends BaseOutBuilder<SELF>> extends
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public BufferedWriter asWriter() throws IOException {
-		Writer writer = new OutputStreamWriter(createOutputStream(), getCharset());
-		if(writerWrappers!=null) {
-			for(WriterWrapper w:writerWrappers)
-				writer=w.wrap(writer);
-		}
-		return new BufferedWriter(writer);
+		return new BufferedWriter(createWriter(), getBufferSize());
 	}
 	
 	/**
@@ -150,7 +266,7 @@ public abstract class BaseOutBuilder <SELF extends BaseOutBuilder<SELF>> extends
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public ObjectOutputStream asObjects() throws IOException {
-		return new ObjectOutputStream(new BufferedOutputStream(createOutputStream()));
+		return new ObjectOutputStream(buffer(createOutputStream()));
 	}
 	
 	/**
@@ -159,7 +275,7 @@ public abstract class BaseOutBuilder <SELF extends BaseOutBuilder<SELF>> extends
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public DataOutputStream asData() throws IOException {
-		return new DataOutputStream(new BufferedOutputStream(createOutputStream()));
+		return new DataOutputStream(buffer(createOutputStream()));
 	}
 	
 	/**
@@ -168,7 +284,73 @@ public abstract class BaseOutBuilder <SELF extends BaseOutBuilder<SELF>> extends
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public ZipOutputStream asZip() throws IOException {
-		return new ZipOutputStream(new BufferedOutputStream(createOutputStream()));
+		return new ZipOutputStream(buffer(createOutputStream()));
+	}
+
+	/**
+	 * This method creates the {@link ObjectOutput} used by the writeObject(s) methods. Without a codec this is the 
+	 * stream created by {@link #asObjects()}.
+	 * @return an {@link ObjectOutput}
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 */
+	protected ObjectOutput createObjectOutput() throws IOException {
+		if(codec==null)
+			return asObjects();
+		return codec.createOutput(buffer(createOutputStream()));
+	}
+
+	/**
+	 * This method creates the {@link ObjectOutput} used by the writeObject(s) methods on the given stream.
+	 * @param out a stream created by {@link #createOutputStream(Consumer)}
+	 * @return an {@link ObjectOutput}
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 */
+	protected ObjectOutput createObjectOutput(OutputStream out) throws IOException {
+		if(codec==null)
+			return new ObjectOutputStream(buffer(out));
+		return codec.createOutput(buffer(out));
+	}
+
+	/**
+	 * @return true if this builder changes the written bytes in any way before they reach the target
+	 */
+	protected boolean hasTransformations() {
+		return compress || base64Encoder!=null || streamWrappers!=null;
+	}
+
+	/**
+	 * This method creates the Writer that encodes the characters into the OutputStream created by 
+	 * {@link #createOutputStream()} and wraps it with the writer wrappers.
+	 * @return a Writer
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 */
+	protected Writer createWriter() throws IOException {
+		return createWriter(createOutputStream());
+	}
+	
+	/**
+	 * This method creates the Writer that encodes the characters into the given OutputStream and wraps it with the 
+	 * writer wrappers.
+	 * @param out a stream created by {@link #createOutputStream(Consumer)}
+	 * @return a Writer
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 */
+	protected Writer createWriter(OutputStream out) throws IOException {
+		return wrapWriter(new OutputStreamWriter(out, getCharset()));
+	}
+	
+	/**
+	 * This method wraps the given Writer with the writer wrappers of this builder.
+	 * @param writer the Writer to wrap
+	 * @return the wrapped Writer
+	 * @throws IOException if any wrapper throws an {@link IOException}
+	 */
+	protected Writer wrapWriter(Writer writer) throws IOException {
+		if(writerWrappers!=null) {
+			for(WriterWrapper w:writerWrappers)
+				writer=w.wrap(writer);
+		}
+		return writer;
 	}
 
 	/**
@@ -178,22 +360,93 @@ public abstract class BaseOutBuilder <SELF extends BaseOutBuilder<SELF>> extends
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	protected OutputStream createOutputStream() throws IOException {
-		OutputStream stream=target.openStream();
-		if(base64Encoder!=null)
-			stream=base64Encoder.wrap(stream);
-		if(compress) {
-			if(compressionWrapper!=null)
-				stream=compressionWrapper.wrap(stream);
-			else if(target.hasName() && CompressorRegistry.getInstance().canWrapOutput(target.getName()))
-				stream=CompressorRegistry.getInstance().wrap(target.getName(), stream);
-			else
-				stream=new DeflaterOutputStream(stream);
-		}
-		if(streamWrappers!=null) {
-			for(OutputStreamWrapper w:streamWrappers)
-				stream=w.wrap(stream);
+		return createOutputStream(null);
+	}
+
+	/**
+	 * This method wraps the OutputStream created by the target object with other streams depending on what options
+	 * the user chose.
+	 * @param opened is called with the stream created by the target before it is wrapped or null
+	 * @return an OutputStream
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 */
+	protected OutputStream createOutputStream(Consumer<OutputStream> opened) throws IOException {
+		IOListener listener=IOConfig.getListener();
+		long start=listener==null?0:System.nanoTime();
+		OutputStream targetStream=target.openStream();
+		if(opened!=null)
+			opened.accept(targetStream);
+		OutputStream stream=targetStream;
+		StreamMeter meter=null;
+		try {
+			if(listener!=null) {
+				meter=new StreamMeter(listener, target.getClass(), false, start);
+				stream=meter.meterRaw(stream);
+			}
+			if(base64Encoder!=null)
+				stream=base64Encoder.wrap(stream);
+			if(compress) {
+				if(compressionWrapper!=null)
+					stream=compressionWrapper.wrap(stream);
+				else {
+					OutputStream raw=stream;
+					if(target.hasName())
+						stream=getCompressorRegistry().wrap(target.getName(), stream);
+					if(stream==raw)
+						stream=new DeflaterOutputStream(stream);
+				}
+			}
+			if(streamWrappers!=null) {
+				for(OutputStreamWrapper w:streamWrappers)
+					stream=w.wrap(stream);
+			}
+			if(meter!=null)
+				stream=meter.meterResult(stream);
+			if(writeBehindBuffers>0) {
+				Closeable abort=targetStream instanceof Abortable?((Abortable)targetStream)::abort:null;
+				stream=new WriteBehindOutputStream(stream, IOConfig.getAsyncExecutor(), writeBehindBuffers, getBufferSize(), backpressure, abort);
+			}
+			return stream;
+		} catch(IOException | RuntimeException e) {
+			//close the stages that were already created, e.g. to report the meter as closed
+			try {
+				if(targetStream instanceof Abortable)
+					((Abortable)targetStream).abort();
+				if(meter!=null)
+					meter.close(stream);
+				else
+					stream.close();
+			} catch(IOException | RuntimeException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
 		}
-		return stream;
+	}
+	
+	/**
+	 * This method wraps the given stream with a buffer of {@link #getBufferSize()} bytes.
+	 * @param out the stream to buffer
+	 * @return a buffered stream
+	 */
+	protected OutputStream buffer(OutputStream out) {
+		return new PooledBufferedOutputStream(out, IOConfig.getBufferPool(), getBufferSize());
+	}
+	
+	/**
+	 * @return the length of the buffers used by this builder
+	 */
+	public int getBufferSize() {
+		if(bufferSize!=AUTO_BUFFER_SIZE)
+			return bufferSize;
+		int preferred=target.getPreferredBufferSize();
+		return preferred>0?preferred:BufferPool.DEFAULT_BUFFER_SIZE;
+	}
+	
+	/**
+	 * @return the registry used to choose the compressor of this builder
+	 */
+	public CompressorRegistry getCompressorRegistry() {
+		return compressorRegistry==null?CompressorRegistry.getInstance():compressorRegistry;
 	}
 	
 	/**
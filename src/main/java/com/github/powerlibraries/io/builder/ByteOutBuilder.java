@@ -1,14 +1,15 @@
 package com.github.powerlibraries.io.builder;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.util.Iterator;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -18,13 +19,18 @@ import javax.xml.transform.stream.StreamResult;
 
 import org.w3c.dom.Document;
 
+import com.github.powerlibraries.io.IOConfig;
 import com.github.powerlibraries.io.builder.targets.ByteArrayTarget;
+import com.github.powerlibraries.io.helper.BufferPool;
+import com.github.powerlibraries.io.helper.ObjectSequences;
 import com.github.powerlibraries.io.helper.byteout.BADataOutputStream;
 import com.github.powerlibraries.io.helper.byteout.BAObjectOutputStream;
 import com.github.powerlibraries.io.helper.byteout.BAOutputStream;
 import com.github.powerlibraries.io.helper.byteout.BAPrintWriter;
 import com.github.powerlibraries.io.helper.byteout.BAWriter;
 import com.github.powerlibraries.io.helper.byteout.BAZipOutputStream;
+import com.github.powerlibraries.io.helper.byteout.ByteArrayWrapper;
+import com.github.powerlibraries.io.serialization.SerializationCodec;
 
 /**
  * This builder is used to create an output chain. In contrast to the normal {@link OutBuilder} this class
@@ -44,6 +50,28 @@ public class ByteOutBuilder extends BaseOutBuilder<ByteOutBuilder> {
 		this.target=(ByteArrayTarget) super.getTarget();
 	}
 	
+	/**
+	 * This method sets the maximum size of a single chunk of the underlying 
+	 * {@link com.github.powerlibraries.io.helper.byteout.ChunkedByteArrayOutputStream}.
+	 * @param maxChunkSize the maximum chunk size in bytes
+	 * @return this builder
+	 */
+	public ByteOutBuilder withChunkSize(int maxChunkSize) {
+		target.setMaxChunkSize(maxChunkSize);
+		return this;
+	}
+	
+	/**
+	 * This method tells the builder to store the written bytes in direct {@link java.nio.ByteBuffer}s outside of the
+	 * heap. This is mostly useful in combination with {@link ByteArrayWrapper#asByteBuffers()} or
+	 * {@link ByteArrayWrapper#writeTo(java.nio.channels.WritableByteChannel)}.
+	 * @return this builder
+	 */
+	public ByteOutBuilder withDirectBuffers() {
+		target.setDirect(true);
+		return this;
+	}
+	
 	@Override
 	public BAOutputStream asStream() throws IOException {
 		return new BAOutputStream(createOutputStream(), target.getLastStream());
@@ -61,17 +89,17 @@ public class ByteOutBuilder extends BaseOutBuilder<ByteOutBuilder> {
 	
 	@Override
 	public BAObjectOutputStream asObjects() throws IOException {
-		return new BAObjectOutputStream(new BufferedOutputStream(createOutputStream()), target.getLastStream());
+		return new BAObjectOutputStream(buffer(createOutputStream()), target.getLastStream());
 	}
 	
 	@Override
 	public BADataOutputStream asData() throws IOException {
-		return new BADataOutputStream(new BufferedOutputStream(createOutputStream()), target.getLastStream());
+		return new BADataOutputStream(buffer(createOutputStream()), target.getLastStream());
 	}
 	
 	@Override
 	public BAZipOutputStream asZip() throws IOException {
-		return new BAZipOutputStream(new BufferedOutputStream(createOutputStream()), target.getLastStream());
+		return new BAZipOutputStream(buffer(createOutputStream()), target.getLastStream());
 	}
 	
 	
@@ -199,10 +227,15 @@ public class ByteOutBuilder extends BaseOutBuilder<ByteOutBuilder> {
 	public byte[] copyFrom(InputStream in) throws IOException {
 		try(BAOutputStream out=this.asStream();
 				InputStream input=in;) {
-			byte[] buffer = new byte[8192];
-			int len = 0;
-			while ((len=input.read(buffer)) != -1)
-				out.write(buffer, 0, len);
+			BufferPool pool=IOConfig.getBufferPool();
+			byte[] buffer=pool.takeBytes(getBufferSize());
+			try {
+				int len = 0;
+				while ((len=input.read(buffer)) != -1)
+					out.write(buffer, 0, len);
+			} finally {
+				pool.returnBytes(buffer);
+			}
 			return out.toByteArray();
 		}
 	}
@@ -216,38 +249,71 @@ public class ByteOutBuilder extends BaseOutBuilder<ByteOutBuilder> {
 	public byte[] copyFrom(Reader in) throws IOException {
 		try(BAWriter out=this.asWriter();
 				Reader input=in;) {
-			char[] buffer = new char[4096];
-			int len = 0;
-			while ((len=input.read(buffer)) != -1)
-				out.write(buffer, 0, len);
+			BufferPool pool=IOConfig.getBufferPool();
+			char[] buffer=pool.takeChars(getBufferSize());
+			try {
+				int len = 0;
+				while ((len=input.read(buffer)) != -1)
+					out.write(buffer, 0, len);
+			} finally {
+				pool.returnChars(buffer);
+			}
 			return out.toByteArray();
 		}
 	}
 	
 	/**
 	 * This method simply writes the given object to the underlying output
-	 * using an {@link ObjectOutputStream}.
+	 * using an {@link ObjectOutputStream} or the codec chosen with {@link #withCodec(SerializationCodec)}.
 	 * @param object the object to serialize
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 * @return the written byte array
 	 */
 	public byte[] writeObject(Object object) throws IOException {
-		try(BAObjectOutputStream out=this.asObjects()) {
+		try(ObjectOutput out=createObjectOutput()) {
 			out.writeObject(object);
-			return out.toByteArray();
 		}
+		return target.getLastStream().toByteArray();
+	}
+	
+	/**
+	 * This method writes the remaining objects of the given {@link Iterator} to the underlying output
+	 * using an {@link ObjectOutputStream} or the codec chosen with {@link #withCodec(SerializationCodec)}. 
+	 * In contrast to {@link #writeObjects(Object...)} the number of objects 
+	 * does not have to be known in advance and the stream is reset after each object, so that no references to 
+	 * the written objects are kept. The output can be read with {@link com.github.powerlibraries.io.builder.InBuilder#streamObjects()}.
+	 * @param objects the objects to serialize
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 * @return the written byte array
+	 */
+	public byte[] writeObjects(Iterator<?> objects) throws IOException {
+		try(ObjectOutput out=createObjectOutput()) {
+			ObjectSequences.write(out, objects);
+		}
+		return target.getLastStream().toByteArray();
+	}
+	
+	/**
+	 * This method writes the objects of the given {@link Stream} to the underlying output
+	 * using an {@link ObjectOutputStream}, see {@link #writeObjects(Iterator)}.
+	 * @param objects the objects to serialize
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 * @return the written byte array
+	 */
+	public byte[] writeObjects(Stream<?> objects) throws IOException {
+		return writeObjects(objects.iterator());
 	}
 	
 	/**
 	 * This method writes the given objects to the underlying output
-	 * using an {@link ObjectOutputStream}. It does this by simply calling
-	 * {@link ObjectOutputStream#writeObject(Object)} with each given object.
+	 * using an {@link ObjectOutputStream} or the codec chosen with {@link #withCodec(SerializationCodec)}. 
+	 * It does this by simply calling {@link ObjectOutput#writeObject(Object)} with each given object.
 	 * @param objects the objects to serialize
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 * @return the written byte array
 	 */
 	public byte[] writeObjects(Object... objects) throws IOException {
-		try(BAObjectOutputStream out=this.asObjects()) {
+		try(ObjectOutput out=createObjectOutput()) {
 			out.writeInt(objects.length);
 			for(Object o:objects) {
 				try {
@@ -256,7 +322,7 @@ public class ByteOutBuilder extends BaseOutBuilder<ByteOutBuilder> {
 					throw new IOException("Error while trying to serialize object "+Objects.toString(o), e);
 				}
 			}
-			return out.toByteArray();
 		}
+		return target.getLastStream().toByteArray();
 	}
 }
@@ -0,0 +1,239 @@
+package com.github.powerlibraries.io.builder;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Objects;
+
+import com.github.powerlibraries.io.builder.targets.FileTarget;
+import com.github.powerlibraries.io.functions.OutputStreamWrapper;
+import com.github.powerlibraries.io.functions.WriterWrapper;
+import com.github.powerlibraries.io.helper.AtomicFileOutputStream;
+import com.github.powerlibraries.io.helper.Backpressure;
+import com.github.powerlibraries.io.helper.CompressorRegistry;
+import com.github.powerlibraries.io.helper.FileChannels;
+import com.github.powerlibraries.io.helper.GroupCommit;
+import com.github.powerlibraries.io.serialization.SerializationCodec;
+
+/**
+ * This builder is used to create an output chain that writes to a file. It is returned by 
+ * {@link com.github.powerlibraries.io.Out#fileWith(Path)} and its overloads. In addition to the options of an 
+ * {@link OutBuilder} it allows to choose how the file is written. Modes that can not be combined, e.g. 
+ * {@link #atomic()} and {@link #append()}, are rejected with an {@link IllegalStateException} when the second of
+ * them is chosen.
+ * @see BaseOutBuilder
+ */
+public class FileOutBuilder extends OutBuilder {
+
+	private FileTarget target;
+
+	public FileOutBuilder(File file) {
+		this(file.toPath());
+	}
+
+	public FileOutBuilder(Path path) {
+		super(new FileTarget(path));
+		this.target=(FileTarget) super.getTarget();
+	}
+
+	/**
+	 * This method tells the builder to write to a temporary file that atomically replaces the file when the output
+	 * is closed. Readers of the file never see partially written content and a failed write leaves the old
+	 * content unchanged. The content is not forced to the storage device, so it might still be lost in a crash.
+	 * @return this builder
+	 * @see AtomicFileOutputStream
+	 */
+	public FileOutBuilder atomic() {
+		return atomic(false);
+	}
+
+	/**
+	 * This method tells the builder to write to a temporary file that atomically replaces the file when the output
+	 * is closed.
+	 * @param force if the content should be forced to the storage device before the file is replaced, so that the
+	 * new content survives a crash once the output is closed
+	 * @return this builder
+	 * @see AtomicFileOutputStream
+	 */
+	public FileOutBuilder atomic(boolean force) {
+		target.setAtomic(true);
+		target.setForce(force);
+		target.setGroupCommit(null);
+		return this;
+	}
+
+	/**
+	 * This method tells the builder to write to a temporary file that atomically and durably replaces the file 
+	 * with the next batch of the given {@link GroupCommit} when the output is closed. Closing the output waits 
+	 * until the batch is committed.
+	 * @param groupCommit the group commit shared by the writers of many files
+	 * @return this builder
+	 */
+	public FileOutBuilder atomic(GroupCommit groupCommit) {
+		target.setAtomic(true);
+		target.setForce(true);
+		target.setGroupCommit(Objects.requireNonNull(groupCommit));
+		return this;
+	}
+
+	/**
+	 * This method tells the builder to append the output to the end of the file instead of truncating it. The file
+	 * is created if it does not exist.
+	 * @return this builder
+	 */
+	public FileOutBuilder append() {
+		target.setAppend(true);
+		return this;
+	}
+
+	/**
+	 * This method tells the builder to write the output into the file starting at the given position without 
+	 * truncating it. Several outputs at different positions can write into the same file at the same time. If the
+	 * position is after the end of the file the gap is filled with zeros.
+	 * @param position the position in the file at which the output starts
+	 * @return this builder
+	 */
+	public FileOutBuilder at(long position) {
+		if(position<0)
+			throw new IllegalArgumentException("position can not be negative");
+		target.setPosition(position);
+		return this;
+	}
+
+	/**
+	 * This method tells the builder to allocate space for at least the given number of bytes before writing. The 
+	 * file is not truncated and keeps at least this size. The output starts at the beginning of the file or at
+	 * the position given to {@link #at(long)}.
+	 * @param size the number of bytes to allocate
+	 * @return this builder
+	 * @see FileChannels#preallocate(java.nio.channels.FileChannel, long)
+	 */
+	public FileOutBuilder preallocate(long size) {
+		target.setPreallocatedSize(size);
+		return this;
+	}
+
+	//the inherited options are overridden, so that the file modes can still be chosen after them
+
+	@Override
+	public FileOutBuilder wrap(OutputStreamWrapper wrapper) {
+		super.wrap(wrapper);
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder wrap(WriterWrapper wrapper) {
+		super.wrap(wrapper);
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder compress() {
+		super.compress();
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder compress(OutputStreamWrapper wrapper) {
+		super.compress(wrapper);
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder withCompressorRegistry(CompressorRegistry registry) {
+		super.withCompressorRegistry(registry);
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder withBufferSize(int size) {
+		super.withBufferSize(size);
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder withAutoBufferSize() {
+		super.withAutoBufferSize();
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder writeBehind(int buffers) {
+		super.writeBehind(buffers);
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder writeBehind(int buffers, Backpressure backpressure) {
+		super.writeBehind(buffers, backpressure);
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder withCodec(SerializationCodec codec) {
+		super.withCodec(codec);
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder encodeBase64() {
+		super.encodeBase64();
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder encodeBase64(Base64.Encoder encoder) {
+		super.encodeBase64(encoder);
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder withCharset(Charset charset) {
+		super.withCharset(charset);
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder withUTF8() {
+		super.withUTF8();
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder withUTF16() {
+		super.withUTF16();
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder withUTF16BE() {
+		super.withUTF16BE();
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder withUTF16LE() {
+		super.withUTF16LE();
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder withASCII() {
+		super.withASCII();
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder withISO88591() {
+		super.withISO88591();
+		return this;
+	}
+
+	@Override
+	public FileOutBuilder withCharset(String charsetName) throws UnsupportedEncodingException {
+		super.withCharset(charsetName);
+		return this;
+	}
+}
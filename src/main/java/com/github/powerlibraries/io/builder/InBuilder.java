@@ -1,19 +1,34 @@
 package com.github.powerlibraries.io.builder;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.ObjectInput;
 import java.io.ObjectInputStream;
 import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipInputStream;
 
@@ -24,10 +39,28 @@ import javax.xml.parsers.ParserConfigurationException;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
+import com.github.powerlibraries.io.IOConfig;
+import com.github.powerlibraries.io.builder.sources.FileSource;
+import com.github.powerlibraries.io.builder.sources.MappedFileSource;
 import com.github.powerlibraries.io.builder.sources.Source;
+import com.github.powerlibraries.io.builder.sources.StringSource;
 import com.github.powerlibraries.io.functions.InputStreamWrapper;
 import com.github.powerlibraries.io.functions.ReaderWrapper;
+import com.github.powerlibraries.io.helper.AsyncTasks;
+import com.github.powerlibraries.io.helper.BufferPool;
+import com.github.powerlibraries.io.helper.ByteBuffersReader;
 import com.github.powerlibraries.io.helper.CompressorRegistry;
+import com.github.powerlibraries.io.helper.FileChannels;
+import com.github.powerlibraries.io.helper.FileLineSpliterator;
+import com.github.powerlibraries.io.helper.ObjectSequences;
+import com.github.powerlibraries.io.helper.PooledBufferedInputStream;
+import com.github.powerlibraries.io.helper.PrefetchInputStream;
+import com.github.powerlibraries.io.helper.compression.GZIPIndex;
+import com.github.powerlibraries.io.helper.compression.IndexedGZIPOutputStream;
+import com.github.powerlibraries.io.helper.compression.ParallelGZIPInputStream;
+import com.github.powerlibraries.io.metrics.IOListener;
+import com.github.powerlibraries.io.metrics.StreamMeter;
+import com.github.powerlibraries.io.serialization.SerializationCodec;
 
 /**
  * This builder is used to create an input chain.
@@ -37,20 +70,37 @@ import com.github.powerlibraries.io.helper.CompressorRegistry;
  */
 @SuppressWarnings("unchecked")
 public class InBuilder extends CharsetHolder<InBuilder>{
+	private static final int AUTO_BUFFER_SIZE=-1;
+	private static final int MAX_ARRAY_LENGTH=Integer.MAX_VALUE-8;
+	
 	private Source source;
 	private boolean decompress=false;
 	private Base64.Decoder base64Decoder=null;
 	private InputStreamWrapper decompressionWrapper;
+	private Executor parallelExecutor;
 	private List<InputStreamWrapper> streamWrappers;
 	private List<ReaderWrapper> readerWrappers;
+	private long seek=0;
+	private int prefetchBuffers=0;
+	private int prefetchBufferSize;
+	private int bufferSize=BufferPool.DEFAULT_BUFFER_SIZE;
+	private CompressorRegistry compressorRegistry;
+	private SerializationCodec codec;
+	/**
+	 * The resolved decompression and decoding stages, null if they have to be resolved again.
+	 */
+	private InputStreamWrapper decoder;
+	private CompressorRegistry decoderRegistry;
+	private int decoderVersion;
 
 	public InBuilder(Source source) {
 		this.source=source;
 	}
 	
 	/**
-	 * Adds a wrapper around the generated InputStream before creating a Writer or 
-	 * a special type of input. This wrapper will be applied before decompression. 
+	 * Adds a wrapper around the generated InputStream before creating a Reader or 
+	 * a special type of input. This wrapper will be applied after decompression and decoding, 
+	 * wrappers are applied in the order they were added.
 	 * @param wrapper the wrapper to apply to the generated InputStream
 	 * @return this builder
 	 */
@@ -64,7 +114,7 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	/**
 	 * Adds a wrapper around the generated Reader before creating a Reader or 
 	 * a special type of input. This wrapper will only be applied if the created 
-	 * input uses Readers. 
+	 * input uses Readers. Wrappers are applied in the order they were added.
 	 * @param wrapper the wrapper to apply to the generated Reader
 	 * @return this builder
 	 */
@@ -86,6 +136,8 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	 */
 	public InBuilder decompress() {
 		decompress=true;
+		parallelExecutor=null;
+		decoder=null;
 		return this;
 	}
 	
@@ -97,6 +149,65 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	public InBuilder decompress(InputStreamWrapper wrapper) {
 		decompress=true;
 		decompressionWrapper=wrapper;
+		parallelExecutor=null;
+		decoder=null;
+		return this;
+	}
+	
+	/**
+	 * This method will tell the builder to decompress gzip bytes by inflating the members of multi-member gzip
+	 * files in parallel on the {@link ForkJoinPool#commonPool()}, see {@link ParallelGZIPInputStream}. The file
+	 * extension of the source is ignored.
+	 * @return this builder
+	 */
+	public InBuilder decompressParallel() {
+		return decompressParallel(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * This method will tell the builder to decompress gzip bytes by inflating the members of multi-member gzip
+	 * files in parallel on the given executor, see {@link ParallelGZIPInputStream}. If the source is a file with 
+	 * a {@link GZIPIndex} the members are found with the index, otherwise the compressed bytes are searched for 
+	 * them. Files with only a single member are inflated sequentially. The chunks that wait to be read take at 
+	 * most {@link ParallelGZIPInputStream#DEFAULT_MAX_PENDING_BYTES} compressed and inflated bytes, in addition
+	 * the stream buffers up to {@link ParallelGZIPInputStream#MAX_CHUNK_FACTOR} chunks of compressed bytes.
+	 * @param executor the executor that inflates the members
+	 * @return this builder
+	 */
+	public InBuilder decompressParallel(Executor executor) {
+		if(executor==null)
+			throw new NullPointerException("executor can not be null");
+		decompress=true;
+		parallelExecutor=executor;
+		decoder=null;
+		return this;
+	}
+	
+	/**
+	 * This method sets the registry that is used to choose the decompressor in {@link #decompress()}. By default
+	 * the global registry returned by {@link CompressorRegistry#getInstance()} is used.
+	 * @param registry the registry to use for this builder
+	 * @return this builder
+	 */
+	public InBuilder withCompressorRegistry(CompressorRegistry registry) {
+		if(registry==null)
+			throw new NullPointerException("registry can not be null");
+		compressorRegistry=registry;
+		decoder=null;
+		return this;
+	}
+	
+	/**
+	 * This method sets the codec that is used by the readObject(s) and {@link #streamObjects()} methods of this 
+	 * builder. By default objects are read with an {@link ObjectInputStream}. {@link #asObjects()} always uses 
+	 * Java serialization.
+	 * @param codec the codec used to deserialize objects
+	 * @return this builder
+	 */
+	public InBuilder withCodec(SerializationCodec codec) {
+		if(codec==null)
+			throw new NullPointerException("codec can not be null");
+		this.codec=codec;
 		return this;
 	}
 	
@@ -106,6 +217,7 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	 */
 	public InBuilder decodeBase64() {
 		base64Decoder=Base64.getDecoder();
+		decoder=null;
 		return this;
 	}
 	
@@ -116,6 +228,66 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	 */
 	public InBuilder decodeBase64(Base64.Decoder decoder) {
 		base64Decoder=decoder;
+		this.decoder=null;
+		return this;
+	}
+	
+	/**
+	 * This method sets the length of the buffers this builder uses for reading and copying. By default
+	 * {@link BufferPool#DEFAULT_BUFFER_SIZE} is used.
+	 * @param size the length of the buffers in bytes or chars
+	 * @return this builder
+	 */
+	public InBuilder withBufferSize(int size) {
+		if(size<=0)
+			throw new IllegalArgumentException("size has to be positive");
+		bufferSize=size;
+		return this;
+	}
+	
+	/**
+	 * This method tells the builder to choose the length of its buffers from the length of the source, see 
+	 * {@link Source#getLength()}. Small sources like byte arrays get buffers that are just large enough while 
+	 * large files are read with buffers of up to {@link BufferPool#MAX_AUTO_BUFFER_SIZE} bytes.
+	 * @return this builder
+	 */
+	public InBuilder withAutoBufferSize() {
+		bufferSize=AUTO_BUFFER_SIZE;
+		return this;
+	}
+	
+	/**
+	 * This method tells the builder to start reading at the given position of the decompressed and decoded input.
+	 * If the source is a file written by an {@link IndexedGZIPOutputStream}, this builder decompresses it and does 
+	 * not decode Base64, only the block containing the position is inflated. Otherwise all bytes before the 
+	 * position are read and discarded.
+	 * @param position the number of bytes to skip at the start of the input
+	 * @return this builder
+	 */
+	public InBuilder seek(long position) {
+		if(position<0)
+			throw new IllegalArgumentException("position can not be negative");
+		seek=position;
+		return this;
+	}
+	
+	/**
+	 * This method tells the builder to read the source ahead on the executor returned by 
+	 * {@link IOConfig#getAsyncExecutor()}. Up to the given number of buffers are filled in the background while 
+	 * the bytes are decompressed, decoded and consumed, so that waiting for a slow source, e.g. an url or a file
+	 * on a network file system, overlaps with the work on the already read bytes.
+	 * @param buffers the maximum number of buffers that are read ahead
+	 * @param bufferSize the length of the buffers in bytes
+	 * @return this builder
+	 * @see PrefetchInputStream
+	 */
+	public InBuilder prefetch(int buffers, int bufferSize) {
+		if(buffers<=0)
+			throw new IllegalArgumentException("buffers has to be positive");
+		if(bufferSize<=0)
+			throw new IllegalArgumentException("bufferSize has to be positive");
+		prefetchBuffers=buffers;
+		prefetchBufferSize=bufferSize;
 		return this;
 	}
 	
@@ -135,7 +307,7 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public BufferedReader asReader() throws IOException {
-		return new BufferedReader(new InputStreamReader(createInputStream(), getCharset()));
+		return new BufferedReader(createReader(), getBufferSize());
 	}
 	
 	/**
@@ -144,7 +316,7 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public ObjectInputStream asObjects() throws IOException {
-		return new ObjectInputStream(new BufferedInputStream(createInputStream()));
+		return new ObjectInputStream(buffer(createInputStream()));
 	}
 	
 	/**
@@ -153,7 +325,7 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public DataInputStream asData() throws IOException {
-		return new DataInputStream(new BufferedInputStream(createInputStream()));
+		return new DataInputStream(buffer(createInputStream()));
 	}
 	
 	/**
@@ -162,7 +334,7 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public ZipInputStream asZip() throws IOException {
-		return new ZipInputStream(new BufferedInputStream(createInputStream()));
+		return new ZipInputStream(buffer(createInputStream()));
 	}
 	
 	/**
@@ -188,28 +360,52 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	 * @throws SAXException if any parse errors occur
 	 */
 	public Document readXML(DocumentBuilder documentBuilder) throws IOException, SAXException {
-		try(BufferedInputStream in=new BufferedInputStream(this.asStream())) {
+		try(InputStream in=buffer(this.asStream())) {
 			return documentBuilder.parse(in);
 		}
 	}
 	
 	/**
-	 * This method reads the complete input in a String. Lines are seperated with a single '\n'.
+	 * This method reads the complete input in a String. Lines are seperated with a single '\n' and a line break at 
+	 * the end of the input is removed.
 	 * @return a String containing the whole content of the file
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public String readAll() throws IOException {
-		try(BufferedReader in=this.asReader()) {
-			StringBuilder sb=new StringBuilder();
-			String l;
-			while((l=in.readLine())!=null) {
-				sb.append(l).append('\n');
+		return readAll(false);
+	}
+	
+	/**
+	 * This method reads the complete input in a String. Unless reader wrappers are used the bytes are read into a 
+	 * single array that is sized from the length of the source if it is known and decoded at once.
+	 * @param preserveLineEndings if true the content is returned exactly as it is, otherwise lines are seperated 
+	 * with a single '\n' and a line break at the end of the input is removed like in {@link #readAll()}
+	 * @return a String containing the whole content of the file
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 */
+	public String readAll(boolean preserveLineEndings) throws IOException {
+		String content;
+		if(readerWrappers!=null) {
+			try(Reader in=createReader()) {
+				StringBuilder sb=new StringBuilder();
+				BufferPool pool=IOConfig.getBufferPool();
+				char[] buffer=pool.takeChars(getBufferSize());
+				try {
+					int len;
+					while((len=in.read(buffer))!=-1)
+						sb.append(buffer, 0, len);
+				} finally {
+					pool.returnChars(buffer);
+				}
+				content=sb.toString();
 			}
-			if(sb.length()==0)
-				return "";
-			else
-				return sb.substring(0, sb.length()-1);
 		}
+		else if(source instanceof StringSource && !hasTransformations() && IOConfig.getListener()==null
+				&& ((StringSource)source).getCharset().equals(getCharset()))
+			content=((StringSource)source).getString();
+		else
+			content=new String(readAllBytes(), getCharset());
+		return preserveLineEndings?content:normalizeLineEndings(content);
 	}
 	
 	/**
@@ -221,7 +417,7 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public <T> T readObject() throws ClassNotFoundException, IOException {
-		try(ObjectInputStream in=this.asObjects()) {
+		try(ObjectInput in=createObjectInput()) {
 			return (T)in.readObject();
 		}
 	}
@@ -237,19 +433,41 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public <T> List<T> readObjects() throws ClassNotFoundException, IOException {
-		try(ObjectInputStream in=this.asObjects()) {
-			int length = in.readInt();
-			ArrayList<T> objects=new ArrayList<>(length);
-			for(int i=0;i<length;i++) {
+		try(ObjectInput in=createObjectInput()) {
+			ObjectSequences.Reader<T> reader=ObjectSequences.read(in);
+			ArrayList<T> objects=new ArrayList<>(Math.max(0, reader.getCount()));
+			while(reader.hasNextObject())
+				objects.add(reader.nextObject());
+			return objects;
+		}
+	}
+	
+	/**
+	 * This method reads the objects written by one of the writeObjects methods as a lazily populated 
+	 * {@link Stream}. In contrast to {@link #readObjects()} only one object is deserialized at a time. Errors 
+	 * while reading are thrown as {@link UncheckedIOException}s. Be aware that the created stream is only closed 
+	 * if the returned {@link Stream} is closed.
+	 * @param <T> the expected supertype of the read objects
+	 * @return a {@link Stream} of the read objects
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 */
+	public <T> Stream<T> streamObjects() throws IOException {
+		ObjectInput in=createObjectInput();
+		try {
+			ObjectSequences.Reader<T> reader=ObjectSequences.read(in);
+			Spliterator<T> spliterator=reader.getCount()==ObjectSequences.UNKNOWN_COUNT
+				?Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED)
+				:Spliterators.spliterator(reader, reader.getCount(), Spliterator.ORDERED);
+			return StreamSupport.stream(spliterator, false).onClose(() -> {
 				try {
-					objects.add((T)in.readObject());
-				} catch(ClassNotFoundException e) {
-					throw new ClassNotFoundException("Error while trying to deserialize object "+i, e);
-				} catch(IOException e) {
-					throw new IOException("Error while trying to deserialize object "+i, e);
+					in.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
 				}
-			}
-			return objects;
+			});
+		} catch(IOException | RuntimeException e) {
+			in.close();
+			throw e;
 		}
 	}
 	
@@ -274,17 +492,21 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	 * @param bytes the byte array to write
 	 * @param offset the offset in the byte array
 	 * @param length the length of the bytes to read
+	 * @throws EOFException if the input ends before length bytes were read
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void readBytes(byte[] bytes, int offset, int length) throws IOException {
 		try(InputStream in = this.asStream()) {
-			in.read(bytes, offset, length);
+			int read=in.readNBytes(bytes, offset, length);
+			if(read<length)
+				throw new EOFException("The input ended after "+read+" of "+length+" bytes");
 		}
 	}
 	
 	/**
 	 * This method reads to the given array completely from the {@link InputStream} and closes it.
 	 * @param bytes the byte array to read
+	 * @throws EOFException if the input ends before the array is filled
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void readBytes(byte[] bytes) throws IOException {
@@ -294,6 +516,8 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	/**
 	 * This method reads the given number of bytes from the defined {@link InputStream}, closes it, and returns the read bytes.
 	 * @param length the number of bytes to read
+	 * @return the read bytes
+	 * @throws EOFException if the input ends before length bytes were read
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public byte[] readBytes(int length) throws IOException {
@@ -302,18 +526,54 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 		return bytes;
 	}
 	
+	/**
+	 * This method reads all bytes of the input and closes it. If the length of the source is known and there are
+	 * no transformations, the bytes are read into an array of exactly that length. Files are then read with a 
+	 * {@link FileChannel} directly into the returned array, unless an {@link IOListener} is set.
+	 * @return the bytes of the input
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 */
+	public byte[] readAllBytes() throws IOException {
+		if(source instanceof FileSource && !hasTransformations() && IOConfig.getListener()==null) {
+			try(FileChannel channel=FileChannel.open(getFilePath(), StandardOpenOption.READ)) {
+				long size=channel.size();
+				if(size<=MAX_ARRAY_LENGTH) {
+					byte[] bytes=new byte[(int)size];
+					ByteBuffer buffer=ByteBuffer.wrap(bytes);
+					while(buffer.hasRemaining() && channel.read(buffer)>=0);
+					return readRemaining(Channels.newInputStream(channel), bytes, buffer.position());
+				}
+			}
+		}
+		try(InputStream in=createInputStream()) {
+			long length=hasTransformations()?-1:source.getLength();
+			if(length<0 || length>MAX_ARRAY_LENGTH)
+				return in.readAllBytes();
+			return readRemaining(in, new byte[(int)length], 0);
+		}
+	}
+	
 	/**
 	 * Copies the content of this {@link InputStream} to the given {@link OutputStream}.
-	 * This does not close the {@link OutputStream}.
+	 * This does not close the {@link OutputStream}. If this builder reads a plain file without any
+	 * decompression or decoding and the given stream is a {@link java.io.FileOutputStream} the bytes are
+	 * transferred by the operating system without copying them through the heap.
 	 * @param out the {@link OutputStream} to copy to
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void copyTo(OutputStream out) throws IOException {
 		try(InputStream in=createInputStream()) {
-			byte[] buffer = new byte[8192];
-			int len = 0;
-			while ((len=in.read(buffer)) != -1)
-				out.write(buffer, 0, len);
+			if(!hasTransformations() && FileChannels.transfer(in, out)>=0)
+				return;
+			BufferPool pool=IOConfig.getBufferPool();
+			byte[] buffer=pool.takeBytes(getBufferSize());
+			try {
+				int len = 0;
+				while ((len=in.read(buffer)) != -1)
+					out.write(buffer, 0, len);
+			} finally {
+				pool.returnBytes(buffer);
+			}
 		}
 	}
 	
@@ -325,10 +585,15 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	 */
 	public void copyTo(Writer out) throws IOException {
 		try(BufferedReader in=this.asReader()) {
-			char[] buffer = new char[4096];
-			int len = 0;
-			while ((len=in.read(buffer)) != -1)
-				out.write(buffer, 0, len);
+			BufferPool pool=IOConfig.getBufferPool();
+			char[] buffer=pool.takeChars(getBufferSize());
+			try {
+				int len = 0;
+				while ((len=in.read(buffer)) != -1)
+					out.write(buffer, 0, len);
+			} finally {
+				pool.returnChars(buffer);
+			}
 		}
 	}
 	
@@ -336,10 +601,33 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 	 * This method reads the complete input in a {@link Stream} of Strings. Each element of the stream 
 	 * represents one line of the source document. The stream is lazily populated. Be aware that the created
 	 * reader is only closed if the created stream is closed.
+	 * <p>
+	 * If the source is a {@link FileSource} without any transformations and its charset can be split at line breaks 
+	 * (see {@link FileLineSpliterator#canSplit(Charset)}), the stream splits the file into byte ranges that 
+	 * are decoded independently. Such a stream scales well when it is made {@link Stream#parallel() parallel}.
+	 * A {@link MappedFileSource} is decoded directly from the mapped memory instead. Both are only done if no 
+	 * {@link IOListener} is set.
 	 * @return a {@link Stream} containing the lines of this input
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public Stream<String> streamLines() throws IOException {
+		if(source instanceof FileSource && !hasTransformations() && readerWrappers==null && IOConfig.getListener()==null
+				&& FileLineSpliterator.canSplit(getCharset())) {
+			FileChannel channel=FileChannel.open(getFilePath(), StandardOpenOption.READ);
+			try {
+				return StreamSupport.stream(new FileLineSpliterator(channel, 0, channel.size(), getCharset()), false)
+					.onClose(() -> {
+						try {
+							channel.close();
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					});
+			} catch(IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		}
 		BufferedReader in=this.asReader();
 		return in.lines().onClose(() ->  {
 			try {
@@ -350,19 +638,297 @@ public class InBuilder extends CharsetHolder<InBuilder>{
 		});
 	}
 
+	/**
+	 * This method is the asynchronous counterpart of {@link #readAll()}. It runs on the executor returned by 
+	 * {@link IOConfig#getAsyncExecutor()}. This builder should not be changed before the returned future completes.
+	 * @return a future that is completed with the content of the input
+	 */
+	public CompletableFuture<String> readAllAsync() {
+		return AsyncTasks.supply(this::readAll);
+	}
+	
+	/**
+	 * This method is the asynchronous counterpart of {@link #readBytes(int)}. If the source is a file without any 
+	 * transformations and no {@link IOListener} is set the bytes are read with an 
+	 * {@link java.nio.channels.AsynchronousFileChannel}, otherwise the method runs on the executor returned by {@link IOConfig#getAsyncExecutor()}. This builder should not be 
+	 * changed before the returned future completes.
+	 * @param length the number of bytes to read
+	 * @return a future that is completed with the read bytes
+	 */
+	public CompletableFuture<byte[]> readBytesAsync(int length) {
+		Path path=getFilePath();
+		if(path!=null && !hasTransformations() && IOConfig.getListener()==null)
+			return AsyncTasks.readFile(path, length);
+		return AsyncTasks.supply(() -> readBytes(length));
+	}
+	
+	/**
+	 * This method is the asynchronous counterpart of {@link #copyTo(OutputStream)}. It runs on the executor 
+	 * returned by {@link IOConfig#getAsyncExecutor()}. This builder should not be changed before the returned 
+	 * future completes.
+	 * @param out the {@link OutputStream} to copy to
+	 * @return a future that is completed when all bytes are copied
+	 */
+	public CompletableFuture<Void> copyToAsync(OutputStream out) {
+		return AsyncTasks.supply(() -> {
+			copyTo(out);
+			return null;
+		});
+	}
+	
+	/**
+	 * This method is the asynchronous counterpart of {@link #copyTo(Writer)}. It runs on the executor 
+	 * returned by {@link IOConfig#getAsyncExecutor()}. This builder should not be changed before the returned 
+	 * future completes.
+	 * @param out the {@link Writer} to copy to
+	 * @return a future that is completed when all characters are copied
+	 */
+	public CompletableFuture<Void> copyToAsync(Writer out) {
+		return AsyncTasks.supply(() -> {
+			copyTo(out);
+			return null;
+		});
+	}
+
+	/**
+	 * @return the path of the file this builder reads or null if the source is not a file
+	 */
+	private Path getFilePath() {
+		if(source instanceof FileSource)
+			return ((FileSource)source).getFile().toPath();
+		if(source instanceof MappedFileSource)
+			return ((MappedFileSource)source).getPath();
+		return null;
+	}
+
+	/**
+	 * @return true if this builder changes the bytes of the source in any way
+	 */
+	private boolean hasTransformations() {
+		return decompress || base64Decoder!=null || streamWrappers!=null || seek>0;
+	}
+
+	/**
+	 * This method creates the Reader that decodes the InputStream. If the source is a memory mapped file without any
+	 * transformations and no {@link IOListener} is set the Reader decodes the mapped memory directly.
+	 * @return a Reader
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 */
+	private Reader createReader() throws IOException {
+		Reader reader;
+		if(source instanceof MappedFileSource && !hasTransformations() && IOConfig.getListener()==null)
+			reader=new ByteBuffersReader(getCharset(), ((MappedFileSource)source).map());
+		else
+			reader=new InputStreamReader(createInputStream(), getCharset());
+		if(readerWrappers!=null) {
+			for(ReaderWrapper w:readerWrappers)
+				reader=w.wrap(reader);
+		}
+		return reader;
+	}
+
+	/**
+	 * This method creates the {@link ObjectInput} used by the readObject(s) methods. Without a codec this is the 
+	 * stream created by {@link #asObjects()}.
+	 * @return an {@link ObjectInput}
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 */
+	private ObjectInput createObjectInput() throws IOException {
+		if(codec==null)
+			return asObjects();
+		return codec.createInput(buffer(createInputStream()));
+	}
+
 	private InputStream createInputStream() throws IOException {
-		InputStream stream=source.openStream();
-		if(decompress) {
-			if(decompressionWrapper!=null)
-				stream=decompressionWrapper.wrap(stream);
-			else if(source.hasName() && CompressorRegistry.getInstance().canWrapInput(source.getName()))
-				stream=CompressorRegistry.getInstance().wrap(source.getName(), stream);
+		IOListener listener=IOConfig.getListener();
+		long start=listener==null?0:System.nanoTime();
+		long skip=seek;
+		InputStream stream=null;
+		GZIPIndex index=null;
+		long offset=0;
+		if((seek>0 || parallelExecutor!=null) && decompress && base64Decoder==null && source instanceof FileSource) {
+			FileChannel channel=FileChannel.open(getFilePath(), StandardOpenOption.READ);
+			try {
+				index=GZIPIndex.read(channel);
+				if(index!=null && seek>0) {
+					int block=index.findBlock(seek);
+					offset=index.getCompressedOffset(block);
+					channel.position(offset);
+					skip=seek-index.getUncompressedOffset(block);
+					stream=Channels.newInputStream(channel);
+				}
+				else
+					channel.close();
+			} catch(IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		}
+		if(stream==null)
+			stream=source.openStream();
+		StreamMeter meter=null;
+		try {
+			if(listener!=null) {
+				meter=new StreamMeter(listener, source.getClass(), true, start);
+				stream=meter.meterRaw(stream);
+			}
+			if(prefetchBuffers>0)
+				stream=new PrefetchInputStream(stream, IOConfig.getAsyncExecutor(), prefetchBuffers, prefetchBufferSize);
+			if(index!=null && parallelExecutor!=null) {
+				long[] boundaries=ParallelGZIPInputStream.boundaries(index, offset);
+				stream=new ParallelGZIPInputStream(stream, parallelExecutor, ParallelGZIPInputStream.DEFAULT_CHUNK_SIZE, boundaries);
+			}
+			else {
+				InputStreamWrapper decoder=getDecoder();
+				if(decoder!=null)
+					stream=decoder.wrap(stream);
+			}
+			while(skip>0) {
+				long skipped=stream.skip(skip);
+				if(skipped<=0) {
+					if(stream.read()<0)
+						break;
+					skipped=1;
+				}
+				skip-=skipped;
+			}
+			if(streamWrappers!=null) {
+				for(InputStreamWrapper w:streamWrappers)
+					stream=w.wrap(stream);
+			}
+			if(meter!=null)
+				stream=meter.meterResult(stream);
+			return stream;
+		} catch(IOException | RuntimeException e) {
+			//close the stages that were already created, e.g. to stop a prefetching task and to report the meter
+			try {
+				if(meter!=null)
+					meter.close(stream);
+				else
+					stream.close();
+			} catch(IOException | RuntimeException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * This method returns the decompression and decoding stages of the chain as a single wrapper. The wrapper is 
+	 * resolved once and reused by later calls until an option of this builder or the compressor registry changes.
+	 * @return the wrapper or null if the bytes of the source are neither decompressed nor decoded
+	 */
+	private InputStreamWrapper getDecoder() {
+		if(!decompress && base64Decoder==null)
+			return null;
+		CompressorRegistry registry=getCompressorRegistry();
+		int version=registry.getVersion();
+		if(decoder==null || decoderRegistry!=registry || decoderVersion!=version) {
+			decoder=resolveDecoder(registry);
+			decoderRegistry=registry;
+			decoderVersion=version;
+		}
+		return decoder;
+	}
+	
+	private InputStreamWrapper resolveDecoder(CompressorRegistry registry) {
+		InputStreamWrapper decompressor=null;
+		if(decompress && parallelExecutor!=null)
+			decompressor=ParallelGZIPInputStream.wrapper(parallelExecutor, ParallelGZIPInputStream.DEFAULT_CHUNK_SIZE);
+		else if(decompress) {
+			decompressor=decompressionWrapper;
+			if(decompressor==null && source.hasName())
+				decompressor=registry.resolveInput(source.getName());
+			if(decompressor==null)
+				decompressor=InflaterInputStream::new;
+		}
+		Base64.Decoder base64=base64Decoder;
+		if(base64==null)
+			return decompressor;
+		if(decompressor==null)
+			return base64::wrap;
+		InputStreamWrapper d=decompressor;
+		return in -> base64.wrap(d.wrap(in));
+	}
+	
+	/**
+	 * This method fills the given array from the stream. If the stream has more bytes than expected they are 
+	 * appended, if it has less the array is shortened.
+	 * @param in the stream to read
+	 * @param bytes an array sized for the expected length of the stream
+	 * @param offset the number of bytes that were already read into the array
+	 * @return an array containing all bytes
+	 * @throws IOException if the stream throws an {@link IOException}
+	 */
+	private static byte[] readRemaining(InputStream in, byte[] bytes, int offset) throws IOException {
+		offset+=in.readNBytes(bytes, offset, bytes.length-offset);
+		if(offset<bytes.length)
+			return Arrays.copyOf(bytes, offset);
+		//the source grew since its length was determined
+		byte[] rest=in.readAllBytes();
+		if(rest.length==0)
+			return bytes;
+		byte[] result=Arrays.copyOf(bytes, bytes.length+rest.length);
+		System.arraycopy(rest, 0, result, bytes.length, rest.length);
+		return result;
+	}
+	
+	/**
+	 * This method replaces all line breaks in the given String with a single '\n' and removes a line break at
+	 * the end, like joining the lines returned by {@link BufferedReader#readLine()}.
+	 * @param content the content to normalize
+	 * @return the normalized content
+	 */
+	private static String normalizeLineEndings(String content) {
+		int length=content.length();
+		if(length>0 && content.charAt(length-1)=='\n')
+			length--;
+		if(length>0 && content.charAt(length-1)=='\r')
+			length--;
+		int cr=content.indexOf('\r');
+		if(cr<0 || cr>=length)
+			return length==content.length()?content:content.substring(0, length);
+		StringBuilder sb=new StringBuilder(length);
+		sb.append(content, 0, cr);
+		for(int i=cr;i<length;i++) {
+			char c=content.charAt(i);
+			if(c=='\r') {
+				sb.append('\n');
+				if(i+1<length && content.charAt(i+1)=='\n')
+					i++;
+			}
 			else
-				stream=new InflaterInputStream(stream);
+				sb.append(c);
 		}
-		if(base64Decoder!=null)
-			stream=base64Decoder.wrap(stream);
-		return stream;
+		return sb.toString();
+	}
+	
+	/**
+	 * @param in the stream to buffer
+	 * @return a buffered stream with a buffer of {@link #getBufferSize()} bytes
+	 */
+	private InputStream buffer(InputStream in) {
+		return new PooledBufferedInputStream(in, IOConfig.getBufferPool(), getBufferSize());
+	}
+	
+	/**
+	 * @return the length of the buffers used by this InBuilder
+	 */
+	public int getBufferSize() {
+		if(bufferSize!=AUTO_BUFFER_SIZE)
+			return bufferSize;
+		long length=source.getLength();
+		//decompressed content is longer than the source
+		if(decompress && length>=0)
+			length=Math.max(length, BufferPool.DEFAULT_BUFFER_SIZE);
+		return BufferPool.bufferSizeFor(length);
+	}
+	
+	/**
+	 * @return the registry used to choose the decompressor of this InBuilder
+	 */
+	public CompressorRegistry getCompressorRegistry() {
+		return compressorRegistry==null?CompressorRegistry.getInstance():compressorRegistry;
 	}
 	
 	/**
@@ -1,16 +1,18 @@
 package com.github.powerlibraries.io.builder;
 
-import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.Iterator;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -20,10 +22,18 @@ import javax.xml.transform.stream.StreamResult;
 
 import org.w3c.dom.Document;
 
+import com.github.powerlibraries.io.IOConfig;
 import com.github.powerlibraries.io.builder.targets.Target;
 import com.github.powerlibraries.io.functions.BufferedWriterConsumer;
 import com.github.powerlibraries.io.functions.OutputStreamConsumer;
 import com.github.powerlibraries.io.functions.WriterConsumer;
+import com.github.powerlibraries.io.helper.Abortable;
+import com.github.powerlibraries.io.helper.AsyncTasks;
+import com.github.powerlibraries.io.helper.AtomicFileOutputStream;
+import com.github.powerlibraries.io.helper.BufferPool;
+import com.github.powerlibraries.io.helper.FileChannels;
+import com.github.powerlibraries.io.helper.ObjectSequences;
+import com.github.powerlibraries.io.serialization.SerializationCodec;
 
 public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 
@@ -37,9 +47,21 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void write(Object o) throws IOException {
-		try(BufferedWriter out=this.asWriter()) {
-			out.write(Objects.toString(o));
-		}
+		write(this::createBufferedWriter, out -> out.write(Objects.toString(o)));
+	}
+	
+	/**
+	 * This method is the asynchronous counterpart of {@link #write(Object)}. It runs on the executor 
+	 * returned by {@link IOConfig#getAsyncExecutor()}. This builder should not be changed before the returned 
+	 * future completes.
+	 * @param o the object to write to the output
+	 * @return a future that is completed when the object is written
+	 */
+	public CompletableFuture<Void> writeAsync(Object o) {
+		return AsyncTasks.supply(() -> {
+			write(o);
+			return null;
+		});
 	}
 	
 	/**
@@ -52,6 +74,20 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 		writeLines(iterable.iterator());
 	}
 	
+	/**
+	 * This method is the asynchronous counterpart of {@link #writeLines(Iterable)}. It runs on the executor 
+	 * returned by {@link IOConfig#getAsyncExecutor()}. This builder should not be changed before the returned 
+	 * future completes.
+	 * @param iterable the {@link Iterable} to write to the output
+	 * @return a future that is completed when all lines are written
+	 */
+	public CompletableFuture<Void> writeLinesAsync(Iterable<?> iterable) {
+		return AsyncTasks.supply(() -> {
+			writeLines(iterable);
+			return null;
+		});
+	}
+	
 	/**
 	 * This method writes the given array to the output by calling {@link Objects#toString()} on each
 	 * of the elements and writing them on separate lines.
@@ -60,13 +96,13 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public <T> void writeLines(T[] array) throws IOException {
-		try(BufferedWriter out=this.asWriter()) {
+		write(this::createBufferedWriter, out -> {
 			for(int i=0;i<array.length;i++) {
 				if(i>0)
 					out.newLine();
 				out.write(Objects.toString(array[i]));
 			}
-		}
+		});
 	}
 	
 	/**
@@ -76,13 +112,13 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void writeLines(Iterator<?> iterator) throws IOException {
-		try(BufferedWriter out=this.asWriter()) {
+		write(this::createBufferedWriter, out -> {
 			while(iterator.hasNext()) {
 				out.write(Objects.toString(iterator.next()));
 				if(iterator.hasNext())
 					out.newLine();
 			}
-		}
+		});
 	}
 	
 	/**
@@ -105,13 +141,13 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public <T> void write(T[] array, String separator) throws IOException {
-		try(BufferedWriter out=this.asWriter()) {
+		write(this::createBufferedWriter, out -> {
 			for(int i=0;i<array.length;i++) {
 				if(i>0)
 					out.write(separator);
 				out.write(Objects.toString(array[i]));
 			}
-		}
+		});
 	}
 	
 	/**
@@ -122,13 +158,13 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void write(Iterator<?> iterator, String separator) throws IOException {
-		try(BufferedWriter out=this.asWriter()) {
+		write(this::createBufferedWriter, out -> {
 			while(iterator.hasNext()) {
 				out.write(Objects.toString(iterator.next()));
 				if(iterator.hasNext())
 					out.write(separator);
 			}
-		}
+		});
 	}
 	
 	/**
@@ -151,24 +187,31 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 	 * @throws TransformerException if an unrecoverable error occurs during the course of the transformation
 	 */
 	public void writeXML(Document document, Transformer transformer) throws IOException, TransformerException {
-		try(BufferedOutputStream out=new BufferedOutputStream(createOutputStream())) {
-			
-			transformer.transform(new DOMSource(document), new StreamResult(out));
-		}
+		write(this::buffer, out -> transformer.transform(new DOMSource(document), new StreamResult(out)));
 	}
 	
 	/**
-	 * Copies the content of the given {@link InputStream} to this output
+	 * Copies the content of the given {@link InputStream} to this output. If the given stream is a 
+	 * {@link java.io.FileInputStream} and this builder writes to a plain file without any compression or
+	 * encoding the bytes are transferred by the operating system without copying them through the heap.
 	 * @param in the {@link InputStream} to copy from
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void copyFrom(InputStream in) throws IOException {
-		try(OutputStream out=this.asStream();
-				InputStream input=in;) {
-			byte[] buffer = new byte[8192];
-			int len = 0;
-			while ((len=input.read(buffer)) != -1)
-				out.write(buffer, 0, len);
+		try(InputStream input=in) {
+			write(out -> out, out -> {
+				if(!hasTransformations() && FileChannels.transfer(input, out)>=0)
+					return;
+				BufferPool pool=IOConfig.getBufferPool();
+				byte[] buffer=pool.takeBytes(getBufferSize());
+				try {
+					int len = 0;
+					while ((len=input.read(buffer)) != -1)
+						out.write(buffer, 0, len);
+				} finally {
+					pool.returnBytes(buffer);
+				}
+			});
 		}
 	}
 	
@@ -178,25 +221,29 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void copyFrom(Reader in) throws IOException {
-		try(BufferedWriter out=this.asWriter();
-				Reader input=in;) {
-			char[] buffer = new char[4096];
-			int len = 0;
-			while ((len=input.read(buffer)) != -1)
-				out.write(buffer, 0, len);
+		try(Reader input=in) {
+			write(this::createBufferedWriter, out -> {
+				BufferPool pool=IOConfig.getBufferPool();
+				char[] buffer=pool.takeChars(getBufferSize());
+				try {
+					int len = 0;
+					while ((len=input.read(buffer)) != -1)
+						out.write(buffer, 0, len);
+				} finally {
+					pool.returnChars(buffer);
+				}
+			});
 		}
 	}
 	
 	/**
 	 * This method simply writes the given object to the underlying output
-	 * using an {@link ObjectOutputStream}.
+	 * using an {@link ObjectOutputStream} or the codec chosen with {@link #withCodec(SerializationCodec)}.
 	 * @param object the object to serialize
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void writeObject(Object object) throws IOException {
-		try(ObjectOutputStream out=this.asObjects()) {
-			out.writeObject(object);
-		}
+		write(this::createObjectOutput, out -> out.writeObject(object));
 	}
 	
 	/**
@@ -206,9 +253,7 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void write(WriterConsumer writerConsumer) throws IOException {
-		try(BufferedWriter writer = this.asWriter()) {
-			writerConsumer.accept(writer);
-		}
+		write(this::createBufferedWriter, writerConsumer::accept);
 	}
 	
 	/**
@@ -218,9 +263,7 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void write(BufferedWriterConsumer writerConsumer) throws IOException {
-		try(BufferedWriter writer = this.asWriter()) {
-			writerConsumer.accept(writer);
-		}
+		write(this::createBufferedWriter, writerConsumer::accept);
 	}
 	
 	/**
@@ -230,9 +273,7 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void write(OutputStreamConsumer outputStreamConsumer) throws IOException {
-		try(OutputStream out = this.asStream()) {
-			outputStreamConsumer.accept(out);
-		}
+		write(out -> out, outputStreamConsumer::accept);
 	}
 	
 	/**
@@ -243,9 +284,21 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void writeBytes(byte[] bytes, int offset, int length) throws IOException {
-		try(OutputStream out = this.asStream()) {
-			out.write(bytes, offset, length);
-		}
+		write(out -> out, out -> out.write(bytes, offset, length));
+	}
+	
+	/**
+	 * This method is the asynchronous counterpart of {@link #writeBytes(byte[])}. It runs on the executor 
+	 * returned by {@link IOConfig#getAsyncExecutor()}. This builder should not be changed before the returned 
+	 * future completes.
+	 * @param bytes the byte array to write
+	 * @return a future that is completed when all bytes are written
+	 */
+	public CompletableFuture<Void> writeBytesAsync(byte[] bytes) {
+		return AsyncTasks.supply(() -> {
+			writeBytes(bytes);
+			return null;
+		});
 	}
 	
 	/**
@@ -257,15 +310,38 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 		writeBytes(bytes, 0, bytes.length);
 	}
 	
+	/**
+	 * This method writes the remaining objects of the given {@link Iterator} to the underlying output
+	 * using an {@link ObjectOutputStream} or the codec chosen with {@link #withCodec(SerializationCodec)}. 
+	 * In contrast to {@link #writeObjects(Object...)} the number of objects 
+	 * does not have to be known in advance and the stream is reset after each object, so that no references to 
+	 * the written objects are kept. The output can be read with {@link com.github.powerlibraries.io.builder.InBuilder#streamObjects()}.
+	 * @param objects the objects to serialize
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 */
+	public void writeObjects(Iterator<?> objects) throws IOException {
+		write(this::createObjectOutput, out -> ObjectSequences.write(out, objects));
+	}
+	
+	/**
+	 * This method writes the objects of the given {@link Stream} to the underlying output
+	 * using an {@link ObjectOutputStream}, see {@link #writeObjects(Iterator)}.
+	 * @param objects the objects to serialize
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 */
+	public void writeObjects(Stream<?> objects) throws IOException {
+		writeObjects(objects.iterator());
+	}
+	
 	/**
 	 * This method writes the given objects to the underlying output
-	 * using an {@link ObjectOutputStream}. It does this by simply calling
-	 * {@link ObjectOutputStream#writeObject(Object)} with each given object.
+	 * using an {@link ObjectOutputStream} or the codec chosen with {@link #withCodec(SerializationCodec)}. 
+	 * It does this by simply calling {@link ObjectOutput#writeObject(Object)} with each given object.
 	 * @param objects the objects to serialize
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 */
 	public void writeObjects(Object... objects) throws IOException {
-		try(ObjectOutputStream out=this.asObjects()) {
+		write(this::createObjectOutput, out -> {
 			out.writeInt(objects.length);
 			for(Object o:objects) {
 				try {
@@ -274,6 +350,79 @@ public class OutBuilder extends BaseOutBuilder<OutBuilder> {
 					throw new IOException("Error while trying to serialize object "+Objects.toString(o), e);
 				}
 			}
+		});
+	}
+	
+	private BufferedWriter createBufferedWriter(OutputStream out) throws IOException {
+		return new BufferedWriter(createWriter(out), getBufferSize());
+	}
+	
+	/**
+	 * This method creates an output on a new stream of this builder, runs the given operation with it and closes 
+	 * it. If creating the output, the operation or closing fails before the stream of the target is closed, an 
+	 * {@link Abortable} stream opened by the target, e.g. an {@link AtomicFileOutputStream} or a tee of such streams,
+	 * is aborted, so that its file is not replaced by partial content.
+	 * @param output creates the output on the stream
+	 * @param operation the operation that writes to the output
+	 * @param <T> the type of the output
+	 * @param <E> the type of other exceptions thrown by the operation
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 * @throws E if the operation throws it
+	 */
+	private <T extends AutoCloseable, E extends Exception> void write(OutputFactory<T> output, OutputOperation<T, E> operation) throws IOException, E {
+		OutputStream[] opened=new OutputStream[1];
+		OutputStream stream=createOutputStream(s -> opened[0]=s);
+		T out;
+		try {
+			out=output.create(stream);
+		} catch(Throwable e) {
+			abort(opened[0], e);
+			close(stream, e);
+			throw e;
+		}
+		try {
+			operation.accept(out);
+		} catch(Throwable e) {
+			abort(opened[0], e);
+			close(out, e);
+			throw e;
+		}
+		try {
+			out.close();
+		} catch(IOException | RuntimeException | Error e) {
+			abort(opened[0], e);
+			throw e;
+		} catch(Exception e) {
+			abort(opened[0], e);
+			throw new IOException(e);
+		}
+	}
+	
+	private static void abort(OutputStream opened, Throwable cause) {
+		if(opened instanceof Abortable) {
+			try {
+				((Abortable)opened).abort();
+			} catch(IOException | RuntimeException e) {
+				cause.addSuppressed(e);
+			}
 		}
 	}
+	
+	private static void close(AutoCloseable out, Throwable cause) {
+		try {
+			out.close();
+		} catch(Exception e) {
+			cause.addSuppressed(e);
+		}
+	}
+	
+	@FunctionalInterface
+	private interface OutputFactory<T> {
+		T create(OutputStream out) throws IOException;
+	}
+	
+	@FunctionalInterface
+	private interface OutputOperation<T, E extends Exception> {
+		void accept(T out) throws IOException, E;
+	}
 }
@@ -1,15 +1,16 @@
 package com.github.powerlibraries.io.builder;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.Iterator;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -21,12 +22,15 @@ import org.w3c.dom.Document;
 
 import com.github.powerlibraries.io.IOConfig;
 import com.github.powerlibraries.io.builder.targets.StringTarget;
+import com.github.powerlibraries.io.helper.BufferPool;
+import com.github.powerlibraries.io.helper.ObjectSequences;
 import com.github.powerlibraries.io.helper.stringout.SBDataOutputStream;
 import com.github.powerlibraries.io.helper.stringout.SBObjectOutputStream;
 import com.github.powerlibraries.io.helper.stringout.SBOutputStream;
 import com.github.powerlibraries.io.helper.stringout.SBPrintWriter;
 import com.github.powerlibraries.io.helper.stringout.SBWriter;
 import com.github.powerlibraries.io.helper.stringout.SBZipOutputStream;
+import com.github.powerlibraries.io.serialization.SerializationCodec;
 
 /**
  * This builder is used to create an output chain. In contrast to the normal {@link OutBuilder} this class
@@ -53,7 +57,7 @@ public class StringOutBuilder extends BaseOutBuilder<StringOutBuilder> {
 	
 	@Override
 	public SBWriter asWriter() throws IOException {
-		return new SBWriter(new OutputStreamWriter(createOutputStream(), getCharset()), target.getLastStream());
+		return new SBWriter(createWriter(), target.getLastStream());
 	}
 	
 	@Override
@@ -63,17 +67,17 @@ public class StringOutBuilder extends BaseOutBuilder<StringOutBuilder> {
 	
 	@Override
 	public SBObjectOutputStream asObjects() throws IOException {
-		return new SBObjectOutputStream(new BufferedOutputStream(createOutputStream()), target.getLastStream());
+		return new SBObjectOutputStream(buffer(createOutputStream()), target.getLastStream());
 	}
 	
 	@Override
 	public SBDataOutputStream asData() throws IOException {
-		return new SBDataOutputStream(new BufferedOutputStream(createOutputStream()), target.getLastStream());
+		return new SBDataOutputStream(buffer(createOutputStream()), target.getLastStream());
 	}
 	
 	@Override
 	public SBZipOutputStream asZip() throws IOException {
-		return new SBZipOutputStream(new BufferedOutputStream(createOutputStream()), target.getLastStream());
+		return new SBZipOutputStream(buffer(createOutputStream()), target.getLastStream());
 	}
 	
 	
@@ -201,10 +205,15 @@ public class StringOutBuilder extends BaseOutBuilder<StringOutBuilder> {
 	public String copyFrom(InputStream in) throws IOException {
 		try(SBOutputStream out=this.asStream();
 				InputStream input=in;) {
-			byte[] buffer = new byte[8192];
-			int len = 0;
-			while ((len=input.read(buffer)) != -1)
-				out.write(buffer, 0, len);
+			BufferPool pool=IOConfig.getBufferPool();
+			byte[] buffer=pool.takeBytes(getBufferSize());
+			try {
+				int len = 0;
+				while ((len=input.read(buffer)) != -1)
+					out.write(buffer, 0, len);
+			} finally {
+				pool.returnBytes(buffer);
+			}
 			return out.getResult();
 		}
 	}
@@ -218,38 +227,71 @@ public class StringOutBuilder extends BaseOutBuilder<StringOutBuilder> {
 	public String copyFrom(Reader in) throws IOException {
 		try(SBWriter out=this.asWriter();
 				Reader input=in;) {
-			char[] buffer = new char[4096];
-			int len = 0;
-			while ((len=input.read(buffer)) != -1)
-				out.write(buffer, 0, len);
+			BufferPool pool=IOConfig.getBufferPool();
+			char[] buffer=pool.takeChars(getBufferSize());
+			try {
+				int len = 0;
+				while ((len=input.read(buffer)) != -1)
+					out.write(buffer, 0, len);
+			} finally {
+				pool.returnChars(buffer);
+			}
 			return out.getResult();
 		}
 	}
 	
 	/**
 	 * This method simply writes the given object to the underlying output
-	 * using an {@link ObjectOutputStream}.
+	 * using an {@link ObjectOutputStream} or the codec chosen with {@link #withCodec(SerializationCodec)}.
 	 * @param object the object to serialize
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 * @return the resulting string
 	 */
 	public String writeObject(Object object) throws IOException {
-		try(SBObjectOutputStream out=this.asObjects()) {
+		try(ObjectOutput out=createObjectOutput()) {
 			out.writeObject(object);
-			return out.getResult();
 		}
+		return target.getLastStream().getResult();
+	}
+	
+	/**
+	 * This method writes the remaining objects of the given {@link Iterator} to the underlying output
+	 * using an {@link ObjectOutputStream} or the codec chosen with {@link #withCodec(SerializationCodec)}. 
+	 * In contrast to {@link #writeObjects(Object...)} the number of objects 
+	 * does not have to be known in advance and the stream is reset after each object, so that no references to 
+	 * the written objects are kept. The output can be read with {@link com.github.powerlibraries.io.builder.InBuilder#streamObjects()}.
+	 * @param objects the objects to serialize
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 * @return the resulting string
+	 */
+	public String writeObjects(Iterator<?> objects) throws IOException {
+		try(ObjectOutput out=createObjectOutput()) {
+			ObjectSequences.write(out, objects);
+		}
+		return target.getLastStream().getResult();
+	}
+	
+	/**
+	 * This method writes the objects of the given {@link Stream} to the underlying output
+	 * using an {@link ObjectOutputStream}, see {@link #writeObjects(Iterator)}.
+	 * @param objects the objects to serialize
+	 * @throws IOException if any element of the chain throws an {@link IOException}
+	 * @return the resulting string
+	 */
+	public String writeObjects(Stream<?> objects) throws IOException {
+		return writeObjects(objects.iterator());
 	}
 	
 	/**
 	 * This method writes the given objects to the underlying output
-	 * using an {@link ObjectOutputStream}. It does this by simply calling
-	 * {@link ObjectOutputStream#writeObject(Object)} with each given object.
+	 * using an {@link ObjectOutputStream} or the codec chosen with {@link #withCodec(SerializationCodec)}. 
+	 * It does this by simply calling {@link ObjectOutput#writeObject(Object)} with each given object.
 	 * @param objects the objects to serialize
 	 * @throws IOException if any element of the chain throws an {@link IOException}
 	 * @return the resulting string
 	 */
 	public String writeObjects(Object... objects) throws IOException {
-		try(SBObjectOutputStream out=this.asObjects()) {
+		try(ObjectOutput out=createObjectOutput()) {
 			out.writeInt(objects.length);
 			for(Object o:objects) {
 				try {
@@ -258,13 +300,24 @@ public class StringOutBuilder extends BaseOutBuilder<StringOutBuilder> {
 					throw new IOException("Error while trying to serialize object "+Objects.toString(o), e);
 				}
 			}
-			return out.getResult();
 		}
+		return target.getLastStream().getResult();
+	}
+	
+	/**
+	 * If no stage of this builder works on bytes and no {@link com.github.powerlibraries.io.metrics.IOListener} is 
+	 * set, the characters are appended directly to the resulting string instead of being encoded and decoded again.
+	 */
+	@Override
+	protected Writer createWriter() throws IOException {
+		if(hasTransformations() || IOConfig.getListener()!=null)
+			return super.createWriter();
+		return wrapWriter(target.openWriter());
 	}
 	
 	@Override
 	protected void setCharset(Charset charset) {
 		super.setCharset(charset);
-		target.getLastStream().setCharset(charset);
+		target.setCharset(charset);
 	}
 }
@@ -28,5 +28,10 @@ public class ByteArraySource implements Source {
 	public InputStream openStream() throws IOException {
 		return new ByteArrayInputStream(bytes, offset, length);
 	}
+	
+	@Override
+	public long getLength() {
+		return length;
+	}
 
 }
@@ -22,6 +22,13 @@ public class FileSource implements Source {
 		return new FileInputStream(file);
 	}
 	
+	/**
+	 * @return the file this source reads from
+	 */
+	public File getFile() {
+		return file;
+	}
+	
 	@Override
 	public boolean hasName() {
 		return true;
@@ -34,4 +41,9 @@ public class FileSource implements Source {
 	public String getName() {
 		return file.getName();
 	}
+	
+	@Override
+	public long getLength() {
+		return file.length();
+	}
 }
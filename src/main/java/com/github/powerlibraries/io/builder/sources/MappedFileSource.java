@@ -0,0 +1,92 @@
+package com.github.powerlibraries.io.builder.sources;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.github.powerlibraries.io.helper.ByteBuffersInputStream;
+
+/**
+ * This class represents a source that is a file which is mapped into memory instead of being read
+ * through a {@link java.io.FileInputStream}. Files that are larger than a single mapping can address
+ * are transparently mapped as multiple consecutive regions.
+ */
+public class MappedFileSource implements Source {
+
+	/**
+	 * The default size of a single mapped region.
+	 */
+	public static final int DEFAULT_REGION_SIZE=1<<30;
+
+	private Path path;
+	private int regionSize;
+
+	public MappedFileSource(Path path) {
+		this(path, DEFAULT_REGION_SIZE);
+	}
+
+	public MappedFileSource(Path path, int regionSize) {
+		if(regionSize<=0)
+			throw new IllegalArgumentException("regionSize must be positive");
+		this.path=path;
+		this.regionSize=regionSize;
+	}
+
+	/**
+	 * This method maps the complete file read-only into memory. Each call creates a new mapping, the
+	 * returned buffers are independent of each other.
+	 * @return the consecutive regions of the file
+	 * @throws IOException if the file can not be opened or mapped
+	 */
+	public ByteBuffer[] map() throws IOException {
+		try(FileChannel channel=FileChannel.open(path, StandardOpenOption.READ)) {
+			long size=channel.size();
+			int regions=(int)Math.max(1, (size+regionSize-1)/regionSize);
+			ByteBuffer[] buffers=new ByteBuffer[regions];
+			for(int i=0;i<regions;i++) {
+				long position=(long)i*regionSize;
+				buffers[i]=channel.map(MapMode.READ_ONLY, position, Math.min(regionSize, size-position));
+			}
+			return buffers;
+		}
+	}
+
+	@Override
+	public InputStream openStream() throws IOException {
+		return new ByteBuffersInputStream(map());
+	}
+
+	/**
+	 * @return the path of the mapped file
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	@Override
+	public boolean hasName() {
+		return true;
+	}
+
+	/**
+	 * @return the file name
+	 */
+	@Override
+	public String getName() {
+		return path.getFileName().toString();
+	}
+
+	@Override
+	public long getLength() {
+		try {
+			return Files.size(path);
+		} catch(IOException e) {
+			return -1;
+		}
+	}
+}
@@ -31,4 +31,12 @@ public interface Source {
 	public default String getName() {
 		throw new UnsupportedOperationException();
 	}
+
+	/**
+	 * @return the number of bytes of the stream opened by this source or -1 if the length is not known in advance.
+	 * This method returns -1 by default.
+	 */
+	public default long getLength() {
+		return -1;
+	}
 }
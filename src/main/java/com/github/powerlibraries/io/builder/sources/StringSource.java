@@ -24,4 +24,18 @@ public class StringSource implements Source {
 		return new ByteArrayInputStream(string.getBytes(charset));
 	}
 
+	/**
+	 * @return the string this source reads from
+	 */
+	public String getString() {
+		return string;
+	}
+
+	/**
+	 * @return the charset used to transform the string into bytes
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+
 }
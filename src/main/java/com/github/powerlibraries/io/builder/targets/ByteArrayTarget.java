@@ -4,22 +4,58 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import com.github.powerlibraries.io.helper.BufferPool;
+import com.github.powerlibraries.io.helper.byteout.ChunkedByteArrayOutputStream;
+
 /**
- * This class represents a ByteArrayOutputStream as the final element in the chain.
+ * This class represents a ByteArrayOutputStream as the final element in the chain. The created streams are
+ * {@link ChunkedByteArrayOutputStream}s that grow without copying the already written bytes.
  * @author Manuel Hegner
  */
 public class ByteArrayTarget implements Target {
 
-	private ByteArrayOutputStream lastStream;
+	private ChunkedByteArrayOutputStream lastStream;
+	private int maxChunkSize=ChunkedByteArrayOutputStream.DEFAULT_MAX_CHUNK_SIZE;
+	private boolean direct=false;
 
 	public ByteArrayOutputStream getLastStream() {
 		return lastStream;
 	}
 
+	/**
+	 * @return the last created stream with its chunked type or null if no stream was created yet
+	 */
+	public ChunkedByteArrayOutputStream getLastChunkedStream() {
+		return lastStream;
+	}
+
 	@Override
 	public OutputStream openStream() throws IOException {
-		this.lastStream=new ByteArrayOutputStream();
+		this.lastStream=new ChunkedByteArrayOutputStream(maxChunkSize, direct);
 		return lastStream;
 	}
 
+	/**
+	 * @return a small size, because the written bytes are only copied in memory
+	 */
+	@Override
+	public int getPreferredBufferSize() {
+		return BufferPool.MIN_SIZE;
+	}
+
+	/**
+	 * @param maxChunkSize the maximum size of a single chunk of the created streams
+	 */
+	public void setMaxChunkSize(int maxChunkSize) {
+		if(maxChunkSize<=0)
+			throw new IllegalArgumentException("maxChunkSize must be positive");
+		this.maxChunkSize=maxChunkSize;
+	}
+
+	/**
+	 * @param direct if the created streams should allocate their chunks as direct {@link java.nio.ByteBuffer}s
+	 */
+	public void setDirect(boolean direct) {
+		this.direct=direct;
+	}
 }
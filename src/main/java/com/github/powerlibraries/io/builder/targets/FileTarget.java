@@ -4,23 +4,64 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.github.powerlibraries.io.helper.AtomicFileOutputStream;
+import com.github.powerlibraries.io.helper.FileChannelOutputStream;
+import com.github.powerlibraries.io.helper.FileChannels;
+import com.github.powerlibraries.io.helper.GroupCommit;
 
 /**
- * This class represents a file as the target of the output chain. 
+ * This class represents a file as the target of the output chain. By default the file is truncated and written
+ * in place. An atomic target writes to a temporary file instead and replaces the file when the stream is closed,
+ * see {@link AtomicFileOutputStream}. A target can also append to the file or write at a position without 
+ * truncating it, in that case the stream writes to a {@link FileChannel}.
  * @author Manuel Hegner
  *
  */
 public class FileTarget implements Target {
 
-	private File file;
+	private Path path;
+	private boolean atomic=false;
+	private boolean force=false;
+	private GroupCommit groupCommit;
+	private boolean append=false;
+	private long position=-1;
+	private long preallocatedSize=0;
 
 	public FileTarget(File file) {
-		this.file=file;
+		this(file.toPath());
+	}
+
+	public FileTarget(Path path) {
+		this.path=path;
 	}
 	
 	@Override
 	public OutputStream openStream() throws IOException {
-		return new FileOutputStream(file);
+		if(atomic)
+			return AtomicFileOutputStream.open(path, force, groupCommit);
+		if(append)
+			return new FileChannelOutputStream(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+		if(position>=0 || preallocatedSize>0) {
+			FileChannel channel=FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			try {
+				if(preallocatedSize>0)
+					FileChannels.preallocate(channel, preallocatedSize);
+				channel.position(Math.max(0, position));
+			} catch(IOException | RuntimeException e) {
+				try {
+					channel.close();
+				} catch(IOException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+				throw e;
+			}
+			return new FileChannelOutputStream(channel);
+		}
+		return new FileOutputStream(path.toFile());
 	}
 	
 	@Override
@@ -30,6 +71,89 @@ public class FileTarget implements Target {
 
 	@Override
 	public String getName() {
-		return file.getName();
+		return path.getFileName().toString();
+	}
+
+	/**
+	 * @return the file of this target
+	 */
+	public File getFile() {
+		return path.toFile();
+	}
+
+	/**
+	 * @return the path of the file of this target
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * @param atomic if the file should be replaced atomically when the stream is closed
+	 * @throws IllegalStateException if the file is already appended, written at a position or preallocated
+	 */
+	public void setAtomic(boolean atomic) {
+		if(atomic && (append || position>=0 || preallocatedSize>0))
+			throw new IllegalStateException("An atomic file can not be appended, written at a position or preallocated");
+		this.atomic=atomic;
+	}
+
+	/**
+	 * @param force if an atomically replaced file should be forced to the storage device before it replaces the file
+	 */
+	public void setForce(boolean force) {
+		this.force=force;
+	}
+
+	/**
+	 * @param groupCommit the group commit that replaces the file or null if every stream replaces its file itself
+	 */
+	public void setGroupCommit(GroupCommit groupCommit) {
+		this.groupCommit=groupCommit;
+	}
+
+	/**
+	 * @param append if the written bytes should be appended to the end of the file
+	 * @throws IllegalStateException if the file is already atomic, written at a position or preallocated
+	 */
+	public void setAppend(boolean append) {
+		if(append && (atomic || position>=0 || preallocatedSize>0))
+			throw new IllegalStateException(atomic
+					? "An atomic file can not be appended, written at a position or preallocated"
+					: "An appended file can not be written at a position or preallocated");
+		this.append=append;
+	}
+
+	/**
+	 * @param position the position in the file at which writing starts without truncating the file or -1 to 
+	 * truncate the file
+	 * @throws IllegalStateException if the file is atomic or appended
+	 */
+	public void setPosition(long position) {
+		if(position<-1)
+			throw new IllegalArgumentException("position can not be negative");
+		if(position>=0)
+			checkNotAtomicOrAppended();
+		this.position=position;
+	}
+
+	/**
+	 * @param preallocatedSize the number of bytes that are allocated for the file before writing starts or 0
+	 * @throws IllegalStateException if the file is atomic or appended
+	 * @see FileChannels#preallocate(FileChannel, long)
+	 */
+	public void setPreallocatedSize(long preallocatedSize) {
+		if(preallocatedSize<0)
+			throw new IllegalArgumentException("preallocatedSize can not be negative");
+		if(preallocatedSize>0)
+			checkNotAtomicOrAppended();
+		this.preallocatedSize=preallocatedSize;
+	}
+
+	private void checkNotAtomicOrAppended() {
+		if(atomic)
+			throw new IllegalStateException("An atomic file can not be appended, written at a position or preallocated");
+		if(append)
+			throw new IllegalStateException("An appended file can not be written at a position or preallocated");
 	}
 }
@@ -2,8 +2,10 @@ package com.github.powerlibraries.io.builder.targets;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Writer;
 import java.nio.charset.Charset;
 
+import com.github.powerlibraries.io.helper.BufferPool;
 import com.github.powerlibraries.io.helper.stringout.StringBuilderOutputStream;
 
 /**
@@ -25,9 +27,36 @@ public class StringTarget implements Target {
 		lastStream = new StringBuilderOutputStream(charset);
 		return lastStream;
 	}
+	
+	/**
+	 * This method opens a new {@link StringBuilderOutputStream} that collects characters instead of bytes and
+	 * returns a {@link Writer} that appends to it. 
+	 * @return a {@link Writer} that writes to the string without encoding the characters
+	 */
+	public Writer openWriter() {
+		lastStream = new StringBuilderOutputStream(charset);
+		return lastStream.asCharWriter();
+	}
 
 	public StringBuilderOutputStream getLastStream() {
 		return lastStream;
 	}
 
+	/**
+	 * @return a small size, because the written data is only copied in memory
+	 */
+	@Override
+	public int getPreferredBufferSize() {
+		return BufferPool.MIN_SIZE;
+	}
+	
+	/**
+	 * Sets the charset that is used to decode the bytes written to this target. 
+	 * @param charset the {@link Charset}
+	 */
+	public void setCharset(Charset charset) {
+		this.charset=charset;
+		if(lastStream!=null)
+			lastStream.setCharset(charset);
+	}
 }
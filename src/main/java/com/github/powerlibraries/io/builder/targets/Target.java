@@ -31,4 +31,12 @@ public interface Target {
 	public default String getName() {
 		throw new UnsupportedOperationException();
 	}
+
+	/**
+	 * @return the length of the buffers that work best in front of this target or -1 if there is no preference.
+	 * This method returns -1 by default.
+	 */
+	public default int getPreferredBufferSize() {
+		return -1;
+	}
 }
@@ -0,0 +1,79 @@
+package com.github.powerlibraries.io.builder.targets;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+import com.github.powerlibraries.io.IOConfig;
+import com.github.powerlibraries.io.helper.Abortable;
+import com.github.powerlibraries.io.helper.ConcurrentTeeOutputStream;
+import com.github.powerlibraries.io.helper.TeeOutputStream;
+
+/**
+ * This class represents several targets that all receive the same bytes. Each target keeps its own output chain,
+ * e.g. a target created with {@link com.github.powerlibraries.io.builder.BaseOutBuilder#asTarget()} compresses 
+ * only its own branch.
+ * <p>
+ * By default the targets are written one after another by the writing thread. If a queue capacity is given every
+ * target is written by its own task on the {@link IOConfig#getAsyncExecutor()} and is fed through a bounded queue of
+ * chunks, see {@link ConcurrentTeeOutputStream}. The writing thread only blocks when the queue of the slowest target
+ * is full.
+ */
+public class TeeTarget implements Target {
+
+	private final Target[] targets;
+	private final int queueCapacity;
+
+	/**
+	 * Creates a target that writes to the given targets one after another.
+	 * @param targets the targets to write to
+	 */
+	public TeeTarget(Target... targets) {
+		this(0, targets);
+	}
+
+	/**
+	 * @param queueCapacity the number of chunks that can be queued for each target or 0 to write the targets one 
+	 * after another by the writing thread
+	 * @param targets the targets to write to
+	 */
+	public TeeTarget(int queueCapacity, Target... targets) {
+		if(queueCapacity<0)
+			throw new IllegalArgumentException("queueCapacity can not be negative");
+		this.queueCapacity=queueCapacity;
+		this.targets=targets.clone();
+		for(Target t:this.targets)
+			Objects.requireNonNull(t, "The given target was null");
+	}
+
+	/**
+	 * This method opens the streams of all targets. If one of them can not be opened the already opened streams
+	 * are closed again, {@link Abortable} streams are aborted, so that e.g. an atomic file is not replaced.
+	 */
+	@Override
+	public OutputStream openStream() throws IOException {
+		OutputStream[] streams=new OutputStream[targets.length];
+		try {
+			for(int i=0;i<targets.length;i++)
+				streams[i]=targets[i].openStream();
+			if(queueCapacity==0)
+				return new TeeOutputStream(streams);
+			return new ConcurrentTeeOutputStream(IOConfig.getAsyncExecutor(), queueCapacity, streams);
+		} catch(IOException | RuntimeException e) {
+			//closing or aborting a stream again, e.g. after the concurrent tee aborted it, does nothing
+			for(OutputStream s:streams) {
+				if(s==null)
+					break;
+				try {
+					if(s instanceof Abortable)
+						((Abortable)s).abort();
+					else
+						s.close();
+				} catch(IOException | RuntimeException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.github.powerlibraries.io.functions;
+
+import java.io.IOException;
+
+/**
+ * This class is a simple functional interface for an operation that returns a result and may throw an 
+ * {@link IOException}. It is used to run the terminal operations of the builders asynchronously.
+ * @param <T> the type of the result
+ */
+@FunctionalInterface
+public interface IOSupplier<T> {
+	/**
+	 * This method runs the operation and returns its result.
+	 * @return the result of the operation
+	 * @throws IOException if the operation throws an {@link IOException}
+	 */
+	public T get() throws IOException;
+}
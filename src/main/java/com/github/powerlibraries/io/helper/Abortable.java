@@ -0,0 +1,16 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.IOException;
+
+/**
+ * This interface is implemented by streams that commit their content when they are closed, like 
+ * {@link AtomicFileOutputStream}. The builders abort such a stream instead of closing it if writing failed.
+ */
+public interface Abortable {
+
+	/**
+	 * This method closes the stream without committing the written content.
+	 * @throws IOException if closing the stream throws an {@link IOException}
+	 */
+	public void abort() throws IOException;
+}
@@ -0,0 +1,52 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * This class is the end of an output chain whose target stream is {@link Abortable}, e.g. a branch of a tee. It 
+ * passes writes on to the chain and an abort on to the target stream, so that the abort is not hidden by the
+ * stages in front of the target.
+ */
+public class AbortableOutputStream extends FilterOutputStream implements Abortable {
+
+	private final Abortable target;
+
+	/**
+	 * @param out the output chain
+	 * @param target the stream at the end of the chain
+	 */
+	public AbortableOutputStream(OutputStream out, Abortable target) {
+		super(out);
+		this.target=target;
+	}
+
+	/**
+	 * @return the output chain
+	 */
+	public OutputStream getWrappedStream() {
+		return out;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+	}
+
+	/**
+	 * This method aborts the target and then closes the rest of the chain to release it.
+	 */
+	@Override
+	public void abort() throws IOException {
+		try {
+			target.abort();
+		} finally {
+			try {
+				out.close();
+			} catch(IOException | RuntimeException e) {
+				//the target is already closed, so the stages in front of it can fail to write their last bytes
+			}
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import com.github.powerlibraries.io.IOConfig;
+import com.github.powerlibraries.io.functions.IOSupplier;
+
+/**
+ * This class contains static helper methods to run blocking IO operations as {@link CompletableFuture}s.
+ */
+public final class AsyncTasks {
+
+	/**
+	 * There is no reason to create an instance.
+	 */
+	private AsyncTasks() {}
+
+	/**
+	 * This method runs the given operation on the executor returned by {@link IOConfig#getAsyncExecutor()}.
+	 * @param operation the operation to run
+	 * @param <T> the type of the result
+	 * @return a future that is completed with the result of the operation or exceptionally with the
+	 * {@link java.io.IOException} or {@link RuntimeException} it threw
+	 */
+	public static <T> CompletableFuture<T> supply(IOSupplier<T> operation) {
+		return supply(operation, IOConfig.getAsyncExecutor());
+	}
+
+	/**
+	 * This method runs the given operation on the given executor.
+	 * @param operation the operation to run
+	 * @param executor the executor that runs the operation
+	 * @param <T> the type of the result
+	 * @return a future that is completed with the result of the operation or exceptionally with the
+	 * {@link java.io.IOException} or {@link RuntimeException} it threw
+	 */
+	public static <T> CompletableFuture<T> supply(IOSupplier<T> operation, Executor executor) {
+		CompletableFuture<T> future=new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				try {
+					future.complete(operation.get());
+				} catch(Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch(RuntimeException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * This method reads the first bytes of the given file with an {@link AsynchronousFileChannel}, so no thread 
+	 * is blocked while the bytes are read. If the file is shorter than the given length the future is completed
+	 * with an {@link EOFException}. Like every other error a negative length completes the future exceptionally.
+	 * @param path the file to read
+	 * @param length the number of bytes to read
+	 * @return a future that is completed with the read bytes
+	 */
+	public static CompletableFuture<byte[]> readFile(Path path, int length) {
+		CompletableFuture<byte[]> future=new CompletableFuture<>();
+		byte[] bytes;
+		AsynchronousFileChannel channel;
+		try {
+			//like in readBytes a negative length fails, but before the file is opened
+			bytes=new byte[length];
+			channel=AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+		} catch(IOException | RuntimeException e) {
+			future.completeExceptionally(e);
+			return future;
+		}
+		ByteBuffer target=ByteBuffer.wrap(bytes);
+		CompletionHandler<Integer, ByteBuffer> handler=new CompletionHandler<Integer, ByteBuffer>() {
+			@Override
+			public void completed(Integer read, ByteBuffer buffer) {
+				if(buffer.hasRemaining()) {
+					if(read<0) {
+						failed(new EOFException("The file ended after "+buffer.position()+" of "+length+" bytes"), buffer);
+						return;
+					}
+					try {
+						channel.read(buffer, buffer.position(), buffer, this);
+						return;
+					} catch(RuntimeException e) {
+						failed(e, buffer);
+						return;
+					}
+				}
+				try {
+					channel.close();
+					future.complete(bytes);
+				} catch(IOException e) {
+					future.completeExceptionally(e);
+				}
+			}
+
+			@Override
+			public void failed(Throwable e, ByteBuffer buffer) {
+				try {
+					channel.close();
+				} catch(IOException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+				future.completeExceptionally(e);
+			}
+		};
+		try {
+			channel.read(target, 0, target, handler);
+		} catch(RuntimeException e) {
+			handler.failed(e, target);
+		}
+		return future;
+	}
+}
@@ -0,0 +1,168 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class is a {@link FileOutputStream} that replaces a file atomically. It writes to a temporary file next
+ * to the target and moves it over the target with {@link StandardCopyOption#ATOMIC_MOVE} when it is closed, so
+ * that readers see either the old or the complete new content. If a write fails or {@link #abort()} is called 
+ * the temporary file is deleted instead and the target is left unchanged.
+ * <p>
+ * If the stream is durable the content is forced to the storage device before the move and the directory is 
+ * forced after it. With a {@link GroupCommit} the move and the directory are done by the group commit together 
+ * with the files of other streams.
+ */
+public class AtomicFileOutputStream extends FileOutputStream implements Abortable {
+
+	private final Path temp;
+	private final Path target;
+	private final boolean force;
+	private final GroupCommit groupCommit;
+	private boolean failed;
+	private boolean closed;
+
+	private AtomicFileOutputStream(Path temp, Path target, boolean force, GroupCommit groupCommit) throws IOException {
+		super(temp.toFile());
+		this.temp=temp;
+		this.target=target;
+		this.force=force;
+		this.groupCommit=groupCommit;
+	}
+
+	/**
+	 * This method creates a stream that replaces the given file when it is closed.
+	 * @param target the file to replace
+	 * @param force if the content should be forced to the storage device before the file is replaced
+	 * @param groupCommit the group commit used to replace the file and force its directory or null to do this when
+	 * the stream is closed
+	 * @return a stream writing to a temporary file
+	 * @throws IOException if the temporary file can not be created
+	 */
+	public static AtomicFileOutputStream open(Path target, boolean force, GroupCommit groupCommit) throws IOException {
+		Path path=target.toAbsolutePath();
+		Path temp=createTempFile(path);
+		try {
+			return new AtomicFileOutputStream(temp, path, force, groupCommit);
+		} catch(IOException | RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates the temporary file in the directory of the target. In contrast to {@link Files#createTempFile} the
+	 * file gets the default permissions, because it will replace the target.
+	 */
+	private static Path createTempFile(Path target) throws IOException {
+		while(true) {
+			String name="."+target.getFileName()+"."+Long.toHexString(ThreadLocalRandom.current().nextLong())+".tmp";
+			try {
+				return Files.createFile(target.resolveSibling(name));
+			} catch(FileAlreadyExistsException e) {
+				//try another name
+			}
+		}
+	}
+
+	/**
+	 * @return the file that is replaced when this stream is closed
+	 */
+	public Path getTarget() {
+		return target;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		try {
+			super.write(b);
+		} catch(IOException | RuntimeException e) {
+			failed=true;
+			throw e;
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		try {
+			super.write(b, off, len);
+		} catch(IOException | RuntimeException e) {
+			failed=true;
+			throw e;
+		}
+	}
+
+	/**
+	 * This method makes sure that the target is not replaced when this stream is closed. It is used for writes that
+	 * bypass the write methods of this stream, like transfers to its channel.
+	 */
+	void markFailed() {
+		failed=true;
+	}
+
+	/**
+	 * This method closes this stream without replacing the target and deletes the temporary file.
+	 * @throws IOException if closing or deleting the temporary file throws an {@link IOException}
+	 */
+	@Override
+	public void abort() throws IOException {
+		failed=true;
+		close();
+	}
+
+	/**
+	 * This method closes this stream and replaces the target with the written content. If this fails, the 
+	 * temporary file is deleted.
+	 */
+	@Override
+	public void close() throws IOException {
+		//the channel calls this method again when it is closed by super.close()
+		if(closed)
+			return;
+		closed=true;
+		try {
+			try {
+				if(!failed && force)
+					getChannel().force(true);
+			} finally {
+				super.close();
+			}
+			if(failed)
+				Files.deleteIfExists(temp);
+			else if(groupCommit!=null)
+				groupCommit.commit(temp, target, force);
+			else {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				if(force)
+					forceDirectory(target.getParent());
+			}
+		} catch(IOException | RuntimeException e) {
+			try {
+				Files.deleteIfExists(temp);
+			} catch(IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * This method forces the entries of the given directory to the storage device, so that a renamed file 
+	 * survives a crash. This is not possible on every platform, in that case nothing happens.
+	 * @param directory the directory to force
+	 */
+	static void forceDirectory(Path directory) {
+		try(FileChannel channel=FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch(IOException e) {
+			//directories can not be opened or forced on some platforms
+		}
+	}
+}
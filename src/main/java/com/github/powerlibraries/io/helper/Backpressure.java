@@ -0,0 +1,23 @@
+package com.github.powerlibraries.io.helper;
+
+/**
+ * This enum describes what a {@link WriteBehindOutputStream} does with a filled buffer if the queue of its writer
+ * is full.
+ */
+public enum Backpressure {
+	/**
+	 * The writing thread waits until the writer has written a buffer.
+	 */
+	BLOCK,
+	/**
+	 * The buffer is discarded and the write throws an {@link java.io.IOException}. The stream fails like after an
+	 * error of the wrapped stream, so the output is not finished, e.g. an atomic file is not committed.
+	 */
+	FAIL,
+	/**
+	 * The buffer is discarded silently, see {@link WriteBehindOutputStream#getDroppedBytes()}. The output misses 
+	 * the discarded bytes in the middle and is still finished when the stream is closed, e.g. an atomic file is 
+	 * committed with the missing bytes. Only use this for outputs that can lose data, like diagnostics.
+	 */
+	DROP
+}
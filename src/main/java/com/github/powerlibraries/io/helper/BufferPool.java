@@ -0,0 +1,202 @@
+package com.github.powerlibraries.io.helper;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a pool for the short-lived byte and char buffers used by the terminal operations of the builders,
+ * e.g. for copying or for buffering streams. Buffers are grouped in size classes of powers of two from
+ * {@link #MIN_SIZE} to {@link #MAX_SIZE}. Requests for larger buffers are not pooled.
+ * <p>
+ * The pool is split into stripes that are chosen by the current thread, so that threads rarely compete for the same
+ * stripe. Each stripe keeps only a few buffers of every size class and the memory retained by the complete pool never
+ * exceeds the limit given to the constructor. Buffers that do not fit into the pool anymore are left to the garbage
+ * collector. A buffer must not be used after it was returned to the pool.
+ */
+public class BufferPool {
+
+	/**
+	 * The length of the smallest pooled buffer.
+	 */
+	public static final int MIN_SIZE=1<<9;
+	/**
+	 * The length of the largest pooled buffer.
+	 */
+	public static final int MAX_SIZE=1<<16;
+	/**
+	 * The length of the buffers used by the builders if nothing else is specified.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE=8192;
+	/**
+	 * The length of the largest buffer chosen by {@link #bufferSizeFor(long)}.
+	 */
+	public static final int MAX_AUTO_BUFFER_SIZE=1<<20;
+	private static final int SIZE_CLASSES=Integer.numberOfTrailingZeros(MAX_SIZE)-Integer.numberOfTrailingZeros(MIN_SIZE)+1;
+	private static final int BUFFERS_PER_CLASS=4;
+
+	private final long maxRetainedBytes;
+	private final AtomicLong retainedBytes=new AtomicLong();
+	private final Stripe[] stripes;
+
+	/**
+	 * Creates a new pool with one stripe for every available processor.
+	 * @param maxRetainedBytes the maximum number of bytes of all buffers kept in this pool, 0 disables pooling
+	 */
+	public BufferPool(long maxRetainedBytes) {
+		if(maxRetainedBytes<0)
+			throw new IllegalArgumentException("maxRetainedBytes can not be negative");
+		this.maxRetainedBytes=maxRetainedBytes;
+		int count=Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()-1))<<1;
+		stripes=new Stripe[count];
+		for(int i=0;i<count;i++)
+			stripes[i]=new Stripe();
+	}
+
+	/**
+	 * This method chooses the length of a buffer for content of the given length. Small content gets a buffer that
+	 * is just large enough, large content gets a buffer of {@link #MAX_AUTO_BUFFER_SIZE}.
+	 * @param contentLength the number of bytes that will be buffered or -1 if this is unknown
+	 * @return the length of the buffer
+	 */
+	public static int bufferSizeFor(long contentLength) {
+		if(contentLength<0)
+			return DEFAULT_BUFFER_SIZE;
+		return (int)Math.max(1, Math.min(contentLength, MAX_AUTO_BUFFER_SIZE));
+	}
+
+	/**
+	 * This method returns a byte buffer from this pool or a new one if there is no pooled buffer of the right size.
+	 * @param minLength the minimum length of the buffer
+	 * @return a buffer that is at least as long as requested
+	 */
+	public byte[] takeBytes(int minLength) {
+		int sizeClass=sizeClass(minLength);
+		if(sizeClass<0)
+			return new byte[minLength];
+		byte[] buffer=(byte[])stripe().take(sizeClass, false);
+		if(buffer==null)
+			return new byte[MIN_SIZE<<sizeClass];
+		retainedBytes.addAndGet(-buffer.length);
+		return buffer;
+	}
+
+	/**
+	 * This method returns the given buffer to this pool. Every buffer with a power of two length between 
+	 * {@link #MIN_SIZE} and {@link #MAX_SIZE} is pooled and handed out again, no matter where it was created, 
+	 * other buffers are ignored. So only return buffers that are no longer referenced anywhere.
+	 * @param buffer a buffer that is not used anymore
+	 */
+	public void returnBytes(byte[] buffer) {
+		int sizeClass=exactSizeClass(buffer.length);
+		if(sizeClass>=0 && reserve(buffer.length) && !stripe().offer(sizeClass, false, buffer))
+			retainedBytes.addAndGet(-buffer.length);
+	}
+
+	/**
+	 * This method returns a char buffer from this pool or a new one if there is no pooled buffer of the right size.
+	 * @param minLength the minimum length of the buffer
+	 * @return a buffer that is at least as long as requested
+	 */
+	public char[] takeChars(int minLength) {
+		int sizeClass=sizeClass(minLength);
+		if(sizeClass<0)
+			return new char[minLength];
+		char[] buffer=(char[])stripe().take(sizeClass, true);
+		if(buffer==null)
+			return new char[MIN_SIZE<<sizeClass];
+		retainedBytes.addAndGet(-2L*buffer.length);
+		return buffer;
+	}
+
+	/**
+	 * This method returns the given buffer to this pool. Every buffer with a power of two length between 
+	 * {@link #MIN_SIZE} and {@link #MAX_SIZE} is pooled and handed out again, no matter where it was created, 
+	 * other buffers are ignored. So only return buffers that are no longer referenced anywhere.
+	 * @param buffer a buffer that is not used anymore
+	 */
+	public void returnChars(char[] buffer) {
+		int sizeClass=exactSizeClass(buffer.length);
+		if(sizeClass>=0 && reserve(2L*buffer.length) && !stripe().offer(sizeClass, true, buffer))
+			retainedBytes.addAndGet(-2L*buffer.length);
+	}
+
+	/**
+	 * @return the number of bytes of all buffers that are currently kept in this pool
+	 */
+	public long getRetainedBytes() {
+		return retainedBytes.get();
+	}
+
+	/**
+	 * @return the maximum number of bytes of all buffers kept in this pool
+	 */
+	public long getMaxRetainedBytes() {
+		return maxRetainedBytes;
+	}
+
+	private boolean reserve(long bytes) {
+		long retained;
+		do {
+			retained=retainedBytes.get();
+			if(retained+bytes>maxRetainedBytes)
+				return false;
+		} while(!retainedBytes.compareAndSet(retained, retained+bytes));
+		return true;
+	}
+
+	private Stripe stripe() {
+		long id=Thread.currentThread().getId();
+		int hash=(int)(id^(id>>>32))*0x9E3779B9;
+		return stripes[(hash>>>16)&(stripes.length-1)];
+	}
+
+	/**
+	 * @param length a requested length
+	 * @return the smallest size class that can hold the given length or -1 if the length is not pooled
+	 */
+	private static int sizeClass(int length) {
+		if(length>MAX_SIZE)
+			return -1;
+		if(length<=MIN_SIZE)
+			return 0;
+		return 32-Integer.numberOfLeadingZeros(length-1)-Integer.numberOfTrailingZeros(MIN_SIZE);
+	}
+
+	/**
+	 * @param length the length of a returned buffer
+	 * @return the size class of buffers of exactly this length or -1 if there is none
+	 */
+	private static int exactSizeClass(int length) {
+		if(length<MIN_SIZE || length>MAX_SIZE || Integer.bitCount(length)!=1)
+			return -1;
+		return Integer.numberOfTrailingZeros(length)-Integer.numberOfTrailingZeros(MIN_SIZE);
+	}
+
+	/**
+	 * A small stack of buffers for every size class.
+	 */
+	private static final class Stripe {
+		private final Object[][] buffers=new Object[2*SIZE_CLASSES][BUFFERS_PER_CLASS];
+		private final int[] sizes=new int[2*SIZE_CLASSES];
+
+		private synchronized Object take(int sizeClass, boolean chars) {
+			int slot=chars?SIZE_CLASSES+sizeClass:sizeClass;
+			int size=sizes[slot];
+			if(size==0)
+				return null;
+			sizes[slot]=--size;
+			Object buffer=buffers[slot][size];
+			buffers[slot][size]=null;
+			return buffer;
+		}
+
+		private synchronized boolean offer(int sizeClass, boolean chars, Object buffer) {
+			int slot=chars?SIZE_CLASSES+sizeClass:sizeClass;
+			int size=sizes[slot];
+			if(size==BUFFERS_PER_CLASS)
+				return false;
+			buffers[slot][size]=buffer;
+			sizes[slot]=size+1;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * This class is an {@link InputStream} that reads the remaining content of a sequence of {@link ByteBuffer}s.
+ * It reads directly from the buffers without any intermediate copy and is mostly used to serve
+ * the content of memory mapped files. The positions of the given buffers are advanced while reading.
+ */
+public class ByteBuffersInputStream extends InputStream {
+
+	private ByteBuffer[] buffers;
+	private int current;
+
+	public ByteBuffersInputStream(ByteBuffer... buffers) {
+		this.buffers=buffers;
+		this.current=0;
+	}
+
+	/**
+	 * @return the current buffer with remaining content or null if all buffers are exhausted
+	 */
+	private ByteBuffer currentBuffer() {
+		while(current<buffers.length) {
+			if(buffers[current].hasRemaining())
+				return buffers[current];
+			current++;
+		}
+		return null;
+	}
+
+	@Override
+	public int read() {
+		ByteBuffer buffer=currentBuffer();
+		if(buffer==null)
+			return -1;
+		return buffer.get()&0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if(off<0 || len<0 || len>b.length-off)
+			throw new IndexOutOfBoundsException();
+		if(len==0)
+			return 0;
+		int read=0;
+		ByteBuffer buffer;
+		while(read<len && (buffer=currentBuffer())!=null) {
+			int n=Math.min(len-read, buffer.remaining());
+			buffer.get(b, off+read, n);
+			read+=n;
+		}
+		return read==0?-1:read;
+	}
+
+	@Override
+	public long skip(long n) {
+		long skipped=0;
+		ByteBuffer buffer;
+		while(skipped<n && (buffer=currentBuffer())!=null) {
+			int s=(int)Math.min(n-skipped, buffer.remaining());
+			buffer.position(buffer.position()+s);
+			skipped+=s;
+		}
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		long available=0;
+		for(int i=current;i<buffers.length && available<Integer.MAX_VALUE;i++)
+			available+=buffers[i].remaining();
+		return (int)Math.min(available, Integer.MAX_VALUE);
+	}
+}
@@ -0,0 +1,130 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * This class is a {@link Reader} that decodes the remaining content of a sequence of {@link ByteBuffer}s
+ * directly into the requested characters. In contrast to an {@link java.io.InputStreamReader} over an
+ * {@link ByteBuffersInputStream} the bytes are never copied into an intermediate byte array. Like the
+ * {@link java.io.InputStreamReader} malformed input is replaced and not reported.
+ */
+public class ByteBuffersReader extends Reader {
+
+	/**
+	 * The number of bytes that is taken from the following buffers to decode a character that is split
+	 * between two buffers.
+	 */
+	private static final int BRIDGE_SIZE=16;
+	private static final ByteBuffer EMPTY=ByteBuffer.allocate(0);
+
+	private ByteBuffer[] buffers;
+	private int current;
+	private ByteBuffer bridge;
+	private CharsetDecoder decoder;
+	private boolean ended;
+	private boolean flushed;
+
+	public ByteBuffersReader(Charset charset, ByteBuffer... buffers) {
+		this.buffers=buffers;
+		this.current=0;
+		this.decoder=charset.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if(off<0 || len<0 || len>cbuf.length-off)
+			throw new IndexOutOfBoundsException();
+		if(buffers==null)
+			throw new IOException("Stream closed");
+		if(len==0)
+			return 0;
+		if(flushed)
+			return -1;
+		CharBuffer out=CharBuffer.wrap(cbuf, off, len);
+		while(out.hasRemaining()) {
+			if(ended) {
+				if(decoder.flush(out).isOverflow())
+					break;
+				flushed=true;
+				break;
+			}
+			ByteBuffer in=nextInput();
+			boolean last=in==null || !hasInputAfter(in);
+			CoderResult result=decoder.decode(in==null?EMPTY:in, out, last);
+			if(result.isOverflow())
+				break;
+			if(result.isError())
+				result.throwException();
+			if(last)
+				ended=true;
+			else if(in.hasRemaining())
+				bridge(in);
+		}
+		int read=out.position()-off;
+		return (read==0 && flushed)?-1:read;
+	}
+
+	/**
+	 * @return the next buffer with remaining bytes or null if there are none
+	 */
+	private ByteBuffer nextInput() {
+		if(bridge!=null) {
+			if(bridge.hasRemaining())
+				return bridge;
+			bridge=null;
+		}
+		while(current<buffers.length) {
+			if(buffers[current].hasRemaining())
+				return buffers[current];
+			current++;
+		}
+		return null;
+	}
+
+	/**
+	 * @param in the buffer that is currently decoded
+	 * @return true if any other buffer after the given one has remaining bytes
+	 */
+	private boolean hasInputAfter(ByteBuffer in) {
+		for(int i=(in==bridge)?current:current+1;i<buffers.length;i++) {
+			if(buffers[i].hasRemaining())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * This method moves the incomplete character at the end of the given buffer together with the
+	 * first bytes of the following buffers into a new bridge buffer that is decoded next.
+	 * @param in the buffer that ends with an incomplete character
+	 */
+	private void bridge(ByteBuffer in) {
+		ByteBuffer merged=ByteBuffer.allocate(in.remaining()+BRIDGE_SIZE);
+		merged.put(in);
+		for(int i=current;i<buffers.length && merged.hasRemaining();i++) {
+			ByteBuffer b=buffers[i];
+			int n=Math.min(b.remaining(), merged.remaining());
+			ByteBuffer slice=b.duplicate();
+			slice.limit(slice.position()+n);
+			merged.put(slice);
+			b.position(b.position()+n);
+		}
+		merged.flip();
+		bridge=merged;
+	}
+
+	@Override
+	public void close() {
+		buffers=null;
+		bridge=null;
+	}
+}
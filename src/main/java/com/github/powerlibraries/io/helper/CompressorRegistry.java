@@ -3,7 +3,8 @@ package com.github.powerlibraries.io.helper;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -13,29 +14,57 @@ import com.github.powerlibraries.io.functions.OutputStreamWrapper;
 /**
  * This class is a central registry which maps common compression extensions to its respective in and ouputstreams.
  * It supports gz and zip extensions and can be easily extended by calling one of the registerWrapper methods.
+ * To compress gz files on multiple cores register a
+ * {@link com.github.powerlibraries.io.helper.compression.ParallelGZIPOutputStream} for the gz extension:
+ * <pre>CompressorRegistry.getInstance().registerWrapper("gz", ParallelGZIPOutputStream.wrapper());</pre>
+ * <p>
+ * A registry is safe for concurrent use. The registered wrappers are kept in immutable snapshots that are replaced
+ * on every registration, so looking up a wrapper never blocks. Besides the global instance returned by
+ * {@link #getInstance()} separate registries can be created and given to single builders, e.g. with
+ * {@link com.github.powerlibraries.io.builder.InBuilder#withCompressorRegistry(CompressorRegistry)}.
  * @author Manuel Hegner
  *
  */
 public class CompressorRegistry {
 
-	private static CompressorRegistry INSTANCE;
-	
-	private HashMap<String, InputStreamWrapper> extensionInputMap;
-	private HashMap<String, OutputStreamWrapper> extensionOutputMap;
-	
-	private CompressorRegistry() {
-		extensionInputMap=new HashMap<>();
-		extensionOutputMap=new HashMap<>();
+	private static class InstanceHolder {
+		private static final CompressorRegistry INSTANCE=new CompressorRegistry();
+	}
+
+	private volatile Entries<InputStreamWrapper> inputEntries;
+	private volatile Entries<OutputStreamWrapper> outputEntries;
+	private volatile int version;
+
+	/**
+	 * Creates a new registry that knows the same extensions as a fresh global instance.
+	 */
+	public CompressorRegistry() {
+		inputEntries=new Entries<>();
+		outputEntries=new Entries<>();
 		registerWrapper("gz", GZIPInputStream::new, GZIPOutputStream::new);
 	}
-	
+
+	private CompressorRegistry(CompressorRegistry original) {
+		inputEntries=original.inputEntries;
+		outputEntries=original.outputEntries;
+		version=original.version;
+	}
+
 	/**
 	 * @return the singleton instance of the registry
 	 */
 	public static CompressorRegistry getInstance() {
-		if(INSTANCE==null)
-			INSTANCE=new CompressorRegistry();
-		return INSTANCE;
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * This method creates a new registry that contains the same wrappers as this registry. Later registrations
+	 * in one of the registries do not change the other one. Like the registrations this method is synchronized, so 
+	 * the copy never contains half of a registration.
+	 * @return a copy of this registry
+	 */
+	public synchronized CompressorRegistry copy() {
+		return new CompressorRegistry(this);
 	}
 
 	/**
@@ -45,15 +74,11 @@ public class CompressorRegistry {
 	 */
 	public boolean canWrapInput(String fileName) {
 		int index;
-		if((index=fileName.lastIndexOf('.'))>=0) {
-			if(extensionInputMap.containsKey(fileName.substring(index+1)))
-				return true;
-			else
-				return false;
-		}
+		if((index=fileName.lastIndexOf('.'))>=0)
+			return inputEntries.find(fileName, index+1, fileName.length())!=null;
 		return false;
 	}
-	
+
 	/**
 	 * @param fileName the name of the file or an url or something else that ends with an file extension
 	 * @return true, if there is any specific {@link OutputStreamWrapper} known to this class that could wrap
@@ -61,17 +86,13 @@ public class CompressorRegistry {
 	 */
 	public boolean canWrapOutput(String fileName) {
 		int index;
-		if((index=fileName.lastIndexOf('.'))>=0) {
-			if(extensionOutputMap.containsKey(fileName.substring(index+1)))
-				return true;
-			else
-				return false;
-		}
+		if((index=fileName.lastIndexOf('.'))>=0)
+			return outputEntries.find(fileName, index+1, fileName.length())!=null;
 		return false;
 	}
-	
+
 	/**
-	 * This method will wrap the provided stream with a decompressing stream if it recognizes the extension of 
+	 * This method will wrap the provided stream with a decompressing stream if it recognizes the extension of
 	 * the given file
 	 * @param fileName the name of the file which is used to choose the wrapper
 	 * @param in the stream to wrap
@@ -79,72 +100,180 @@ public class CompressorRegistry {
 	 * @throws IOException if the wrapper throws an IOException
 	 */
 	public InputStream wrap(String fileName, InputStream in) throws IOException {
+		InputStreamWrapper wrapper=resolveInput(fileName);
+		return wrapper==null?in:wrapper.wrap(in);
+	}
+
+	/**
+	 * This method will wrap the provided stream with a decompressing stream if it recognizes the extension of
+	 * the given file
+	 * @param fileName the name of the file which is used to choose the wrapper
+	 * @param out the stream to wrap
+	 * @return a wrapped stream or the given stream itself
+	 * @throws IOException if the wrapper throws an IOException
+	 */
+	public OutputStream wrap(String fileName, OutputStream out) throws IOException {
+		OutputStreamWrapper wrapper=resolveOutput(fileName);
+		return wrapper==null?out:wrapper.wrap(out);
+	}
+	
+	/**
+	 * This method resolves the decompressing wrappers for all known extensions at the end of the given file name,
+	 * e.g. <code>data.tar.gz</code>, into a single wrapper. The result can be reused as long as 
+	 * {@link #getVersion()} does not change.
+	 * @param fileName the name of the file which is used to choose the wrappers
+	 * @return a wrapper applying all matching wrappers or null if no extension is known
+	 */
+	public InputStreamWrapper resolveInput(String fileName) {
+		Entries<InputStreamWrapper> entries=inputEntries;
+		InputStreamWrapper result=null;
 		int lastIndex=fileName.length();
 		int index=fileName.length();
 		while((index=fileName.lastIndexOf('.',index-1))>=0) {
-			InputStreamWrapper wrapper=extensionInputMap.get(fileName.substring(index+1,lastIndex));
+			InputStreamWrapper wrapper=entries.find(fileName, index+1, lastIndex);
 			if(wrapper==null)
-				return in;
-			in=wrapper.wrap(in);
+				break;
+			if(result==null)
+				result=wrapper;
+			else {
+				InputStreamWrapper inner=result;
+				result=in -> wrapper.wrap(inner.wrap(in));
+			}
 			lastIndex=index;
 		}
-		return in;
+		return result;
 	}
 	
 	/**
-	 * This method will wrap the provided stream with a decompressing stream if it recognizes the extension of 
-	 * the given file
-	 * @param fileName the name of the file which is used to choose the wrapper
-	 * @param out the stream to wrap
-	 * @return a wrapped stream or the given stream itself
-	 * @throws IOException if the wrapper throws an IOException
+	 * This method resolves the compressing wrappers for all known extensions at the end of the given file name
+	 * into a single wrapper. The result can be reused as long as {@link #getVersion()} does not change.
+	 * @param fileName the name of the file which is used to choose the wrappers
+	 * @return a wrapper applying all matching wrappers or null if no extension is known
 	 */
-	public OutputStream wrap(String fileName, OutputStream out) throws IOException {
+	public OutputStreamWrapper resolveOutput(String fileName) {
+		Entries<OutputStreamWrapper> entries=outputEntries;
+		OutputStreamWrapper result=null;
 		int lastIndex=fileName.length();
 		int index=fileName.length();
 		while((index=fileName.lastIndexOf('.',index-1))>=0) {
-			OutputStreamWrapper wrapper=extensionOutputMap.get(fileName.substring(index+1,lastIndex));
+			OutputStreamWrapper wrapper=entries.find(fileName, index+1, lastIndex);
 			if(wrapper==null)
-				return out;
-			out=wrapper.wrap(out);
+				break;
+			if(result==null)
+				result=wrapper;
+			else {
+				OutputStreamWrapper inner=result;
+				result=out -> wrapper.wrap(inner.wrap(out));
+			}
 			lastIndex=index;
 		}
-		return out;
+		return result;
 	}
 	
 	/**
-	 * This method is used to register new wrappers for extensions. Mostly it is enough to provide this method 
+	 * @return a number that changes with every registration in this registry
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * This method is used to register new wrappers for extensions. Mostly it is enough to provide this method
 	 * with the constructors of the right class, e.g. <pre>registerWrapper("gz", GZIPInputStream::new, GZIPOutputStream::new);</pre>
 	 * @param fileExtension the extension that should use the given wrapping streams
 	 * @param inWrapper the decompressing InputStream
 	 * @param outWrapper the compressing OutputStream
 	 * @return true, if no other wrapping stream was overwritten
 	 */
-	public boolean registerWrapper(String fileExtension, InputStreamWrapper inWrapper, OutputStreamWrapper outWrapper) {
-		boolean nonOverwritten=extensionInputMap.put(fileExtension, inWrapper)==null;
-		nonOverwritten&=extensionOutputMap.put(fileExtension, outWrapper)==null;
+	public synchronized boolean registerWrapper(String fileExtension, InputStreamWrapper inWrapper, OutputStreamWrapper outWrapper) {
+		boolean nonOverwritten=registerWrapper(fileExtension, inWrapper)==null;
+		nonOverwritten&=registerWrapper(fileExtension, outWrapper)==null;
 		return nonOverwritten;
 	}
-	
+
 	/**
-	 * This method is used to register new wrappers for extensions. Mostly it is enough to provide this method 
+	 * This method is used to register new wrappers for extensions. Mostly it is enough to provide this method
 	 * with the constructors of the right class, e.g. <pre>registerWrapper("gz", GZIPInputStream::new);</pre>
 	 * @param fileExtension the extension that should use the given wrapping streams
 	 * @param inWrapper the decompressing InputStream
 	 * @return the wraping stream that was registered for the extension before
 	 */
-	public InputStreamWrapper registerWrapper(String fileExtension, InputStreamWrapper inWrapper) {
-		return extensionInputMap.put(fileExtension, inWrapper);
+	public synchronized InputStreamWrapper registerWrapper(String fileExtension, InputStreamWrapper inWrapper) {
+		Entries<InputStreamWrapper> entries=inputEntries;
+		inputEntries=entries.with(fileExtension, inWrapper);
+		version++;
+		return entries.find(fileExtension, 0, fileExtension.length());
 	}
-	
+
 	/**
-	 * This method is used to register new wrappers for extensions. Mostly it is enough to provide this method 
+	 * This method is used to register new wrappers for extensions. Mostly it is enough to provide this method
 	 * with the constructors of the right class, e.g. <pre>registerWrapper("gz", GZIPOutputStream::new);</pre>
 	 * @param fileExtension the extension that should use the given wrapping streams
 	 * @param outWrapper the compressing OutputStream
 	 * @return the wraping stream that was registered for the extension before
 	 */
-	public OutputStreamWrapper registerWrapper(String fileExtension, OutputStreamWrapper outWrapper) {
-		return extensionOutputMap.put(fileExtension, outWrapper);
+	public synchronized OutputStreamWrapper registerWrapper(String fileExtension, OutputStreamWrapper outWrapper) {
+		Entries<OutputStreamWrapper> entries=outputEntries;
+		outputEntries=entries.with(fileExtension, outWrapper);
+		version++;
+		return entries.find(fileExtension, 0, fileExtension.length());
+	}
+
+	/**
+	 * An immutable mapping from extensions to wrappers. There are only a few registered extensions, so a linear
+	 * search that compares the extensions in place is faster than hashing a substring of the file name.
+	 * @param <W> the type of the wrappers
+	 */
+	private static final class Entries<W> {
+		private final String[] extensions;
+		private final Object[] wrappers;
+
+		private Entries() {
+			this(new String[0], new Object[0]);
+		}
+
+		private Entries(String[] extensions, Object[] wrappers) {
+			this.extensions=extensions;
+			this.wrappers=wrappers;
+		}
+
+		/**
+		 * @param name the string containing the extension
+		 * @param from the index of the first character of the extension
+		 * @param to the index after the last character of the extension
+		 * @return the wrapper registered for the extension or null
+		 */
+		@SuppressWarnings("unchecked")
+		private W find(String name, int from, int to) {
+			int length=to-from;
+			for(int i=0;i<extensions.length;i++) {
+				String extension=extensions[i];
+				if(extension.length()==length && name.regionMatches(from, extension, 0, length))
+					return (W)wrappers[i];
+			}
+			return null;
+		}
+
+		/**
+		 * @param extension the extension to register
+		 * @param wrapper the wrapper for the extension
+		 * @return a copy of these entries that maps the extension to the given wrapper
+		 */
+		private Entries<W> with(String extension, W wrapper) {
+			Objects.requireNonNull(extension);
+			Objects.requireNonNull(wrapper);
+			for(int i=0;i<extensions.length;i++) {
+				if(extensions[i].equals(extension)) {
+					Object[] newWrappers=wrappers.clone();
+					newWrappers[i]=wrapper;
+					return new Entries<>(extensions, newWrappers);
+				}
+			}
+			String[] newExtensions=Arrays.copyOf(extensions, extensions.length+1);
+			Object[] newWrappers=Arrays.copyOf(wrappers, wrappers.length+1);
+			newExtensions[extensions.length]=extension;
+			newWrappers[wrappers.length]=wrapper;
+			return new Entries<>(newExtensions, newWrappers);
+		}
 	}
 }
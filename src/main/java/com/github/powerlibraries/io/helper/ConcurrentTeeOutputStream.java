@@ -0,0 +1,292 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * This class is an {@link OutputStream} that writes everything to several streams at the same time. The written
+ * bytes are collected in chunks that are handed to every stream through its own bounded queue. Each stream is 
+ * written by its own task on the given executor, so a slow stream, e.g. one that compresses, does not throttle the
+ * others until its queue is full.
+ * <p>
+ * The chunks are shared by all streams and never changed after they were queued. Errors of a stream are thrown by 
+ * the next call to a method of this stream. {@link #flush()} only hands the flush to the streams, 
+ * {@link #close()} waits until all streams are written and closed. {@link #abort()} discards the queued chunks 
+ * and aborts every {@link Abortable} stream instead of closing it.
+ */
+public class ConcurrentTeeOutputStream extends OutputStream implements Abortable {
+
+	/**
+	 * The default size of the chunks handed to the streams.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE=8192;
+	private static final byte[] FLUSH=new byte[0];
+	private static final byte[] END=new byte[0];
+
+	private final Branch[] branches;
+	private final CountDownLatch finished;
+	private final int chunkSize;
+	private byte[] chunk;
+	private int count;
+	private boolean closed;
+	private volatile boolean aborted;
+
+	/**
+	 * Creates a stream that writes chunks of {@link #DEFAULT_CHUNK_SIZE} bytes.
+	 * @param executor the executor that runs one task per stream until this stream is closed
+	 * @param queueCapacity the number of chunks that can be queued for each stream
+	 * @param streams the streams to write to
+	 */
+	public ConcurrentTeeOutputStream(Executor executor, int queueCapacity, OutputStream... streams) {
+		this(executor, queueCapacity, DEFAULT_CHUNK_SIZE, streams);
+	}
+
+	/**
+	 * @param executor the executor that runs one task per stream until this stream is closed
+	 * @param queueCapacity the number of chunks that can be queued for each stream
+	 * @param chunkSize the size of the chunks handed to the streams
+	 * @param streams the streams to write to
+	 */
+	public ConcurrentTeeOutputStream(Executor executor, int queueCapacity, int chunkSize, OutputStream... streams) {
+		if(queueCapacity<=0)
+			throw new IllegalArgumentException("queueCapacity has to be positive");
+		if(chunkSize<=0)
+			throw new IllegalArgumentException("chunkSize has to be positive");
+		this.chunkSize=chunkSize;
+		this.finished=new CountDownLatch(streams.length);
+		this.branches=new Branch[streams.length];
+		for(int i=0;i<streams.length;i++)
+			branches[i]=new Branch(Objects.requireNonNull(streams[i]), queueCapacity);
+		int started=0;
+		try {
+			for(;started<branches.length;started++)
+				executor.execute(branches[started]);
+		} catch(RuntimeException e) {
+			//the started branches abort their streams when they take the end, the others are aborted here
+			aborted=true;
+			for(int i=0;i<started;i++)
+				branches[i].queue.add(END);
+			for(int i=started;i<branches.length;i++) {
+				try {
+					if(streams[i] instanceof Abortable)
+						((Abortable)streams[i]).abort();
+					else
+						streams[i].close();
+				} catch(IOException | RuntimeException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+				finished.countDown();
+			}
+			awaitFinished();
+			throw e;
+		}
+	}
+
+	private void awaitFinished() {
+		boolean interrupted=false;
+		while(true) {
+			try {
+				finished.await();
+				break;
+			} catch(InterruptedException e) {
+				interrupted=true;
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		if(chunk==null)
+			chunk=new byte[chunkSize];
+		chunk[count++]=(byte)b;
+		if(count==chunk.length)
+			publishChunk();
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		ensureOpen();
+		while(len>0) {
+			if(chunk==null)
+				chunk=new byte[chunkSize];
+			int n=Math.min(len, chunk.length-count);
+			System.arraycopy(b, off, chunk, count, n);
+			count+=n;
+			off+=n;
+			len-=n;
+			if(count==chunk.length)
+				publishChunk();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if(count>0)
+			publishChunk();
+		publish(FLUSH);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(closed)
+			return;
+		closed=true;
+		//the last bytes and the end have to reach every stream, so an interrupt can not stop this
+		boolean interrupted=false;
+		if(count>0)
+			interrupted=publishUninterruptibly(fullChunk());
+		interrupted|=publishUninterruptibly(END);
+		awaitFinished();
+		if(interrupted)
+			Thread.currentThread().interrupt();
+		throwErrors();
+	}
+
+	/**
+	 * This method waits until every stream is aborted or closed. Errors of the streams are thrown like in 
+	 * {@link #close()}.
+	 */
+	@Override
+	public void abort() throws IOException {
+		if(closed)
+			return;
+		aborted=true;
+		close();
+	}
+
+	private void ensureOpen() throws IOException {
+		if(closed)
+			throw new IOException("Stream closed");
+		throwErrors();
+	}
+
+	/**
+	 * Throws a new exception every time, because the errors of the streams are reported by every following call.
+	 */
+	private void throwErrors() throws IOException {
+		IOException error=null;
+		for(Branch b:branches) {
+			Throwable t=b.error;
+			if(t==null)
+				continue;
+			if(error==null)
+				error=new IOException(t.getMessage(), t);
+			else
+				error.addSuppressed(t);
+		}
+		if(error!=null)
+			throw error;
+	}
+
+	private void publishChunk() throws IOException {
+		publish(fullChunk());
+	}
+
+	private byte[] fullChunk() {
+		byte[] full=count==chunk.length?chunk:Arrays.copyOf(chunk, count);
+		chunk=null;
+		count=0;
+		return full;
+	}
+
+	private void publish(byte[] message) throws IOException {
+		try {
+			for(Branch b:branches)
+				b.queue.put(message);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a slow stream");
+		}
+	}
+
+	/**
+	 * @return true if the thread was interrupted while waiting
+	 */
+	private boolean publishUninterruptibly(byte[] message) {
+		boolean interrupted=false;
+		for(Branch b:branches) {
+			while(true) {
+				try {
+					b.queue.put(message);
+					break;
+				} catch(InterruptedException e) {
+					interrupted=true;
+				}
+			}
+		}
+		return interrupted;
+	}
+
+	/**
+	 * A single stream with its queue. After an error the remaining chunks are discarded, so that the writing thread
+	 * never blocks on a failed stream.
+	 */
+	private class Branch implements Runnable {
+		private final OutputStream out;
+		private final BlockingQueue<byte[]> queue;
+		private volatile Throwable error;
+
+		private Branch(OutputStream out, int queueCapacity) {
+			this.out=out;
+			this.queue=new ArrayBlockingQueue<>(queueCapacity);
+		}
+
+		@Override
+		public void run() {
+			try {
+				byte[] message;
+				while((message=take())!=END) {
+					if(error!=null || aborted)
+						continue;
+					try {
+						if(message==FLUSH)
+							out.flush();
+						else
+							out.write(message);
+					} catch(Throwable t) {
+						error=t;
+					}
+				}
+				try {
+					if(aborted && out instanceof Abortable)
+						((Abortable)out).abort();
+					else
+						out.close();
+				} catch(Throwable t) {
+					if(error==null)
+						error=t;
+				}
+			} finally {
+				finished.countDown();
+			}
+		}
+
+		private byte[] take() {
+			boolean interrupted=false;
+			try {
+				while(true) {
+					try {
+						return queue.take();
+					} catch(InterruptedException e) {
+						interrupted=true;
+					}
+				}
+			} finally {
+				if(interrupted)
+					Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
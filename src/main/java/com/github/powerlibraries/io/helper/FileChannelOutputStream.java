@@ -0,0 +1,53 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+
+/**
+ * This class is an {@link OutputStream} that writes to a {@link FileChannel} at the current position of the 
+ * channel. In contrast to {@link java.nio.channels.Channels#newOutputStream} the channel is accessible, so that
+ * the builders can transfer bytes to it directly, see {@link FileChannels#channelOf(OutputStream)}. Closing the 
+ * stream closes the channel.
+ */
+public class FileChannelOutputStream extends OutputStream {
+
+	private final FileChannel channel;
+	private byte[] single;
+
+	/**
+	 * @param channel the channel to write to
+	 */
+	public FileChannelOutputStream(FileChannel channel) {
+		this.channel=Objects.requireNonNull(channel);
+	}
+
+	/**
+	 * @return the channel this stream writes to
+	 */
+	public FileChannel getChannel() {
+		return channel;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if(single==null)
+			single=new byte[1];
+		single[0]=(byte)b;
+		write(single, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ByteBuffer buffer=ByteBuffer.wrap(b, off, len);
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,158 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import com.github.powerlibraries.io.metrics.MeteredInputStream;
+import com.github.powerlibraries.io.metrics.MeteredOutputStream;
+
+/**
+ * This class contains some static helper methods that allow the builders to copy data between files without
+ * pumping it through a heap buffer. The actual copying is done by {@link FileChannel#transferTo} which lets
+ * the operating system move the bytes (e.g. with sendfile or copy_file_range).
+ */
+public final class FileChannels {
+
+	private static final int PREALLOCATION_CHUNK_SIZE=1<<20;
+
+	/**
+	 * There is no reason to create an instance.
+	 */
+	private FileChannels() {}
+
+	/**
+	 * This method makes sure that the file of the given channel is at least the given number of bytes long by
+	 * writing zeros after its current end. In contrast to extending the file with {@link FileChannel#truncate} or
+	 * a write at the new end, which only creates a sparse file on most file systems, this allocates the space,
+	 * so that later writes into it neither change the file size nor allocate new blocks. The position of the 
+	 * channel is not changed.
+	 * @param channel a writable channel
+	 * @param size the minimum size of the file
+	 * @throws IOException if the channel throws an {@link IOException}
+	 */
+	public static void preallocate(FileChannel channel, long size) throws IOException {
+		long end=channel.size();
+		if(end>=size)
+			return;
+		ByteBuffer zeros=ByteBuffer.allocateDirect((int)Math.min(size-end, PREALLOCATION_CHUNK_SIZE));
+		while(end<size) {
+			zeros.clear();
+			zeros.limit((int)Math.min(zeros.capacity(), size-end));
+			end+=channel.write(zeros, end);
+		}
+	}
+
+	/**
+	 * This method returns the {@link FileChannel} underlying the given stream if the stream writes directly
+	 * to a file without any buffering or transformation.
+	 * @param out the stream to check
+	 * @return the channel of the stream or null if the stream is not a plain file stream
+	 */
+	public static FileChannel channelOf(OutputStream out) {
+		if(out instanceof AbortableOutputStream)
+			return channelOf(((AbortableOutputStream)out).getWrappedStream());
+		if(out instanceof MeteredOutputStream) {
+			MeteredOutputStream metered=(MeteredOutputStream)out;
+			return metered.isPassThrough()?channelOf(metered.getWrappedStream()):null;
+		}
+		if(out instanceof FileOutputStream)
+			return ((FileOutputStream)out).getChannel();
+		if(out instanceof FileChannelOutputStream)
+			return ((FileChannelOutputStream)out).getChannel();
+		return null;
+	}
+
+	/**
+	 * This method returns the {@link FileChannel} underlying the given stream if the stream reads directly
+	 * from a file without any buffering or transformation.
+	 * @param in the stream to check
+	 * @return the channel of the stream or null if the stream is not a plain file stream
+	 */
+	public static FileChannel channelOf(InputStream in) {
+		if(in instanceof MeteredInputStream) {
+			MeteredInputStream metered=(MeteredInputStream)in;
+			return metered.isPassThrough()?channelOf(metered.getWrappedStream()):null;
+		}
+		if(in instanceof FileInputStream)
+			return ((FileInputStream)in).getChannel();
+		return null;
+	}
+
+	/**
+	 * This method copies all remaining bytes of the given stream to the other stream with 
+	 * {@link #transfer(FileChannel, WritableByteChannel)} if both streams are plain file streams. Streams that are
+	 * only metered for an {@link com.github.powerlibraries.io.metrics.IOListener} count as plain file streams and
+	 * the transferred bytes are added to their counts. Neither stream is closed.
+	 * @param in the stream to read from
+	 * @param out the stream to write to
+	 * @return the number of transferred bytes or -1 if the streams are not both plain file streams and nothing
+	 * was copied
+	 * @throws IOException if any of the channels throws an {@link IOException}
+	 */
+	public static long transfer(InputStream in, OutputStream out) throws IOException {
+		if(out instanceof AbortableOutputStream)
+			return transfer(in, ((AbortableOutputStream)out).getWrappedStream());
+		FileChannel inChannel, outChannel;
+		if((inChannel=channelOf(in))==null || (outChannel=channelOf(out))==null)
+			return -1;
+		long transferred;
+		try {
+			transferred=transfer(inChannel, outChannel);
+		} catch(IOException | RuntimeException e) {
+			//the bytes bypassed the write methods of the stream, so it has to learn about the failure here
+			markFailed(out);
+			throw e;
+		}
+		if(in instanceof MeteredInputStream)
+			((MeteredInputStream)in).recordTransfer(transferred);
+		if(out instanceof MeteredOutputStream)
+			((MeteredOutputStream)out).recordTransfer(transferred);
+		return transferred;
+	}
+
+	private static void markFailed(OutputStream out) {
+		if(out instanceof MeteredOutputStream)
+			markFailed(((MeteredOutputStream)out).getWrappedStream());
+		else if(out instanceof AtomicFileOutputStream)
+			((AtomicFileOutputStream)out).markFailed();
+	}
+
+	/**
+	 * This method transfers all remaining bytes from the current position of the given {@link FileChannel}
+	 * to the given channel. The position of the source channel is advanced by the number of transferred bytes.
+	 * Neither channel is closed.
+	 * @param in the channel to read from
+	 * @param out the channel to write to
+	 * @return the number of transferred bytes
+	 * @throws IOException if any of the channels throws an {@link IOException}
+	 */
+	public static long transfer(FileChannel in, WritableByteChannel out) throws IOException {
+		long start=in.position();
+		long position=start;
+		long size=in.size();
+		while(position<size) {
+			long transferred=in.transferTo(position, size-position, out);
+			if(transferred<=0)
+				break;
+			position+=transferred;
+		}
+		in.position(position);
+		//the file might have grown in the meantime, copy whatever is left the slow way
+		if(position<in.size()) {
+			ByteBuffer buffer=ByteBuffer.allocate(8192);
+			while(in.read(buffer)>=0) {
+				buffer.flip();
+				while(buffer.hasRemaining())
+					out.write(buffer);
+				buffer.clear();
+			}
+		}
+		return in.position()-start;
+	}
+}
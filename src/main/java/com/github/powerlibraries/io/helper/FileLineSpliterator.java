@@ -0,0 +1,160 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * This class is a {@link Spliterator} over the lines of a byte range of a file. In contrast to the spliterator
+ * of {@link BufferedReader#lines()} it splits by byte ranges of the file that are aligned to line breaks, so
+ * that every part can be decoded independently and parallel streams scale with the number of cores.
+ * <p>
+ * Splitting is only safe for charsets in which the byte of <code>'\n'</code> never occurs as part of another
+ * character, see {@link #canSplit(Charset)}. All parts read from the same {@link FileChannel} with positional
+ * reads, the channel has to be closed by the creator of the spliterator.
+ */
+public class FileLineSpliterator implements Spliterator<String> {
+
+	/**
+	 * The minimum number of bytes in a range before it is split further.
+	 */
+	public static final int MIN_SPLIT_SIZE=1<<16;
+	private static final int SCAN_BUFFER_SIZE=8192;
+
+	private final FileChannel channel;
+	private final Charset charset;
+	private long start;
+	private final long end;
+	private BufferedReader reader;
+
+	/**
+	 * @param channel the channel of the file to read
+	 * @param start the position of the first byte of the range, this has to be the start of a line
+	 * @param end the position after the last byte of the range, this has to be the end of a line or the file
+	 * @param charset the charset used to decode the lines
+	 */
+	public FileLineSpliterator(FileChannel channel, long start, long end, Charset charset) {
+		this.channel=Objects.requireNonNull(channel);
+		this.charset=Objects.requireNonNull(charset);
+		this.start=start;
+		this.end=end;
+	}
+
+	/**
+	 * This method checks if files in the given charset can be split at the byte of <code>'\n'</code> without
+	 * breaking a character apart.
+	 * @param charset the charset of a file
+	 * @return true if the charset can be split at line breaks
+	 */
+	public static boolean canSplit(Charset charset) {
+		return StandardCharsets.UTF_8.equals(charset)
+			|| StandardCharsets.US_ASCII.equals(charset)
+			|| StandardCharsets.ISO_8859_1.equals(charset);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super String> action) {
+		try {
+			if(reader==null)
+				reader=new BufferedReader(new InputStreamReader(new RangeInputStream(start, end), charset));
+			String line=reader.readLine();
+			if(line==null)
+				return false;
+			action.accept(line);
+			return true;
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public Spliterator<String> trySplit() {
+		if(reader!=null || end-start<2*MIN_SPLIT_SIZE)
+			return null;
+		try {
+			long split=findLineStart(start+(end-start)/2);
+			if(split<0)
+				return null;
+			FileLineSpliterator prefix=new FileLineSpliterator(channel, start, split, charset);
+			start=split;
+			return prefix;
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Searches the first line start after the given position.
+	 * @param position the position to start searching at
+	 * @return the position after the next <code>'\n'</code> or -1 if there is none before the end of the range
+	 * @throws IOException if reading the channel throws an {@link IOException}
+	 */
+	private long findLineStart(long position) throws IOException {
+		ByteBuffer buffer=ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		while(position<end) {
+			buffer.clear();
+			buffer.limit((int)Math.min(buffer.capacity(), end-position));
+			int read=channel.read(buffer, position);
+			if(read<0)
+				return -1;
+			for(int i=0;i<read;i++) {
+				if(buffer.get(i)=='\n')
+					return position+i+1<end?position+i+1:-1;
+			}
+			position+=read;
+		}
+		return -1;
+	}
+
+	@Override
+	public long estimateSize() {
+		return end-start;
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+
+	/**
+	 * An {@link InputStream} that reads a byte range of the channel with positional reads.
+	 */
+	private class RangeInputStream extends InputStream {
+		private long position;
+		private final long limit;
+
+		private RangeInputStream(long position, long limit) {
+			this.position=position;
+			this.limit=limit;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b=new byte[1];
+			return read(b, 0, 1)<0?-1:b[0]&0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			if(len==0)
+				return 0;
+			if(position>=limit)
+				return -1;
+			int read=channel.read(ByteBuffer.wrap(b, off, (int)Math.min(len, limit-position)), position);
+			if(read<0)
+				return -1;
+			position+=read;
+			return read;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class commits the temporary files of many {@link AtomicFileOutputStream}s in batches. Every stream forces
+ * its own file when it is closed, so the files of concurrent writers are forced in parallel. A single thread 
+ * collects the files that are closed within an interval, moves all of them and then forces every affected 
+ * directory only once. A closing stream waits until its batch is committed, so the durability is the same as if 
+ * every stream forced its own directory, but the number of directory barriers drops when many small files are
+ * written concurrently into the same directories.
+ * <p>
+ * A group commit should be shared by all writers of the same files and closed when it is not needed anymore.
+ * The thread of a group commit is a daemon thread.
+ */
+public class GroupCommit implements Closeable {
+
+	private static final Pending CLOSE=new Pending(null, null, false);
+
+	private final long intervalNanos;
+	private final BlockingQueue<Pending> queue=new LinkedBlockingQueue<>();
+	private final Thread thread;
+	private boolean closed;
+
+	/**
+	 * @param interval the time the commit thread waits for more files after the first file of a batch arrived.
+	 * With a zero interval a batch contains all the files that arrived while the last batch was committed.
+	 */
+	public GroupCommit(Duration interval) {
+		if(interval.isNegative())
+			throw new IllegalArgumentException("interval can not be negative");
+		this.intervalNanos=interval.toNanos();
+		this.thread=new Thread(this::run, "iopower-group-commit");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * This method moves the given temporary file over the target with the next batch and waits until this is 
+	 * done.
+	 * @param temp the completely written, closed and, if needed, forced temporary file
+	 * @param target the file to replace
+	 * @param force if the directory should be forced to the storage device after the move
+	 * @throws IOException if the file could not be committed or this group commit was closed
+	 */
+	public void commit(Path temp, Path target, boolean force) throws IOException {
+		Pending pending=new Pending(temp, target, force);
+		synchronized(this) {
+			if(closed)
+				throw new IOException("The group commit was closed");
+			queue.add(pending);
+		}
+		try {
+			pending.future.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the group commit");
+		} catch(ExecutionException e) {
+			throw new IOException(e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * This method commits the files that are already waiting and stops the commit thread. Later commits fail.
+	 */
+	@Override
+	public synchronized void close() {
+		if(closed)
+			return;
+		closed=true;
+		queue.add(CLOSE);
+	}
+
+	private void run() {
+		List<Pending> batch=new ArrayList<>();
+		boolean running=true;
+		while(running) {
+			try {
+				batch.add(queue.take());
+			} catch(InterruptedException e) {
+				continue;
+			}
+			if(intervalNanos>0 && batch.get(0)!=CLOSE)
+				LockSupport.parkNanos(intervalNanos);
+			queue.drainTo(batch);
+			running=!batch.remove(CLOSE);
+			commit(batch);
+			batch.clear();
+		}
+	}
+
+	private static void commit(List<Pending> batch) {
+		Set<Path> directories=new LinkedHashSet<>();
+		for(Pending p:batch) {
+			try {
+				Files.move(p.temp, p.target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				if(p.force)
+					directories.add(p.target.getParent());
+			} catch(IOException | RuntimeException e) {
+				fail(p, e);
+			}
+		}
+		for(Path directory:directories)
+			AtomicFileOutputStream.forceDirectory(directory);
+		for(Pending p:batch)
+			p.future.complete(null);
+	}
+
+	private static void fail(Pending p, Exception e) {
+		try {
+			Files.deleteIfExists(p.temp);
+		} catch(IOException suppressed) {
+			e.addSuppressed(suppressed);
+		}
+		p.future.completeExceptionally(e);
+	}
+
+	/**
+	 * A file waiting for its batch.
+	 */
+	private static class Pending {
+		private final Path temp;
+		private final Path target;
+		private final boolean force;
+		private final CompletableFuture<Void> future=new CompletableFuture<>();
+
+		private Pending(Path temp, Path target, boolean force) {
+			this.temp=temp;
+			this.target=target;
+			this.force=force;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * This class contains static helper methods to write and read the sequences of objects created by the
+ * writeObjects methods of the builders. A sequence starts with the number of objects followed by the objects.
+ * If the number is not known when the sequence is written, the count is {@link #UNKNOWN_COUNT} and every object
+ * is preceded by <code>true</code> while the sequence ends with <code>false</code>.
+ */
+public final class ObjectSequences {
+
+	/**
+	 * The count written at the start of a sequence whose length was not known in advance.
+	 */
+	public static final int UNKNOWN_COUNT=-1;
+
+	/**
+	 * There is no reason to create an instance.
+	 */
+	private ObjectSequences() {}
+
+	/**
+	 * This method writes the remaining objects of the given iterator as a sequence of unknown length. If the output 
+	 * is an {@link ObjectOutputStream} it is reset after each object, so that neither the writing nor the reading 
+	 * side has to keep references to the already written objects.
+	 * @param out the stream to write to
+	 * @param objects the objects to write
+	 * @throws IOException if the stream throws an {@link IOException}
+	 */
+	public static void write(ObjectOutput out, Iterator<?> objects) throws IOException {
+		out.writeInt(UNKNOWN_COUNT);
+		int index=0;
+		while(objects.hasNext()) {
+			Object o=objects.next();
+			out.writeBoolean(true);
+			try {
+				out.writeObject(o);
+			} catch(IOException e) {
+				throw new IOException("Error while trying to serialize object "+index+": "+Objects.toString(o), e);
+			}
+			if(out instanceof ObjectOutputStream)
+				((ObjectOutputStream)out).reset();
+			index++;
+		}
+		out.writeBoolean(false);
+	}
+
+	/**
+	 * This method starts reading a sequence from the given stream.
+	 * @param in the stream to read from
+	 * @param <T> the expected supertype of the read objects
+	 * @return a reader that reads the objects of the sequence one by one
+	 * @throws IOException if the stream throws an {@link IOException} or does not start with a sequence
+	 */
+	public static <T> Reader<T> read(ObjectInput in) throws IOException {
+		return new Reader<>(in);
+	}
+
+	/**
+	 * An {@link Iterator} that reads one object at a time from a sequence. The methods of the {@link Iterator}
+	 * interface throw {@link UncheckedIOException}s, {@link #hasNextObject()} and {@link #nextObject()} throw the
+	 * checked exceptions instead.
+	 * @param <T> the expected supertype of the read objects
+	 */
+	public static class Reader<T> implements Iterator<T> {
+		private final ObjectInput in;
+		private final int count;
+		private int index=0;
+		private Boolean next;
+
+		private Reader(ObjectInput in) throws IOException {
+			this.in=in;
+			this.count=in.readInt();
+			if(count<UNKNOWN_COUNT)
+				throw new StreamCorruptedException("Invalid number of objects "+count);
+		}
+
+		/**
+		 * @return the number of objects in the sequence or {@link ObjectSequences#UNKNOWN_COUNT}
+		 */
+		public int getCount() {
+			return count;
+		}
+
+		/**
+		 * @return true if there is another object in the sequence
+		 * @throws IOException if the stream throws an {@link IOException}
+		 */
+		public boolean hasNextObject() throws IOException {
+			if(count!=UNKNOWN_COUNT)
+				return index<count;
+			if(next==null)
+				next=in.readBoolean();
+			return next;
+		}
+
+		/**
+		 * @return the next object of the sequence
+		 * @throws IOException if the stream throws an {@link IOException}
+		 * @throws ClassNotFoundException if the class of a serialized object cannot be found
+		 */
+		@SuppressWarnings("unchecked")
+		public T nextObject() throws IOException, ClassNotFoundException {
+			if(!hasNextObject())
+				throw new NoSuchElementException();
+			next=null;
+			try {
+				return (T)in.readObject();
+			} catch(ClassNotFoundException e) {
+				throw new ClassNotFoundException("Error while trying to deserialize object "+index, e);
+			} catch(IOException e) {
+				throw new IOException("Error while trying to deserialize object "+index, e);
+			} finally {
+				index++;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			try {
+				return hasNextObject();
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public T next() {
+			try {
+				return nextObject();
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			} catch(ClassNotFoundException e) {
+				throw new UncheckedIOException(new IOException(e.getMessage(), e));
+			}
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+import com.github.powerlibraries.io.IOConfig;
+
+/**
+ * This class is a buffered {@link InputStream} like {@link java.io.BufferedInputStream} that takes its buffer from a
+ * {@link BufferPool} and returns it when the stream is closed. Like {@link java.io.BufferedInputStream} it supports
+ * marks by keeping the marked bytes in the buffer and growing it up to the read limit of the mark.
+ */
+public class PooledBufferedInputStream extends FilterInputStream {
+
+	private final BufferPool pool;
+	private byte[] buffer;
+	private int position;
+	private int limit;
+	private int markPosition=-1;
+	private int markLimit;
+
+	/**
+	 * Creates a stream with a buffer of {@link BufferPool#DEFAULT_BUFFER_SIZE} bytes from the pool returned by
+	 * {@link IOConfig#getBufferPool()}.
+	 * @param in the stream to buffer
+	 */
+	public PooledBufferedInputStream(InputStream in) {
+		this(in, IOConfig.getBufferPool(), BufferPool.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param in the stream to buffer
+	 * @param pool the pool the buffer is taken from
+	 * @param size the minimum size of the buffer
+	 */
+	public PooledBufferedInputStream(InputStream in, BufferPool pool, int size) {
+		super(in);
+		if(size<=0)
+			throw new IllegalArgumentException("size has to be positive");
+		this.pool=pool;
+		this.buffer=pool.takeBytes(size);
+	}
+
+	private byte[] buffer() throws IOException {
+		byte[] b=buffer;
+		if(b==null)
+			throw new IOException("Stream closed");
+		return b;
+	}
+
+	/**
+	 * Reads more bytes into the buffer. This is only called if all buffered bytes were read.
+	 * @return false if the end of the stream is reached
+	 */
+	private boolean fill() throws IOException {
+		byte[] b=buffer();
+		if(markPosition<0) {
+			position=0;
+			limit=0;
+		}
+		else if(limit>=b.length) {
+			if(markPosition>0) {
+				//drop the bytes before the mark
+				int kept=limit-markPosition;
+				System.arraycopy(b, markPosition, b, 0, kept);
+				position=kept;
+				limit=kept;
+				markPosition=0;
+			}
+			else if(b.length>=markLimit) {
+				//the read limit is exceeded
+				markPosition=-1;
+				position=0;
+				limit=0;
+			}
+			else {
+				byte[] larger=pool.takeBytes((int)Math.min(2L*b.length, markLimit));
+				System.arraycopy(b, 0, larger, 0, limit);
+				buffer=larger;
+				pool.returnBytes(b);
+				b=larger;
+			}
+		}
+		int read=in.read(b, limit, b.length-limit);
+		if(read>0)
+			limit+=read;
+		return read>0;
+	}
+
+	@Override
+	public int read() throws IOException {
+		buffer();
+		if(position>=limit && !fill())
+			return -1;
+		return buffer[position++]&0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		byte[] buf=buffer();
+		if(len==0)
+			return 0;
+		int available=limit-position;
+		if(available<=0) {
+			//large reads bypass the buffer
+			if(len>=buf.length && markPosition<0)
+				return in.read(b, off, len);
+			if(!fill())
+				return -1;
+			buf=buffer;
+			available=limit-position;
+		}
+		int n=Math.min(available, len);
+		System.arraycopy(buf, position, b, off, n);
+		position+=n;
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		buffer();
+		if(n<=0)
+			return 0;
+		int available=limit-position;
+		if(available<=0) {
+			if(markPosition<0)
+				return in.skip(n);
+			if(!fill())
+				return 0;
+			available=limit-position;
+		}
+		long skipped=Math.min(available, n);
+		position+=skipped;
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		buffer();
+		int n=limit-position;
+		int inAvailable=in.available();
+		return n>Integer.MAX_VALUE-inAvailable?Integer.MAX_VALUE:n+inAvailable;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public void mark(int readlimit) {
+		markLimit=readlimit;
+		markPosition=position;
+	}
+
+	@Override
+	public void reset() throws IOException {
+		buffer();
+		if(markPosition<0)
+			throw new IOException("Resetting to invalid mark");
+		position=markPosition;
+	}
+
+	@Override
+	public void close() throws IOException {
+		byte[] b=buffer;
+		if(b==null)
+			return;
+		buffer=null;
+		try {
+			in.close();
+		} finally {
+			pool.returnBytes(b);
+		}
+	}
+}
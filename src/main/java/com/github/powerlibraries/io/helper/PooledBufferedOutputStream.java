@@ -0,0 +1,109 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+import com.github.powerlibraries.io.IOConfig;
+
+/**
+ * This class is a buffered {@link OutputStream} like {@link java.io.BufferedOutputStream} that takes its buffer from
+ * a {@link BufferPool} and returns it when the stream is closed.
+ */
+public class PooledBufferedOutputStream extends FilterOutputStream {
+
+	private final BufferPool pool;
+	private byte[] buffer;
+	private int count;
+
+	/**
+	 * Creates a stream with a buffer of {@link BufferPool#DEFAULT_BUFFER_SIZE} bytes from the pool returned by
+	 * {@link IOConfig#getBufferPool()}.
+	 * @param out the stream to buffer
+	 */
+	public PooledBufferedOutputStream(OutputStream out) {
+		this(out, IOConfig.getBufferPool(), BufferPool.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param out the stream to buffer
+	 * @param pool the pool the buffer is taken from
+	 * @param size the minimum size of the buffer
+	 */
+	public PooledBufferedOutputStream(OutputStream out, BufferPool pool, int size) {
+		super(out);
+		if(size<=0)
+			throw new IllegalArgumentException("size has to be positive");
+		this.pool=pool;
+		this.buffer=pool.takeBytes(size);
+	}
+
+	private byte[] buffer() throws IOException {
+		byte[] b=buffer;
+		if(b==null)
+			throw new IOException("Stream closed");
+		return b;
+	}
+
+	private void flushBuffer() throws IOException {
+		if(count>0) {
+			out.write(buffer, 0, count);
+			count=0;
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		byte[] buf=buffer();
+		if(count>=buf.length)
+			flushBuffer();
+		buf[count++]=(byte)b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		byte[] buf=buffer();
+		if(len>=buf.length) {
+			//large writes bypass the buffer
+			flushBuffer();
+			out.write(b, off, len);
+			return;
+		}
+		if(len>buf.length-count)
+			flushBuffer();
+		System.arraycopy(b, off, buf, count, len);
+		count+=len;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		//wrapping streams like ObjectOutputStream flush again when they are closed twice
+		if(buffer==null)
+			return;
+		flushBuffer();
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		byte[] b=buffer;
+		if(b==null)
+			return;
+		try {
+			flushBuffer();
+		} catch(IOException | RuntimeException e) {
+			try {
+				out.close();
+			} catch(IOException | RuntimeException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			throw e;
+		} finally {
+			buffer=null;
+			pool.returnBytes(b);
+		}
+		out.close();
+	}
+}
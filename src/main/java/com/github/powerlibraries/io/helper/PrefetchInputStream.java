@@ -0,0 +1,182 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.github.powerlibraries.io.IOConfig;
+
+/**
+ * This class is an {@link InputStream} that reads ahead of its consumer. A task on the given executor reads the 
+ * wrapped stream into a bounded number of buffers while the consumer works on the already read bytes, so that the 
+ * latency of a slow source overlaps with e.g. decompressing or decoding. The buffers are taken from the 
+ * {@link BufferPool} returned by {@link IOConfig#getBufferPool()} and returned when the stream is closed.
+ * <p>
+ * Errors of the wrapped stream are thrown by the read that reaches them. Closing this stream closes the wrapped 
+ * stream first, so that a read that is blocked in the background returns, and then waits for the background task
+ * before the buffers are returned to the pool.
+ */
+public class PrefetchInputStream extends InputStream {
+
+	private final InputStream in;
+	private final BufferPool pool;
+	private final byte[][] buffers;
+	private final int bufferSize;
+	private final BlockingQueue<byte[]> free=new LinkedBlockingQueue<>();
+	private final BlockingQueue<Chunk> filled=new LinkedBlockingQueue<>();
+	private final CountDownLatch finished=new CountDownLatch(1);
+	private volatile boolean closed;
+	private Chunk current;
+	private int position;
+
+	/**
+	 * @param in the stream to read ahead
+	 * @param executor the executor that runs the task reading the stream
+	 * @param buffers the maximum number of buffers that are read ahead
+	 * @param bufferSize the length of the buffers
+	 */
+	public PrefetchInputStream(InputStream in, Executor executor, int buffers, int bufferSize) {
+		if(buffers<=0)
+			throw new IllegalArgumentException("buffers has to be positive");
+		if(bufferSize<=0)
+			throw new IllegalArgumentException("bufferSize has to be positive");
+		this.in=Objects.requireNonNull(in);
+		this.pool=IOConfig.getBufferPool();
+		this.bufferSize=bufferSize;
+		//one more buffer than read ahead is held by the consumer
+		this.buffers=new byte[buffers+1][];
+		for(int i=0;i<this.buffers.length;i++) {
+			this.buffers[i]=pool.takeBytes(bufferSize);
+			free.add(this.buffers[i]);
+		}
+		try {
+			executor.execute(this::prefetch);
+		} catch(RuntimeException e) {
+			for(byte[] b:this.buffers)
+				pool.returnBytes(b);
+			throw e;
+		}
+	}
+
+	private void prefetch() {
+		try {
+			while(true) {
+				byte[] buffer=free.take();
+				if(closed)
+					return;
+				int read=in.read(buffer, 0, bufferSize);
+				filled.add(new Chunk(buffer, read, null));
+				if(read<0)
+					return;
+			}
+		} catch(Throwable t) {
+			filled.add(new Chunk(null, -1, t));
+		} finally {
+			finished.countDown();
+		}
+	}
+
+	/**
+	 * @return the chunk to read from or null at the end of the stream
+	 */
+	private Chunk chunk() throws IOException {
+		if(closed)
+			throw new IOException("Stream closed");
+		while(current==null || position>=current.length) {
+			if(current!=null) {
+				if(current.length<0)
+					break;
+				free.add(current.buffer);
+				current=null;
+			}
+			try {
+				current=filled.take();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the source");
+			}
+			position=0;
+		}
+		if(current.error!=null)
+			throw new IOException(current.error.getMessage(), current.error);
+		return current.length<0?null:current;
+	}
+
+	@Override
+	public int read() throws IOException {
+		Chunk chunk=chunk();
+		if(chunk==null)
+			return -1;
+		return chunk.buffer[position++]&0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		if(len==0)
+			return 0;
+		Chunk chunk=chunk();
+		if(chunk==null)
+			return -1;
+		int n=Math.min(len, chunk.length-position);
+		System.arraycopy(chunk.buffer, position, b, off, n);
+		position+=n;
+		return n;
+	}
+
+	@Override
+	public int available() throws IOException {
+		if(closed)
+			throw new IOException("Stream closed");
+		Chunk chunk=current;
+		return chunk==null || chunk.length<0?0:chunk.length-position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(closed)
+			return;
+		closed=true;
+		free.add(new byte[0]);
+		try {
+			//a read of a stalled source only returns once the source is closed
+			in.close();
+		} finally {
+			boolean interrupted=false;
+			while(true) {
+				try {
+					finished.await();
+					break;
+				} catch(InterruptedException e) {
+					interrupted=true;
+				}
+			}
+			if(interrupted)
+				Thread.currentThread().interrupt();
+			current=null;
+			filled.clear();
+			for(byte[] b:buffers)
+				pool.returnBytes(b);
+		}
+	}
+
+	/**
+	 * A filled buffer, the end of the stream or an error.
+	 */
+	private static class Chunk {
+		private final byte[] buffer;
+		private final int length;
+		private final Throwable error;
+
+		private Chunk(byte[] buffer, int length, Throwable error) {
+			this.buffer=buffer;
+			this.length=length;
+			this.error=error;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * This class is an {@link OutputStream} that writes everything to several streams one after another. An 
+ * {@link #abort()} is passed on to every {@link Abortable} stream.
+ */
+public class TeeOutputStream extends OutputStream implements Abortable {
+
+	private final OutputStream[] streams;
+
+	/**
+	 * @param streams the streams to write to
+	 */
+	public TeeOutputStream(OutputStream... streams) {
+		this.streams=streams.clone();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		for(OutputStream s:streams)
+			s.write(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		for(OutputStream s:streams)
+			s.write(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		for(OutputStream s:streams)
+			s.flush();
+	}
+
+	/**
+	 * This method closes all streams, even if some of them throw an exception. The first exception is rethrown with
+	 * the others added as suppressed exceptions.
+	 */
+	@Override
+	public void close() throws IOException {
+		close(false);
+	}
+
+	/**
+	 * This method aborts the {@link Abortable} streams and closes the others, even if some of them throw an 
+	 * exception.
+	 */
+	@Override
+	public void abort() throws IOException {
+		close(true);
+	}
+
+	private void close(boolean abort) throws IOException {
+		IOException error=null;
+		for(OutputStream s:streams) {
+			try {
+				if(abort && s instanceof Abortable)
+					((Abortable)s).abort();
+				else
+					s.close();
+			} catch(IOException e) {
+				if(error==null)
+					error=e;
+				else
+					error.addSuppressed(e);
+			}
+		}
+		if(error!=null)
+			throw error;
+	}
+}
@@ -0,0 +1,328 @@
+package com.github.powerlibraries.io.helper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import com.github.powerlibraries.io.IOConfig;
+
+/**
+ * This class is an {@link OutputStream} that writes to the wrapped stream in the background. The written bytes are
+ * collected in buffers and filled buffers are handed to a writer task on the given executor through a bounded 
+ * queue, so the writing thread neither waits for the wrapped stream nor for anything the wrapped stream does, e.g. 
+ * compressing. What happens if the queue is full is chosen by a {@link Backpressure}. The buffers are taken from 
+ * the {@link BufferPool} returned by {@link IOConfig#getBufferPool()}.
+ * <p>
+ * {@link #flush()} hands the buffered bytes and a flush to the writer without waiting for them, {@link #close()}
+ * waits until all queued bytes are written and the wrapped stream is closed. Errors of the wrapped stream are 
+ * thrown by the next call to a method of this stream. After an error the writer does not close the wrapped stream,
+ * because that would e.g. finish a compressor and commit an atomic file. Instead {@link #close()} first closes 
+ * the abort handler given to the constructor and then closes the wrapped stream. A buffer discarded with 
+ * {@link Backpressure#FAIL} is such an error, a buffer discarded with {@link Backpressure#DROP} is not.
+ */
+public class WriteBehindOutputStream extends OutputStream {
+
+	private static final Chunk FLUSH=new Chunk(null, 0);
+	private static final Chunk END=new Chunk(null, 0);
+
+	private final OutputStream out;
+	private final Closeable abort;
+	private final BlockingQueue<Chunk> queue;
+	private final Backpressure backpressure;
+	private final BufferPool pool;
+	private final int bufferSize;
+	private final Queue<byte[]> free=new ConcurrentLinkedQueue<>();
+	private final CountDownLatch finished=new CountDownLatch(1);
+	private volatile Throwable error;
+	private volatile long droppedBytes;
+	//written by the writer before finished is counted down
+	private boolean closedByWriter;
+	private byte[] buffer;
+	private int count;
+	private boolean closed;
+
+	/**
+	 * @param out the stream to write to
+	 * @param executor the executor that runs the writer task until this stream is closed
+	 * @param buffers the number of filled buffers that can be queued
+	 * @param bufferSize the length of the buffers
+	 * @param backpressure what happens if the queue is full
+	 */
+	public WriteBehindOutputStream(OutputStream out, Executor executor, int buffers, int bufferSize, Backpressure backpressure) {
+		this(out, executor, buffers, bufferSize, backpressure, null);
+	}
+
+	/**
+	 * @param out the stream to write to
+	 * @param executor the executor that runs the writer task until this stream is closed
+	 * @param buffers the number of filled buffers that can be queued
+	 * @param bufferSize the length of the buffers
+	 * @param backpressure what happens if the queue is full
+	 * @param abort closed before the wrapped stream if writing failed, e.g. to abort an {@link Abortable} stream at 
+	 * the end of the chain, or null
+	 */
+	public WriteBehindOutputStream(OutputStream out, Executor executor, int buffers, int bufferSize, Backpressure backpressure,
+			Closeable abort) {
+		if(buffers<=0)
+			throw new IllegalArgumentException("buffers has to be positive");
+		if(bufferSize<=0)
+			throw new IllegalArgumentException("bufferSize has to be positive");
+		this.out=Objects.requireNonNull(out);
+		this.abort=abort;
+		this.backpressure=Objects.requireNonNull(backpressure);
+		this.queue=new ArrayBlockingQueue<>(buffers);
+		this.pool=IOConfig.getBufferPool();
+		this.bufferSize=bufferSize;
+		executor.execute(this::writeQueued);
+	}
+
+	/**
+	 * @return the number of bytes that were discarded because the queue was full
+	 */
+	public long getDroppedBytes() {
+		return droppedBytes;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		if(buffer==null)
+			buffer=takeBuffer();
+		buffer[count++]=(byte)b;
+		if(count==bufferSize)
+			publishBuffer();
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		ensureOpen();
+		while(len>0) {
+			if(buffer==null)
+				buffer=takeBuffer();
+			int n=Math.min(len, bufferSize-count);
+			System.arraycopy(b, off, buffer, count, n);
+			count+=n;
+			off+=n;
+			len-=n;
+			if(count==bufferSize)
+				publishBuffer();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if(count>0)
+			publishBuffer();
+		if(backpressure==Backpressure.BLOCK)
+			put(FLUSH);
+		else
+			queue.offer(FLUSH);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(closed)
+			return;
+		closed=true;
+		//the last bytes and the end have to be queued, so an interrupt can not stop this
+		boolean interrupted=false;
+		try {
+			if(count>0 && backpressure==Backpressure.BLOCK) {
+				interrupted=putUninterruptibly(new Chunk(buffer, count));
+				buffer=null;
+				count=0;
+			}
+			else if(count>0)
+				publishBuffer();
+		} catch(IOException | RuntimeException e) {
+			//the writer must not finish the wrapped stream without the discarded bytes
+			if(error==null)
+				error=e;
+		} finally {
+			if(buffer!=null) {
+				free.add(buffer);
+				buffer=null;
+			}
+			interrupted|=putUninterruptibly(END);
+			while(true) {
+				try {
+					finished.await();
+					break;
+				} catch(InterruptedException e) {
+					interrupted=true;
+				}
+			}
+			if(interrupted)
+				Thread.currentThread().interrupt();
+			byte[] b;
+			while((b=free.poll())!=null)
+				pool.returnBytes(b);
+		}
+		if(error!=null)
+			closeAfterError();
+		throwError();
+	}
+
+	/**
+	 * Closes the wrapped stream after the writer failed. The abort handler is closed first, so that e.g. an atomic 
+	 * file is not committed when the rest of the chain is closed.
+	 */
+	private void closeAfterError() {
+		Throwable t=error;
+		try {
+			if(abort!=null)
+				abort.close();
+		} catch(IOException | RuntimeException e) {
+			t.addSuppressed(e);
+		}
+		if(closedByWriter)
+			return;
+		try {
+			out.close();
+		} catch(IOException | RuntimeException e) {
+			t.addSuppressed(e);
+		}
+	}
+
+	/**
+	 * @return true if the thread was interrupted while waiting
+	 */
+	private boolean putUninterruptibly(Chunk chunk) {
+		boolean interrupted=false;
+		while(true) {
+			try {
+				queue.put(chunk);
+				return interrupted;
+			} catch(InterruptedException e) {
+				interrupted=true;
+			}
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if(closed)
+			throw new IOException("Stream closed");
+		throwError();
+	}
+
+	/**
+	 * Throws a new exception every time, because the error of the wrapped stream is reported by every following 
+	 * call.
+	 */
+	private void throwError() throws IOException {
+		Throwable t=error;
+		if(t!=null)
+			throw new IOException(t.getMessage(), t);
+	}
+
+	private byte[] takeBuffer() {
+		byte[] b=free.poll();
+		return b!=null?b:pool.takeBytes(bufferSize);
+	}
+
+	private void publishBuffer() throws IOException {
+		Chunk chunk=new Chunk(buffer, count);
+		if(backpressure==Backpressure.BLOCK) {
+			buffer=null;
+			count=0;
+			put(chunk);
+		}
+		else if(queue.offer(chunk)) {
+			buffer=null;
+			count=0;
+		}
+		else {
+			//keep the buffer for the next bytes
+			int dropped=count;
+			count=0;
+			droppedBytes+=dropped;
+			if(backpressure==Backpressure.FAIL) {
+				//the output misses the discarded bytes, so it must not be finished by close()
+				IOException e=new IOException("The write-behind queue is full, "+dropped+" bytes were discarded");
+				if(error==null)
+					error=e;
+				throw e;
+			}
+		}
+	}
+
+	private void put(Chunk chunk) throws IOException {
+		try {
+			queue.put(chunk);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the writer");
+		}
+	}
+
+	private void writeQueued() {
+		try {
+			Chunk chunk;
+			while((chunk=take())!=END) {
+				//after an error the queue is still drained, so that the writing thread never blocks
+				if(error==null) {
+					try {
+						if(chunk==FLUSH)
+							out.flush();
+						else
+							out.write(chunk.buffer, 0, chunk.length);
+					} catch(Throwable t) {
+						error=t;
+					}
+				}
+				if(chunk!=FLUSH)
+					free.add(chunk.buffer);
+			}
+			//after an error the wrapped stream is closed by close(), after the target was aborted
+			if(error==null) {
+				closedByWriter=true;
+				try {
+					out.close();
+				} catch(Throwable t) {
+					error=t;
+				}
+			}
+		} finally {
+			finished.countDown();
+		}
+	}
+
+	private Chunk take() {
+		boolean interrupted=false;
+		try {
+			while(true) {
+				try {
+					return queue.take();
+				} catch(InterruptedException e) {
+					interrupted=true;
+				}
+			}
+		} finally {
+			if(interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * A filled buffer.
+	 */
+	private static class Chunk {
+		private final byte[] buffer;
+		private final int length;
+
+		private Chunk(byte[] buffer, int length) {
+			this.buffer=buffer;
+			this.length=length;
+		}
+	}
+}
@@ -52,6 +52,11 @@ public class BAOutputStream extends OutputStream implements ByteArrayWrapper {
 		out.write(b);
 	}
 	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+	}
+	
 	@Override
 	public void close() throws IOException {
 		out.close();
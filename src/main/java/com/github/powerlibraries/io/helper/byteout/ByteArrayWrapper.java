@@ -3,9 +3,14 @@ package com.github.powerlibraries.io.helper.byteout;
 import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 
+import com.github.powerlibraries.io.helper.ByteBuffersInputStream;
+
 /**
  * This interface should be used in all classes that extend a normal Writer or InputStream but rely upon
  * a {@link ByteArrayOutputStream} at the end of the chain. This interface implements default delegate methods
@@ -37,6 +42,53 @@ public interface ByteArrayWrapper extends Closeable {
 		getUnderlyingOutput().writeTo(out);
 	}
 
+	/**
+	 * Writes the complete contents of the underlying output to the given channel. If the underlying output is a 
+	 * {@link ChunkedByteArrayOutputStream} the bytes are written without copying them into a single array.
+	 * 
+	 * This method automatically closes this stream or writer.
+	 * 
+	 * @param channel the channel to write to
+	 * @throws IOException if an I/O error occurs
+	 */
+	public default void writeTo(WritableByteChannel channel) throws IOException {
+		close();
+		ByteArrayOutputStream out=getUnderlyingOutput();
+		if(out instanceof ChunkedByteArrayOutputStream)
+			((ChunkedByteArrayOutputStream)out).writeTo(channel);
+		else {
+			ByteBuffer buffer=ByteBuffer.wrap(out.toByteArray());
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+		}
+	}
+	
+	/**
+	 * Returns the written bytes as a sequence of read-only {@link ByteBuffer}s. If the underlying output is a 
+	 * {@link ChunkedByteArrayOutputStream} the buffers share their content with it instead of copying it.
+	 * 
+	 * This method automatically closes this stream or writer.
+	 * @return the written bytes
+	 */
+	public default ByteBuffer[] asByteBuffers() {
+		closeSilently();
+		ByteArrayOutputStream out=getUnderlyingOutput();
+		if(out instanceof ChunkedByteArrayOutputStream)
+			return ((ChunkedByteArrayOutputStream)out).asByteBuffers();
+		return new ByteBuffer[] {ByteBuffer.wrap(out.toByteArray()).asReadOnlyBuffer()};
+	}
+	
+	/**
+	 * Returns an {@link InputStream} that reads the written bytes. If the underlying output is a 
+	 * {@link ChunkedByteArrayOutputStream} the bytes are read without copying them into a single array.
+	 * 
+	 * This method automatically closes this stream or writer.
+	 * @return an {@link InputStream} reading the written bytes
+	 */
+	public default InputStream asInputStream() {
+		return new ByteBuffersInputStream(asByteBuffers());
+	}
+
 	/**
      * Resets the <code>count</code> field of this byte array output
      * stream to zero, so that all currently accumulated output in the
@@ -0,0 +1,206 @@
+package com.github.powerlibraries.io.helper.byteout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Objects;
+
+import com.github.powerlibraries.io.helper.ByteBuffersInputStream;
+
+/**
+ * This class is a {@link ByteArrayOutputStream} that stores the written bytes in a list of chunks instead of a
+ * single array. In contrast to a normal {@link ByteArrayOutputStream} it never copies the already written bytes
+ * when it grows. The chunks start small and double in size up to a maximum chunk size. They can optionally be
+ * allocated as direct {@link ByteBuffer}s.
+ * <p>
+ * Besides the normal {@link ByteArrayOutputStream} methods this class offers {@link #asByteBuffers()},
+ * {@link #asInputStream()} and {@link #writeTo(WritableByteChannel)} which give access to the written bytes
+ * without copying them into a single array.
+ */
+public class ChunkedByteArrayOutputStream extends ByteArrayOutputStream {
+
+	/**
+	 * The default maximum size of a single chunk.
+	 */
+	public static final int DEFAULT_MAX_CHUNK_SIZE=1<<20;
+	private static final int FIRST_CHUNK_SIZE=256;
+
+	private final int maxChunkSize;
+	private final boolean direct;
+	private final ArrayList<ByteBuffer> chunks=new ArrayList<>();
+	private int currentChunk=-1;
+	private long length=0;
+
+	public ChunkedByteArrayOutputStream() {
+		this(DEFAULT_MAX_CHUNK_SIZE, false);
+	}
+
+	/**
+	 * @param maxChunkSize the maximum size of a single chunk
+	 * @param direct if the chunks should be allocated as direct {@link ByteBuffer}s
+	 */
+	public ChunkedByteArrayOutputStream(int maxChunkSize, boolean direct) {
+		super(0);
+		if(maxChunkSize<=0)
+			throw new IllegalArgumentException("maxChunkSize must be positive");
+		this.maxChunkSize=maxChunkSize;
+		this.direct=direct;
+	}
+
+	/**
+	 * @return a chunk with remaining space
+	 */
+	private ByteBuffer chunk() {
+		if(currentChunk>=0) {
+			ByteBuffer chunk=chunks.get(currentChunk);
+			if(chunk.hasRemaining())
+				return chunk;
+		}
+		currentChunk++;
+		if(currentChunk<chunks.size())
+			return chunks.get(currentChunk);
+		int size=(int)Math.min(maxChunkSize, Math.max(FIRST_CHUNK_SIZE, length));
+		ByteBuffer chunk=direct?ByteBuffer.allocateDirect(size):ByteBuffer.allocate(size);
+		chunks.add(chunk);
+		return chunk;
+	}
+
+	@Override
+	public synchronized void write(int b) {
+		chunk().put((byte)b);
+		length++;
+	}
+
+	@Override
+	public synchronized void write(byte[] b, int off, int len) {
+		Objects.checkFromIndexSize(off, len, b.length);
+		while(len>0) {
+			ByteBuffer chunk=chunk();
+			int n=Math.min(len, chunk.remaining());
+			chunk.put(b, off, n);
+			off+=n;
+			len-=n;
+			length+=n;
+		}
+	}
+
+	@Override
+	public synchronized void writeTo(OutputStream out) throws IOException {
+		byte[] transfer=null;
+		for(int i=0;i<=currentChunk;i++) {
+			ByteBuffer chunk=chunks.get(i);
+			if(chunk.hasArray())
+				out.write(chunk.array(), chunk.arrayOffset(), chunk.position());
+			else {
+				if(transfer==null)
+					transfer=new byte[Math.min(8192, maxChunkSize)];
+				ByteBuffer content=chunk.duplicate().flip();
+				while(content.hasRemaining()) {
+					int n=Math.min(transfer.length, content.remaining());
+					content.get(transfer, 0, n);
+					out.write(transfer, 0, n);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the complete contents of this stream to the given channel without copying them.
+	 * @param channel the channel to write to
+	 * @throws IOException if the channel throws an {@link IOException}
+	 */
+	public synchronized void writeTo(WritableByteChannel channel) throws IOException {
+		for(ByteBuffer content:asByteBuffers()) {
+			while(content.hasRemaining())
+				channel.write(content);
+		}
+	}
+
+	/**
+	 * This method returns read-only views of the chunks that were written so far. The returned buffers share their
+	 * content with this stream, so they are only valid until this stream is reset.
+	 * @return the written chunks
+	 */
+	public synchronized ByteBuffer[] asByteBuffers() {
+		ByteBuffer[] buffers=new ByteBuffer[currentChunk+1];
+		for(int i=0;i<buffers.length;i++)
+			buffers[i]=chunks.get(i).duplicate().flip().asReadOnlyBuffer();
+		return buffers;
+	}
+
+	/**
+	 * This method returns an {@link InputStream} that reads the bytes written so far without copying them. The
+	 * returned stream is only valid until this stream is reset.
+	 * @return an {@link InputStream} reading the content of this stream
+	 */
+	public InputStream asInputStream() {
+		return new ByteBuffersInputStream(asByteBuffers());
+	}
+
+	@Override
+	public synchronized void reset() {
+		for(ByteBuffer chunk:chunks)
+			chunk.clear();
+		currentChunk=chunks.isEmpty()?-1:0;
+		length=0;
+	}
+
+	@Override
+	public synchronized byte[] toByteArray() {
+		if(length>Integer.MAX_VALUE-8)
+			throw new OutOfMemoryError("The content of this stream is too large for a single array");
+		byte[] result=new byte[(int)length];
+		int offset=0;
+		for(int i=0;i<=currentChunk;i++) {
+			ByteBuffer content=chunks.get(i).duplicate().flip();
+			int n=content.remaining();
+			content.get(result, offset, n);
+			offset+=n;
+		}
+		return result;
+	}
+
+	@Override
+	public synchronized int size() {
+		return (int)Math.min(length, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return the number of bytes written to this stream
+	 */
+	public synchronized long length() {
+		return length;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return new String(toByteArray());
+	}
+
+	@Override
+	public synchronized String toString(String charsetName) throws UnsupportedEncodingException {
+		return new String(toByteArray(), charsetName);
+	}
+
+	/**
+	 * Converts the content of this stream into a string by decoding the bytes using the given charset.
+	 * @param charset the charset used to decode the bytes
+	 * @return the decoded content of this stream
+	 */
+	public synchronized String toString(Charset charset) {
+		return new String(toByteArray(), charset);
+	}
+
+	@Override
+	@Deprecated
+	public synchronized String toString(int hibyte) {
+		byte[] bytes=toByteArray();
+		return new String(bytes, hibyte, 0, bytes.length);
+	}
+}
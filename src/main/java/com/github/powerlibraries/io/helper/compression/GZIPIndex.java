@@ -0,0 +1,210 @@
+package com.github.powerlibraries.io.helper.compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * This class represents the block index of a gzip file written by {@link IndexedGZIPOutputStream}. It maps the
+ * uncompressed offset of each block to the compressed offset of the gzip member containing it.
+ * <p>
+ * The index is stored at the end of the file as a sequence of empty gzip members. Each of them carries a part
+ * of the index in a subfield of its extra field (subfield id <code>IX</code>, pairs of little endian longs with
+ * the compressed and the uncompressed offset of a block). The file ends with another empty member of fixed size
+ * whose extra field (subfield id <code>IT</code>) contains the offset of the first index member and the total
+ * uncompressed length. Since the index members decompress to nothing, programs that do not know about the index
+ * simply ignore it.
+ */
+public class GZIPIndex {
+
+	private static final byte FLAG_EXTRA=0x04;
+	private static final int ENTRY_LENGTH=16;
+	private static final int MAX_ENTRIES_PER_MEMBER=(0xFFFF-4)/ENTRY_LENGTH;
+	/**
+	 * An empty final deflate block.
+	 */
+	private static final byte[] EMPTY_DEFLATE={0x03, 0x00};
+	private static final int TRAILER_PAYLOAD=16;
+	/**
+	 * The length of the fixed size member at the end of an indexed file.
+	 */
+	public static final int TRAILER_LENGTH=memberLength(TRAILER_PAYLOAD);
+
+	private final long[] compressedOffsets;
+	private final long[] uncompressedOffsets;
+	private final long uncompressedLength;
+
+	private GZIPIndex(long[] compressedOffsets, long[] uncompressedOffsets, long uncompressedLength) {
+		this.compressedOffsets=compressedOffsets;
+		this.uncompressedOffsets=uncompressedOffsets;
+		this.uncompressedLength=uncompressedLength;
+	}
+
+	/**
+	 * @return the number of blocks in the file
+	 */
+	public int size() {
+		return compressedOffsets.length;
+	}
+
+	/**
+	 * @param block the index of a block
+	 * @return the offset of the gzip member containing the given block in the compressed file
+	 */
+	public long getCompressedOffset(int block) {
+		return compressedOffsets[block];
+	}
+
+	/**
+	 * @param block the index of a block
+	 * @return the offset of the first byte of the given block in the uncompressed content
+	 */
+	public long getUncompressedOffset(int block) {
+		return uncompressedOffsets[block];
+	}
+
+	/**
+	 * @return the length of the complete uncompressed content
+	 */
+	public long getUncompressedLength() {
+		return uncompressedLength;
+	}
+
+	/**
+	 * @param uncompressedOffset an offset in the uncompressed content
+	 * @return the index of the block that contains the given offset
+	 */
+	public int findBlock(long uncompressedOffset) {
+		int index=Arrays.binarySearch(uncompressedOffsets, uncompressedOffset);
+		if(index>=0)
+			return index;
+		return Math.max(0, -index-2);
+	}
+
+	/**
+	 * This method reads the index of the given file. The position of the channel is not changed.
+	 * @param channel the channel of an indexed gzip file
+	 * @return the index of the file or null if the file does not end with an index
+	 * @throws IOException if reading the channel throws an {@link IOException}
+	 */
+	public static GZIPIndex read(FileChannel channel) throws IOException {
+		long size=channel.size();
+		if(size<TRAILER_LENGTH)
+			return null;
+		ByteBuffer trailer=readFully(channel, size-TRAILER_LENGTH, TRAILER_LENGTH);
+		if(trailer==null || !readMemberHeader(trailer, 'I', 'T', TRAILER_PAYLOAD))
+			return null;
+		long indexOffset=trailer.getLong();
+		long uncompressedLength=trailer.getLong();
+		if(indexOffset<0 || indexOffset>size-TRAILER_LENGTH)
+			return null;
+
+		ByteBuffer index=readFully(channel, indexOffset, (int)(size-TRAILER_LENGTH-indexOffset));
+		if(index==null)
+			return null;
+		int entries=0;
+		long[] compressedOffsets=new long[16];
+		long[] uncompressedOffsets=new long[16];
+		while(index.hasRemaining()) {
+			int start=index.position();
+			if(index.remaining()<memberLength(0) || !readMemberHeader(index, 'I', 'X', -1))
+				return null;
+			int payload=index.getShort(start+GZIPMembers.HEADER_LENGTH+4)&0xFFFF;
+			if(payload%ENTRY_LENGTH!=0 || index.remaining()<payload+EMPTY_DEFLATE.length+GZIPMembers.TRAILER_LENGTH)
+				return null;
+			for(int i=0;i<payload/ENTRY_LENGTH;i++) {
+				if(entries==compressedOffsets.length) {
+					compressedOffsets=Arrays.copyOf(compressedOffsets, entries*2);
+					uncompressedOffsets=Arrays.copyOf(uncompressedOffsets, entries*2);
+				}
+				compressedOffsets[entries]=index.getLong();
+				uncompressedOffsets[entries]=index.getLong();
+				entries++;
+			}
+			index.position(index.position()+EMPTY_DEFLATE.length+GZIPMembers.TRAILER_LENGTH);
+		}
+		return new GZIPIndex(
+			Arrays.copyOf(compressedOffsets, entries),
+			Arrays.copyOf(uncompressedOffsets, entries),
+			uncompressedLength
+		);
+	}
+
+	/**
+	 * This method encodes the given block offsets as a sequence of empty gzip members followed by the
+	 * trailer member.
+	 * @param compressedOffsets the compressed offset of each block
+	 * @param uncompressedOffsets the uncompressed offset of each block
+	 * @param blocks the number of blocks
+	 * @param indexOffset the compressed offset the encoded index will be written to
+	 * @param uncompressedLength the total number of uncompressed bytes
+	 * @return the encoded index
+	 */
+	static byte[] encode(long[] compressedOffsets, long[] uncompressedOffsets, int blocks, long indexOffset, long uncompressedLength) {
+		int members=(blocks+MAX_ENTRIES_PER_MEMBER-1)/MAX_ENTRIES_PER_MEMBER;
+		ByteBuffer out=ByteBuffer
+			.allocate(members*memberLength(0)+blocks*ENTRY_LENGTH+TRAILER_LENGTH)
+			.order(ByteOrder.LITTLE_ENDIAN);
+		for(int first=0;first<blocks;first+=MAX_ENTRIES_PER_MEMBER) {
+			int entries=Math.min(MAX_ENTRIES_PER_MEMBER, blocks-first);
+			writeMemberHeader(out, 'I', 'X', entries*ENTRY_LENGTH);
+			for(int i=first;i<first+entries;i++) {
+				out.putLong(compressedOffsets[i]);
+				out.putLong(uncompressedOffsets[i]);
+			}
+			writeMemberTrailer(out);
+		}
+		writeMemberHeader(out, 'I', 'T', TRAILER_PAYLOAD);
+		out.putLong(indexOffset);
+		out.putLong(uncompressedLength);
+		writeMemberTrailer(out);
+		return out.array();
+	}
+
+	private static int memberLength(int payload) {
+		return GZIPMembers.HEADER_LENGTH+2+4+payload+EMPTY_DEFLATE.length+GZIPMembers.TRAILER_LENGTH;
+	}
+
+	private static void writeMemberHeader(ByteBuffer out, char si1, char si2, int payload) {
+		out.put((byte)0x1f).put((byte)0x8b).put((byte)8).put(FLAG_EXTRA);
+		out.putInt(0).put((byte)0).put((byte)0);
+		out.putShort((short)(payload+4));
+		out.put((byte)si1).put((byte)si2).putShort((short)payload);
+	}
+
+	private static void writeMemberTrailer(ByteBuffer out) {
+		out.put(EMPTY_DEFLATE);
+		out.putInt(0).putInt(0);
+	}
+
+	/**
+	 * Reads and checks the header of an index member up to the start of the payload.
+	 * @param in the buffer positioned at the start of the member
+	 * @param si1 the expected first subfield id byte
+	 * @param si2 the expected second subfield id byte
+	 * @param payload the expected length of the payload or -1 if any length is accepted
+	 * @return true if the header is valid
+	 */
+	private static boolean readMemberHeader(ByteBuffer in, char si1, char si2, int payload) {
+		if(in.get()!=(byte)0x1f || in.get()!=(byte)0x8b || in.get()!=8 || in.get()!=FLAG_EXTRA)
+			return false;
+		in.position(in.position()+6);
+		int xlen=in.getShort()&0xFFFF;
+		if(in.get()!=(byte)si1 || in.get()!=(byte)si2)
+			return false;
+		int length=in.getShort()&0xFFFF;
+		return xlen==length+4 && (payload<0 || length==payload);
+	}
+
+	private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer=ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, position+buffer.position())<0)
+				return null;
+		}
+		buffer.flip();
+		return buffer;
+	}
+}
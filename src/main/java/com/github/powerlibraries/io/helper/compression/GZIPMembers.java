@@ -0,0 +1,85 @@
+package com.github.powerlibraries.io.helper.compression;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * This class contains static helper methods to create single members of a gzip file (RFC 1952). A gzip file
+ * may consist of any number of concatenated members which are decompressed as one continuous stream by
+ * {@link java.util.zip.GZIPInputStream} and the gzip tool. Because each member is compressed independently
+ * of the others, members can be created in parallel or be decompressed on their own.
+ */
+public final class GZIPMembers {
+
+	/**
+	 * The length of the header written by this class.
+	 */
+	public static final int HEADER_LENGTH=10;
+	/**
+	 * The length of the trailer of each member containing the CRC32 and the uncompressed length.
+	 */
+	public static final int TRAILER_LENGTH=8;
+
+	/**
+	 * There is no reason to create an instance.
+	 */
+	private GZIPMembers() {}
+
+	/**
+	 * This method compresses the given bytes into a complete gzip member.
+	 * @param data the array containing the bytes to compress
+	 * @param offset the offset of the first byte to compress
+	 * @param length the number of bytes to compress
+	 * @param level the compression level, see {@link Deflater}
+	 * @return an array containing exactly the compressed member
+	 */
+	public static byte[] compress(byte[] data, int offset, int length, int level) {
+		Deflater deflater=new Deflater(level, true);
+		try {
+			deflater.setInput(data, offset, length);
+			deflater.finish();
+			byte[] out=new byte[HEADER_LENGTH+length+(length>>3)+64+TRAILER_LENGTH];
+			writeHeader(out);
+			int position=HEADER_LENGTH;
+			while(!deflater.finished()) {
+				if(out.length-position<TRAILER_LENGTH+64)
+					out=Arrays.copyOf(out, out.length*2);
+				position+=deflater.deflate(out, position, out.length-position-TRAILER_LENGTH);
+			}
+			CRC32 crc=new CRC32();
+			crc.update(data, offset, length);
+			writeInt(out, position, (int)crc.getValue());
+			writeInt(out, position+4, length);
+			position+=TRAILER_LENGTH;
+			return position==out.length?out:Arrays.copyOf(out, position);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * This method writes a minimal gzip header without any optional fields to the beginning of the given array.
+	 * @param out the array to write to
+	 */
+	private static void writeHeader(byte[] out) {
+		out[0]=(byte)0x1f;
+		out[1]=(byte)0x8b;
+		out[2]=Deflater.DEFLATED;
+		//flags, modification time, extra flags and operating system are all left at 0
+		Arrays.fill(out, 3, HEADER_LENGTH, (byte)0);
+	}
+
+	/**
+	 * Writes the given int in little endian order.
+	 * @param out the array to write to
+	 * @param offset the position to write to
+	 * @param value the value to write
+	 */
+	static void writeInt(byte[] out, int offset, int value) {
+		out[offset]=(byte)value;
+		out[offset+1]=(byte)(value>>>8);
+		out[offset+2]=(byte)(value>>>16);
+		out[offset+3]=(byte)(value>>>24);
+	}
+}
@@ -0,0 +1,142 @@
+package com.github.powerlibraries.io.helper.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.zip.Deflater;
+
+/**
+ * This class is a gzip compressing {@link OutputStream} that writes a block compressed file with an index of
+ * its blocks. The written bytes are split into blocks which are compressed as independent gzip members. When the
+ * stream is closed the offsets of all blocks are appended as additional empty gzip members that store the index
+ * in their extra field (see {@link GZIPIndex}). The result is still a valid gzip file that can be read by
+ * {@link java.util.zip.GZIPInputStream} or the gzip tool, but it also allows to start decompressing at any
+ * block with {@link com.github.powerlibraries.io.builder.InBuilder#seek(long)}.
+ * <p>
+ * The offsets of the index are counted from the first byte written by this stream, so the compressed bytes
+ * have to be written to the beginning of a file without any further encoding.
+ */
+public class IndexedGZIPOutputStream extends OutputStream {
+
+	/**
+	 * The default number of uncompressed bytes in a single block.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE=1<<16;
+
+	private final OutputStream out;
+	private final int level;
+	private final byte[] block;
+	private int blockLength;
+	private long compressedOffset=0;
+	private long uncompressedOffset=0;
+	private long[] compressedOffsets=new long[16];
+	private long[] uncompressedOffsets=new long[16];
+	private int blocks=0;
+	private boolean finished=false;
+	private boolean closed=false;
+
+	/**
+	 * Creates a new stream that compresses blocks of {@link #DEFAULT_BLOCK_SIZE} bytes with the default compression
+	 * level.
+	 * @param out the stream the compressed bytes are written to
+	 */
+	public IndexedGZIPOutputStream(OutputStream out) {
+		this(out, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * @param out the stream the compressed bytes are written to
+	 * @param blockSize the number of uncompressed bytes in a single block
+	 * @param level the compression level, see {@link Deflater}
+	 */
+	public IndexedGZIPOutputStream(OutputStream out, int blockSize, int level) {
+		if(blockSize<=0)
+			throw new IllegalArgumentException("blockSize must be positive");
+		this.out=Objects.requireNonNull(out);
+		this.level=level;
+		this.block=new byte[blockSize];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		block[blockLength++]=(byte)b;
+		if(blockLength==block.length)
+			writeBlock();
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		ensureOpen();
+		while(len>0) {
+			int n=Math.min(len, block.length-blockLength);
+			System.arraycopy(b, off, block, blockLength, n);
+			blockLength+=n;
+			off+=n;
+			len-=n;
+			if(blockLength==block.length)
+				writeBlock();
+		}
+	}
+
+	/**
+	 * Flushes the underlying stream. The currently buffered bytes are not written as an incomplete block,
+	 * so that all blocks but the last one have the same size.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		out.flush();
+	}
+
+	/**
+	 * Writes the last block and the index to the underlying stream without closing it.
+	 * @throws IOException if the underlying stream throws an {@link IOException}
+	 */
+	public void finish() throws IOException {
+		if(finished)
+			return;
+		ensureOpen();
+		if(blockLength>0 || blocks==0)
+			writeBlock();
+		long indexOffset=compressedOffset;
+		byte[] index=GZIPIndex.encode(compressedOffsets, uncompressedOffsets, blocks, indexOffset, uncompressedOffset);
+		out.write(index);
+		compressedOffset+=index.length;
+		finished=true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(closed)
+			return;
+		try {
+			finish();
+		} finally {
+			closed=true;
+			out.close();
+		}
+	}
+
+	private void writeBlock() throws IOException {
+		if(blocks==compressedOffsets.length) {
+			compressedOffsets=Arrays.copyOf(compressedOffsets, blocks*2);
+			uncompressedOffsets=Arrays.copyOf(uncompressedOffsets, blocks*2);
+		}
+		compressedOffsets[blocks]=compressedOffset;
+		uncompressedOffsets[blocks]=uncompressedOffset;
+		blocks++;
+		byte[] member=GZIPMembers.compress(block, 0, blockLength, level);
+		out.write(member);
+		compressedOffset+=member.length;
+		uncompressedOffset+=blockLength;
+		blockLength=0;
+	}
+
+	private void ensureOpen() throws IOException {
+		if(closed || finished)
+			throw new IOException("Stream closed");
+	}
+}
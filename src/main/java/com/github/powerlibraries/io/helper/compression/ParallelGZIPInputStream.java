@@ -0,0 +1,587 @@
+package com.github.powerlibraries.io.helper.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import com.github.powerlibraries.io.functions.InputStreamWrapper;
+
+/**
+ * This class is a gzip decompressing {@link InputStream} that inflates the members of a multi-member gzip file in
+ * parallel on an {@link Executor}. Files like this are written by {@link ParallelGZIPOutputStream},
+ * {@link IndexedGZIPOutputStream}, pigz, bgzip or by appending gzip files. The compressed bytes are read by the
+ * thread that reads this stream and are cut into chunks of whole members, which are inflated in parallel and
+ * returned in order.
+ * <p>
+ * If the offsets of the members are known, e.g. from a {@link GZIPIndex}, the chunks are cut at these offsets.
+ * Otherwise the stream cuts at bytes that look like the header of a member. A chunk is only accepted if it
+ * inflates to complete members that end exactly at the end of the chunk, so a cut in the middle of a member is
+ * detected and the chunk is inflated again together with the next one. If no member starts within
+ * {@link #MAX_CHUNK_FACTOR} times the chunk size, e.g. because the file consists of a single large member, the
+ * rest of the stream is inflated sequentially by a {@link GZIPInputStream}.
+ * <p>
+ * The memory is bounded by the given number of pending bytes: new chunks are only submitted while the compressed
+ * and inflated bytes of the pending chunks are below it. A chunk that is still inflating counts with its compressed
+ * bytes plus the most inflated bytes it may keep, which is an eighth of the pending bytes. A chunk that inflates to
+ * more bytes is only checked by the executor and then inflated again while it is read. In addition the stream 
+ * keeps a buffer of up to {@link #MAX_CHUNK_FACTOR} times the chunk size of compressed bytes.
+ */
+public class ParallelGZIPInputStream extends InputStream {
+
+	/**
+	 * The default minimum number of compressed bytes in a chunk.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE=1<<20;
+	/**
+	 * The factor of the chunk size after which the stream stops searching for members and inflates the rest
+	 * sequentially.
+	 */
+	public static final int MAX_CHUNK_FACTOR=16;
+	/**
+	 * The default number of compressed and inflated bytes of the pending chunks after which no new chunks are 
+	 * submitted.
+	 */
+	public static final long DEFAULT_MAX_PENDING_BYTES=256L<<20;
+	private static final int HEADER_LENGTH=GZIPMembers.HEADER_LENGTH;
+	private static final int TRAILER_LENGTH=GZIPMembers.TRAILER_LENGTH;
+	private static final int FLAG_HEADER_CRC=0x02;
+	private static final int FLAG_EXTRA=0x04;
+	private static final int FLAG_NAME=0x08;
+	private static final int FLAG_COMMENT=0x10;
+
+	private final InputStream in;
+	private final Executor executor;
+	private final int chunkSize;
+	private final long[] boundaries;
+	private final int maxPendingChunks;
+	private final long maxPendingBytes;
+	private final int inflatedLimit;
+	private final ArrayDeque<Chunk> pending=new ArrayDeque<>();
+	private final byte[] singleByte=new byte[1];
+	private byte[] buffer;
+	private int length;
+	private int scanned;
+	private long bufferOffset=0;
+	private int nextBoundary=0;
+	private boolean sourceEnded=false;
+	private boolean sequentialRest=false;
+	private boolean readAny=false;
+	private InputStream sequential;
+	private InputStream streamed;
+	private Inflated output;
+	private int position;
+	private boolean closed=false;
+
+	/**
+	 * Creates a new stream that inflates chunks of {@link #DEFAULT_CHUNK_SIZE} compressed bytes on the
+	 * {@link ForkJoinPool#commonPool()}.
+	 * @param in the stream of compressed bytes
+	 */
+	public ParallelGZIPInputStream(InputStream in) {
+		this(in, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE, null);
+	}
+
+	/**
+	 * @param in the stream of compressed bytes
+	 * @param executor the executor that inflates the chunks
+	 * @param chunkSize the minimum number of compressed bytes in a chunk
+	 * @param boundaries the sorted offsets of the members in the given stream or null if they are not known
+	 */
+	public ParallelGZIPInputStream(InputStream in, Executor executor, int chunkSize, long[] boundaries) {
+		this(in, executor, chunkSize, boundaries, DEFAULT_MAX_PENDING_BYTES);
+	}
+
+	/**
+	 * @param in the stream of compressed bytes
+	 * @param executor the executor that inflates the chunks
+	 * @param chunkSize the minimum number of compressed bytes in a chunk
+	 * @param boundaries the sorted offsets of the members in the given stream or null if they are not known
+	 * @param maxPendingBytes the number of compressed and inflated bytes of the pending chunks after which no new
+	 * chunks are submitted
+	 */
+	public ParallelGZIPInputStream(InputStream in, Executor executor, int chunkSize, long[] boundaries, long maxPendingBytes) {
+		if(chunkSize<=0)
+			throw new IllegalArgumentException("chunkSize must be positive");
+		if(maxPendingBytes<=0)
+			throw new IllegalArgumentException("maxPendingBytes must be positive");
+		this.in=Objects.requireNonNull(in);
+		this.executor=Objects.requireNonNull(executor);
+		this.chunkSize=chunkSize;
+		this.boundaries=boundaries;
+		this.maxPendingChunks=2*Runtime.getRuntime().availableProcessors();
+		this.maxPendingBytes=maxPendingBytes;
+		this.inflatedLimit=(int)Math.max(1024, Math.min(maxPendingBytes/8, Integer.MAX_VALUE-8));
+		this.buffer=new byte[Math.max(chunkSize+(chunkSize>>1), 1<<16)];
+		this.scanned=chunkSize;
+	}
+
+	/**
+	 * This method creates a wrapper that can be used with
+	 * {@link com.github.powerlibraries.io.builder.InBuilder#decompress(InputStreamWrapper)} or the
+	 * {@link com.github.powerlibraries.io.helper.CompressorRegistry}.
+	 * @param executor the executor that inflates the chunks
+	 * @param chunkSize the minimum number of compressed bytes in a chunk
+	 * @return a wrapper creating {@link ParallelGZIPInputStream}s
+	 */
+	public static InputStreamWrapper wrapper(Executor executor, int chunkSize) {
+		return in -> new ParallelGZIPInputStream(in, executor, chunkSize, null);
+	}
+
+	/**
+	 * This method converts the index of a gzip file to the offsets of the members in a stream starting at the
+	 * given offset of the file.
+	 * @param index the index of the file
+	 * @param start the offset in the file at which the stream starts
+	 * @return the offsets for {@link #ParallelGZIPInputStream(InputStream, Executor, int, long[])}
+	 */
+	public static long[] boundaries(GZIPIndex index, long start) {
+		long[] boundaries=new long[index.size()];
+		int count=0;
+		for(int i=0;i<index.size();i++) {
+			long offset=index.getCompressedOffset(i)-start;
+			if(offset>0)
+				boundaries[count++]=offset;
+		}
+		return Arrays.copyOf(boundaries, count);
+	}
+
+	@Override
+	public int read() throws IOException {
+		return read(singleByte, 0, 1)<0?-1:singleByte[0]&0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		ensureOpen();
+		if(len==0)
+			return 0;
+		while(true) {
+			if(output!=null && position<output.length) {
+				int n=Math.min(len, output.length-position);
+				System.arraycopy(output.bytes, position, b, off, n);
+				position+=n;
+				return n;
+			}
+			if(sequential!=null)
+				return sequential.read(b, off, len);
+			if(streamed!=null) {
+				int read=streamed.read(b, off, len);
+				if(read>=0)
+					return read;
+				streamed.close();
+				streamed=null;
+			}
+			if(!nextOutput())
+				return -1;
+		}
+	}
+
+	@Override
+	public int available() throws IOException {
+		ensureOpen();
+		if(output!=null && position<output.length)
+			return output.length-position;
+		if(streamed!=null)
+			return streamed.available();
+		return sequential==null?0:sequential.available();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(closed)
+			return;
+		closed=true;
+		for(Chunk c:pending)
+			c.result.cancel(false);
+		pending.clear();
+		output=null;
+		buffer=null;
+		if(streamed!=null)
+			streamed.close();
+		if(sequential!=null)
+			sequential.close();
+		else
+			in.close();
+	}
+
+	private void ensureOpen() throws IOException {
+		if(closed)
+			throw new IOException("Stream closed");
+	}
+
+	/**
+	 * This method makes the inflated bytes of the next chunk the output or switches to sequential inflating.
+	 * @return false at the end of the stream
+	 */
+	private boolean nextOutput() throws IOException {
+		output=null;
+		while(true) {
+			fill();
+			if(pending.isEmpty()) {
+				if(sequentialRest) {
+					startSequential(null);
+					return true;
+				}
+				if(!readAny)
+					throw new EOFException("Unexpected end of ZLIB input stream");
+				return false;
+			}
+			Chunk head=pending.poll();
+			Inflated result=null;
+			Throwable failure=null;
+			try {
+				result=head.result.get();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for an inflated chunk");
+			} catch(ExecutionException e) {
+				failure=e.getCause();
+				if(failure instanceof UncheckedIOException)
+					failure=failure.getCause();
+			}
+			fill();
+			boolean last=pending.isEmpty() && sourceEnded && length==0 && !sequentialRest;
+			//the last chunk may end with garbage that is ignored like by GZIPInputStream
+			if(failure==null && (result.exact || last)) {
+				if(result.bytes==null) {
+					//the chunk was too large to keep its inflated bytes, but it is known to be valid
+					streamed=new GZIPInputStream(new Concatenated(new ByteArrayInputStream(head.data)));
+					return true;
+				}
+				output=result;
+				position=0;
+				return true;
+			}
+			if(failure==null)
+				throw new ZipException("Unexpected bytes after a GZIP member");
+			ZipException error=new ZipException(failure.getMessage());
+			error.initCause(failure);
+			if(!(failure instanceof TruncatedException))
+				throw error;
+			//the chunk was cut in the middle of a member, so it is inflated again with the next chunk
+			if(!pending.isEmpty()) {
+				Chunk next=pending.poll();
+				next.result.cancel(false);
+				byte[] merged=Arrays.copyOf(head.data, head.data.length+next.data.length);
+				System.arraycopy(next.data, 0, merged, head.data.length, next.data.length);
+				pending.addFirst(submit(merged));
+			}
+			else if(sequentialRest) {
+				startSequential(head.data);
+				return true;
+			}
+			else
+				throw error;
+		}
+	}
+
+	/**
+	 * This method reads compressed bytes and submits chunks until enough chunks or bytes are pending.
+	 */
+	private void fill() throws IOException {
+		while(pending.size()<maxPendingChunks && (pending.isEmpty() || pendingBytes()<maxPendingBytes) 
+				&& !sourceEnded && !sequentialRest) {
+			int cut=findCut();
+			if(cut>0) {
+				pending.add(submit(Arrays.copyOf(buffer, cut)));
+				System.arraycopy(buffer, cut, buffer, 0, length-cut);
+				length-=cut;
+				bufferOffset+=cut;
+				scanned=Math.max(chunkSize, scanned-cut);
+				continue;
+			}
+			if(length>=MAX_CHUNK_FACTOR*(long)chunkSize) {
+				sequentialRest=true;
+				return;
+			}
+			if(length==buffer.length)
+				buffer=Arrays.copyOf(buffer, (int)Math.min(buffer.length*2L, MAX_CHUNK_FACTOR*(long)chunkSize+HEADER_LENGTH));
+			int read=in.read(buffer, length, buffer.length-length);
+			if(read<0) {
+				sourceEnded=true;
+				if(length>0)
+					pending.add(submit(Arrays.copyOf(buffer, length)));
+				length=0;
+			}
+			else {
+				length+=read;
+				readAny|=read>0;
+			}
+		}
+	}
+
+	/**
+	 * @return the compressed and inflated bytes of the pending chunks and of the output
+	 */
+	private long pendingBytes() {
+		long bytes=output==null?0:output.bytes.length;
+		for(Chunk c:pending) {
+			bytes+=c.data.length;
+			Inflated result=c.result.isDone() && !c.result.isCompletedExceptionally()?c.result.join():null;
+			if(result==null)
+				bytes+=c.result.isDone()?0:inflatedLimit;
+			else if(result.bytes!=null)
+				bytes+=result.bytes.length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return the position of the first member in the buffer after the chunk size or -1 if none was found yet
+	 */
+	private int findCut() {
+		if(boundaries!=null) {
+			while(nextBoundary<boundaries.length && boundaries[nextBoundary]-bufferOffset<chunkSize)
+				nextBoundary++;
+			if(nextBoundary<boundaries.length && boundaries[nextBoundary]-bufferOffset<=length)
+				return (int)(boundaries[nextBoundary]-bufferOffset);
+			return -1;
+		}
+		for(;scanned+HEADER_LENGTH<=length;scanned++) {
+			if(isHeader(buffer, scanned))
+				return scanned;
+		}
+		return -1;
+	}
+
+	/**
+	 * Starts inflating the rest of the stream with a {@link GZIPInputStream}.
+	 * @param prefix compressed bytes that precede the buffered bytes or null
+	 */
+	private void startSequential(byte[] prefix) throws IOException {
+		InputStream rest=new SequenceInputStream(new ByteArrayInputStream(buffer, 0, length), in);
+		if(prefix!=null)
+			rest=new SequenceInputStream(new ByteArrayInputStream(prefix), rest);
+		buffer=null;
+		length=0;
+		sequential=new GZIPInputStream(new Concatenated(rest));
+	}
+
+	private Chunk submit(byte[] data) {
+		return new Chunk(data, CompletableFuture.supplyAsync(() -> {
+			try {
+				return inflate(data, inflatedLimit);
+			} catch(ZipException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, executor));
+	}
+
+	/**
+	 * This method checks if a gzip member could start at the given position. The check is only based on the fixed
+	 * part of the header, so it might accept bytes inside of a member.
+	 */
+	private static boolean isHeader(byte[] b, int p) {
+		if(b[p]!=(byte)0x1f || b[p+1]!=(byte)0x8b || b[p+2]!=8 || (b[p+3]&0xE0)!=0)
+			return false;
+		int extraFlags=b[p+8]&0xFF;
+		int os=b[p+9]&0xFF;
+		return (extraFlags==0 || extraFlags==2 || extraFlags==4) && (os<=13 || os==255);
+	}
+
+	/**
+	 * This method inflates all members in the given chunk.
+	 * @param data a chunk that starts with a member
+	 * @param limit the maximum number of inflated bytes that are kept
+	 * @return the inflated bytes, without the bytes if there are more than the limit
+	 * @throws ZipException if the chunk does not start with a member or a member is broken or incomplete
+	 */
+	static Inflated inflate(byte[] data, int limit) throws ZipException {
+		Inflater inflater=new Inflater(true);
+		CRC32 crc=new CRC32();
+		try {
+			byte[] out=new byte[(int)Math.min(limit, Math.max(1024, data.length*4L))];
+			int outLength=0;
+			//false after the inflated bytes exceeded the limit, then they are only checked
+			boolean kept=true;
+			int p=0;
+			while(p<data.length) {
+				int start=p;
+				try {
+					p=skipHeader(data, p);
+				} catch(ZipException e) {
+					//the rest of a chunk that does not start with a member
+					if(start>0)
+						return new Inflated(kept?out:null, outLength, false);
+					throw e;
+				}
+				inflater.reset();
+				inflater.setInput(data, p, data.length-p);
+				crc.reset();
+				long memberLength=0;
+				while(!inflater.finished()) {
+					if(outLength==out.length) {
+						if(kept && out.length<limit)
+							out=Arrays.copyOf(out, (int)Math.min(out.length*2L, limit));
+						else {
+							kept=false;
+							outLength=0;
+						}
+					}
+					int n;
+					try {
+						n=inflater.inflate(out, outLength, out.length-outLength);
+					} catch(DataFormatException e) {
+						throw new ZipException(e.getMessage());
+					}
+					if(n==0 && inflater.needsDictionary())
+						throw new ZipException("Unexpected dictionary in a member");
+					if(n==0 && inflater.needsInput())
+						throw new TruncatedException("Unexpected end of a member");
+					crc.update(out, outLength, n);
+					memberLength+=n;
+					outLength+=n;
+				}
+				p=data.length-inflater.getRemaining();
+				if(data.length-p<TRAILER_LENGTH)
+					throw new TruncatedException("Unexpected end of a member");
+				if(readInt(data, p)!=(int)crc.getValue())
+					throw new ZipException("Corrupt GZIP trailer");
+				if(readInt(data, p+4)!=(int)memberLength)
+					throw new ZipException("Corrupt GZIP trailer");
+				p+=TRAILER_LENGTH;
+			}
+			return new Inflated(kept?out:null, outLength, true);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * @return the position after the header starting at the given position
+	 */
+	private static int skipHeader(byte[] b, int p) throws ZipException {
+		if(b.length-p<HEADER_LENGTH)
+			throw new TruncatedException("Unexpected end of a header");
+		if(b[p]!=(byte)0x1f || b[p+1]!=(byte)0x8b || b[p+2]!=8)
+			throw new ZipException("Not in GZIP format");
+		int flags=b[p+3]&0xFF;
+		p+=HEADER_LENGTH;
+		if((flags&FLAG_EXTRA)!=0) {
+			if(b.length-p<2)
+				throw new TruncatedException("Unexpected end of a header");
+			p+=2+((b[p]&0xFF)|(b[p+1]&0xFF)<<8);
+		}
+		if((flags&FLAG_NAME)!=0)
+			p=skipZeroTerminated(b, p);
+		if((flags&FLAG_COMMENT)!=0)
+			p=skipZeroTerminated(b, p);
+		if((flags&FLAG_HEADER_CRC)!=0)
+			p+=2;
+		if(p>b.length)
+			throw new TruncatedException("Unexpected end of a header");
+		return p;
+	}
+
+	private static int skipZeroTerminated(byte[] b, int p) throws ZipException {
+		while(p<b.length) {
+			if(b[p++]==0)
+				return p;
+		}
+		throw new TruncatedException("Unexpected end of a header");
+	}
+
+	private static int readInt(byte[] b, int p) {
+		return (b[p]&0xFF)|(b[p+1]&0xFF)<<8|(b[p+2]&0xFF)<<16|(b[p+3]&0xFF)<<24;
+	}
+
+	/**
+	 * Thrown if a chunk ends within a member. This happens if the chunk was cut at bytes that only look like the
+	 * header of a member.
+	 */
+	private static class TruncatedException extends ZipException {
+		private static final long serialVersionUID=1L;
+
+		private TruncatedException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * A chunk of compressed bytes and the future of its inflated bytes.
+	 */
+	private static class Chunk {
+		private final byte[] data;
+		private final CompletableFuture<Inflated> result;
+
+		private Chunk(byte[] data, CompletableFuture<Inflated> result) {
+			this.data=data;
+			this.result=result;
+		}
+	}
+
+	/**
+	 * The inflated bytes of a chunk.
+	 */
+	static class Inflated {
+		/**
+		 * The inflated bytes or null if there were more than the limit.
+		 */
+		private final byte[] bytes;
+		private final int length;
+		/**
+		 * If the members ended exactly at the end of the chunk.
+		 */
+		private final boolean exact;
+
+		private Inflated(byte[] bytes, int length, boolean exact) {
+			this.bytes=bytes;
+			this.length=length;
+			this.exact=exact;
+		}
+	}
+
+	/**
+	 * A stream that claims to have more bytes until it ends. {@link GZIPInputStream} only looks for a following
+	 * member if bytes are available, which is not the case at the end of one of the concatenated streams.
+	 */
+	private static class Concatenated extends InputStream {
+		private final InputStream in;
+		private boolean ended=false;
+
+		private Concatenated(InputStream in) {
+			this.in=in;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b=in.read();
+			ended=b<0;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read=in.read(b, off, len);
+			ended=read<0;
+			return read;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return ended?0:Math.max(1, in.available());
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package com.github.powerlibraries.io.helper.compression;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+import com.github.powerlibraries.io.functions.OutputStreamWrapper;
+
+/**
+ * This class is a gzip compressing {@link OutputStream} that splits the written bytes into blocks and compresses
+ * the blocks in parallel on an {@link Executor}. Each block is written as an independent gzip member, so the
+ * result is a standard multi-member gzip file that can be read by {@link java.util.zip.GZIPInputStream} or the
+ * gzip tool. The compressed blocks are written in order by the thread that writes to this stream.
+ * <p>
+ * To use this class for all gzip files written with {@link com.github.powerlibraries.io.builder.BaseOutBuilder#compress()}
+ * register it with the {@link com.github.powerlibraries.io.helper.CompressorRegistry}:
+ * <pre>CompressorRegistry.getInstance().registerWrapper("gz", ParallelGZIPOutputStream.wrapper());</pre>
+ */
+public class ParallelGZIPOutputStream extends OutputStream {
+
+	/**
+	 * The default number of uncompressed bytes in a single block.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE=1<<17;
+
+	private final OutputStream out;
+	private final Executor executor;
+	private final int blockSize;
+	private final int level;
+	private final int maxPendingBlocks;
+	private final ArrayDeque<CompletableFuture<byte[]>> pending=new ArrayDeque<>();
+	private final ConcurrentLinkedQueue<byte[]> freeBlocks=new ConcurrentLinkedQueue<>();
+	private byte[] block;
+	private int blockLength;
+	private boolean memberWritten=false;
+	private boolean closed=false;
+
+	/**
+	 * Creates a new stream that compresses blocks of {@link #DEFAULT_BLOCK_SIZE} bytes with the default compression
+	 * level on the {@link ForkJoinPool#commonPool()}.
+	 * @param out the stream the compressed bytes are written to
+	 */
+	public ParallelGZIPOutputStream(OutputStream out) {
+		this(out, ForkJoinPool.commonPool(), DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * @param out the stream the compressed bytes are written to
+	 * @param executor the executor that compresses the blocks
+	 * @param blockSize the number of uncompressed bytes in a single block
+	 * @param level the compression level, see {@link Deflater}
+	 */
+	public ParallelGZIPOutputStream(OutputStream out, Executor executor, int blockSize, int level) {
+		if(blockSize<=0)
+			throw new IllegalArgumentException("blockSize must be positive");
+		this.out=Objects.requireNonNull(out);
+		this.executor=Objects.requireNonNull(executor);
+		this.blockSize=blockSize;
+		this.level=level;
+		this.maxPendingBlocks=2*Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * This method creates a wrapper that can be used with
+	 * {@link com.github.powerlibraries.io.builder.BaseOutBuilder#compress(OutputStreamWrapper)} or the
+	 * {@link com.github.powerlibraries.io.helper.CompressorRegistry}. The created streams use the defaults of 
+	 * {@link #ParallelGZIPOutputStream(OutputStream)}. In contrast to <code>ParallelGZIPOutputStream::new</code> 
+	 * the result can be given to the overloaded registerWrapper methods without a cast.
+	 * @return a wrapper creating {@link ParallelGZIPOutputStream}s
+	 */
+	public static OutputStreamWrapper wrapper() {
+		return ParallelGZIPOutputStream::new;
+	}
+
+	/**
+	 * This method creates a wrapper that can be used with
+	 * {@link com.github.powerlibraries.io.builder.BaseOutBuilder#compress(OutputStreamWrapper)} or the
+	 * {@link com.github.powerlibraries.io.helper.CompressorRegistry}.
+	 * @param executor the executor that compresses the blocks
+	 * @param blockSize the number of uncompressed bytes in a single block
+	 * @param level the compression level, see {@link Deflater}
+	 * @return a wrapper creating {@link ParallelGZIPOutputStream}s
+	 */
+	public static OutputStreamWrapper wrapper(Executor executor, int blockSize, int level) {
+		return out -> new ParallelGZIPOutputStream(out, executor, blockSize, level);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		if(block==null)
+			block=newBlock();
+		block[blockLength++]=(byte)b;
+		if(blockLength==blockSize)
+			submitBlock();
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		ensureOpen();
+		while(len>0) {
+			if(block==null)
+				block=newBlock();
+			int n=Math.min(len, blockSize-blockLength);
+			System.arraycopy(b, off, block, blockLength, n);
+			blockLength+=n;
+			off+=n;
+			len-=n;
+			if(blockLength==blockSize)
+				submitBlock();
+		}
+	}
+
+	/**
+	 * Compresses the currently buffered bytes as a member of its own and writes all members to the
+	 * underlying stream before flushing it.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if(blockLength>0)
+			submitBlock();
+		while(!pending.isEmpty())
+			writeNextMember();
+		out.flush();
+	}
+
+	/**
+	 * Finishes writing compressed data to the underlying stream without closing it.
+	 * @throws IOException if the underlying stream throws an {@link IOException}
+	 */
+	public void finish() throws IOException {
+		ensureOpen();
+		if(blockLength>0 || !memberWritten)
+			submitBlock();
+		while(!pending.isEmpty())
+			writeNextMember();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(closed)
+			return;
+		try {
+			finish();
+		} finally {
+			closed=true;
+			for(CompletableFuture<byte[]> f:pending)
+				f.cancel(false);
+			pending.clear();
+			out.close();
+		}
+	}
+
+	private byte[] newBlock() {
+		byte[] b=freeBlocks.poll();
+		return b==null?new byte[blockSize]:b;
+	}
+
+	private void submitBlock() throws IOException {
+		byte[] data=block==null?newBlock():block;
+		int length=blockLength;
+		block=null;
+		blockLength=0;
+		memberWritten=true;
+		pending.add(CompletableFuture.supplyAsync(() -> {
+			byte[] member=GZIPMembers.compress(data, 0, length, level);
+			freeBlocks.offer(data);
+			return member;
+		}, executor));
+		while(pending.size()>maxPendingBlocks)
+			writeNextMember();
+	}
+
+	private void writeNextMember() throws IOException {
+		try {
+			out.write(pending.poll().get());
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a compressed block");
+		} catch(ExecutionException e) {
+			throw new IOException("Compressing a block failed", e.getCause());
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if(closed)
+			throw new IOException("Stream closed");
+	}
+}
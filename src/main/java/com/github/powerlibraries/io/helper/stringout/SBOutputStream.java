@@ -52,6 +52,11 @@ public class SBOutputStream extends OutputStream implements SBWrapper {
 		out.write(b);
 	}
 	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+	}
+	
 	@Override
 	public void close() throws IOException {
 		out.close();
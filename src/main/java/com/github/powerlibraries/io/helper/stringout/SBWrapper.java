@@ -20,18 +20,33 @@ public interface SBWrapper extends Closeable {
 	
 	/**
 	 * This method returns the string build by this chain.
+	 * 
+	 * This method automatically closes this stream or writer.
 	 * @return the string built by this output chain
 	 */
 	public default String getResult() {
+		closeSilently();
 		return getUnderlyingOutput().getResult();
 	}
 	
 	/**
 	 * This method returns the string build by this chain.
+	 * 
+	 * This method automatically closes this stream or writer.
 	 * @param charset the charset that is used to build the string
 	 * @return the string built by this output chain
 	 */
 	public default String getResult(Charset charset) {
+		closeSilently();
 		return getUnderlyingOutput().getResult(charset);
 	}
+	
+	/**
+	 * Closes this Closable without throwing any exceptions. 
+	 */
+	public default void closeSilently() {
+		try {
+			close();
+		} catch(Exception e) {}
+	}
 }
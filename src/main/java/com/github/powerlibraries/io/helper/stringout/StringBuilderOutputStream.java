@@ -1,41 +1,73 @@
 package com.github.powerlibraries.io.helper.stringout;
 
 import java.io.ByteArrayOutputStream;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.Objects;
 
 /**
  * This class is a simple extension of an {@link ByteArrayOutputStream} that also
- * stores a charset to simply create a string from its byte buffer
+ * stores a charset to simply create a string from its byte buffer.
+ * <p>
+ * If characters are written through the {@link Writer} returned by {@link #asCharWriter()} instead of bytes, 
+ * the stream collects them in a {@link StringBuilder} and the result is created without encoding and decoding 
+ * the characters.
  * @author Manuel Hegner
  *
  */
 public class StringBuilderOutputStream extends ByteArrayOutputStream {
 	
 	private Charset charset;
+	private StringBuilder chars;
 
 	public StringBuilderOutputStream(Charset charset) {
 		this.charset=charset;
 	}
 	
+	/**
+	 * This method switches this stream to collect characters instead of bytes and returns a {@link Writer} that 
+	 * appends directly to the result. It has to be called before anything is written to this stream.
+	 * @return a {@link Writer} appending to the result of this stream
+	 */
+	public synchronized Writer asCharWriter() {
+		if(count>0)
+			throw new IllegalStateException("bytes were already written to this stream");
+		if(chars==null)
+			chars=new StringBuilder();
+		return new CharWriter();
+	}
+	
 	/**
 	 * This method returns the string build by this chain.
 	 * @return the string built by this output chain
 	 */
 	public String getResult() {
 		closeSilently();
+		if(chars!=null)
+			return chars.toString();
 		return new String(this.toByteArray(), charset);
 	}
 	
 	/**
-	 * This method returns the string build by this chain.
+	 * This method returns the string build by this chain. If this stream collected characters they are returned 
+	 * as they are.
 	 * @param charset the charset that is used to build the string
 	 * @return the string built by this output chain
 	 */
 	public String getResult(Charset charset) {
 		closeSilently();
+		if(chars!=null)
+			return chars.toString();
 		return new String(this.toByteArray(), charset);
 	}
 	
+	@Override
+	public synchronized String toString() {
+		if(chars!=null)
+			return chars.toString();
+		return super.toString();
+	}
+	
 	/**
 	 * Closes this Closable without throwing any exceptions. 
 	 */
@@ -52,4 +84,59 @@ public class StringBuilderOutputStream extends ByteArrayOutputStream {
 	public void setCharset(Charset charset) {
 		this.charset=charset;
 	}
+	
+	/**
+	 * A {@link Writer} that appends to {@link StringBuilderOutputStream#chars}.
+	 */
+	private class CharWriter extends Writer {
+		
+		private CharWriter() {
+			super(StringBuilderOutputStream.this);
+		}
+
+		@Override
+		public void write(int c) {
+			synchronized(lock) {
+				chars.append((char)c);
+			}
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			Objects.checkFromIndexSize(off, len, cbuf.length);
+			synchronized(lock) {
+				chars.append(cbuf, off, len);
+			}
+		}
+
+		@Override
+		public void write(String str, int off, int len) {
+			Objects.checkFromIndexSize(off, len, str.length());
+			synchronized(lock) {
+				chars.append(str, off, off+len);
+			}
+		}
+
+		@Override
+		public Writer append(CharSequence csq) {
+			synchronized(lock) {
+				chars.append(csq);
+			}
+			return this;
+		}
+
+		@Override
+		public Writer append(CharSequence csq, int start, int end) {
+			synchronized(lock) {
+				chars.append(csq==null?"null":csq, start, end);
+			}
+			return this;
+		}
+
+		@Override
+		public void flush() {}
+
+		@Override
+		public void close() {}
+	}
 }
@@ -0,0 +1,39 @@
+package com.github.powerlibraries.io.metrics;
+
+/**
+ * This interface is notified about the streams opened by the builders if it is set with
+ * {@link com.github.powerlibraries.io.IOConfig#setListener(IOListener)}. Every stream is reported with the type of
+ * its source or target. All methods do nothing by default, so implementations only override what they need.
+ * <p>
+ * The methods are called on the threads that use the streams, they should return quickly and must be safe for 
+ * concurrent use. {@link IOStatistics} is an implementation that aggregates the reported values in memory.
+ */
+public interface IOListener {
+
+	/**
+	 * This method is called after the stream of a source or target was opened.
+	 * @param type the class of the source or target
+	 * @param input true for sources, false for targets
+	 * @param nanos the time it took to open the stream
+	 */
+	public default void streamOpened(Class<?> type, boolean input, long nanos) {}
+
+	/**
+	 * This method is called when the first byte was read from a source or written to a target.
+	 * @param type the class of the source or target
+	 * @param input true for sources, false for targets
+	 * @param nanos the time between the start of opening the stream and the first byte
+	 */
+	public default void firstByte(Class<?> type, boolean input, long nanos) {}
+
+	/**
+	 * This method is called after a stream created by a builder was closed.
+	 * @param type the class of the source or target
+	 * @param input true for sources, false for targets
+	 * @param bytes the number of bytes read from or written to the stream returned by the builder, after
+	 * decompression or before compression
+	 * @param rawBytes the number of bytes read from the source or written to the target
+	 * @param nanos the time it took to close the stream
+	 */
+	public default void streamClosed(Class<?> type, boolean input, long bytes, long rawBytes, long nanos) {}
+}
@@ -0,0 +1,311 @@
+package com.github.powerlibraries.io.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class is an {@link IOListener} that aggregates the reported values per type of source or target in memory.
+ * The values can be queried with {@link #getStatistics(Class, boolean)} or through JMX after calling 
+ * {@link #registerMBean()}, e.g.
+ * <pre>
+ * IOStatistics statistics=new IOStatistics();
+ * statistics.registerMBean();
+ * IOConfig.setListener(statistics);
+ * </pre>
+ */
+public class IOStatistics implements IOListener, IOStatisticsMBean {
+
+	/**
+	 * The name used by {@link #registerMBean()}.
+	 */
+	public static final String OBJECT_NAME="com.github.powerlibraries.io:type=IOStatistics";
+
+	private final Map<Class<?>, Counters> inputs=new ConcurrentHashMap<>();
+	private final Map<Class<?>, Counters> outputs=new ConcurrentHashMap<>();
+
+	/**
+	 * This method registers this object with the platform MBean server under {@link #OBJECT_NAME}.
+	 * @return the name this object was registered with
+	 * @throws JMException if the registration fails, e.g. because another object has the same name
+	 */
+	public ObjectName registerMBean() throws JMException {
+		ObjectName name=new ObjectName(OBJECT_NAME);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+		return name;
+	}
+
+	private Counters counters(Class<?> type, boolean input) {
+		return (input?inputs:outputs).computeIfAbsent(type, Counters::new);
+	}
+
+	@Override
+	public void streamOpened(Class<?> type, boolean input, long nanos) {
+		Counters c=counters(type, input);
+		c.opened.increment();
+		c.open.increment();
+		c.openNanos.add(nanos);
+	}
+
+	@Override
+	public void firstByte(Class<?> type, boolean input, long nanos) {
+		Counters c=counters(type, input);
+		c.firstBytes.increment();
+		c.firstByteNanos.add(nanos);
+	}
+
+	@Override
+	public void streamClosed(Class<?> type, boolean input, long bytes, long rawBytes, long nanos) {
+		Counters c=counters(type, input);
+		c.closed.increment();
+		c.open.decrement();
+		c.closeNanos.add(nanos);
+		c.bytes.add(bytes);
+		c.rawBytes.add(rawBytes);
+	}
+
+	/**
+	 * @param type the class of a source or target
+	 * @param input true for sources, false for targets
+	 * @return the statistics of the given type or null if no stream of this type was reported
+	 */
+	public TypeStatistics getStatistics(Class<?> type, boolean input) {
+		Counters c=(input?inputs:outputs).get(type);
+		return c==null?null:c.snapshot(input);
+	}
+
+	/**
+	 * @return the statistics of all reported types of sources and targets
+	 */
+	public List<TypeStatistics> getStatistics() {
+		List<TypeStatistics> result=new ArrayList<>();
+		for(Counters c:inputs.values())
+			result.add(c.snapshot(true));
+		for(Counters c:outputs.values())
+			result.add(c.snapshot(false));
+		return result;
+	}
+
+	@Override
+	public long getOpenStreams() {
+		long open=0;
+		for(Counters c:inputs.values())
+			open+=c.open.sum();
+		for(Counters c:outputs.values())
+			open+=c.open.sum();
+		return open;
+	}
+
+	@Override
+	public long getInputStreamsOpened() {
+		return sum(inputs, false, false);
+	}
+
+	@Override
+	public long getOutputStreamsOpened() {
+		return sum(outputs, false, false);
+	}
+
+	@Override
+	public long getBytesRead() {
+		return sum(inputs, true, false);
+	}
+
+	@Override
+	public long getRawBytesRead() {
+		return sum(inputs, true, true);
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return sum(outputs, true, false);
+	}
+
+	@Override
+	public long getRawBytesWritten() {
+		return sum(outputs, true, true);
+	}
+
+	private static long sum(Map<Class<?>, Counters> counters, boolean bytes, boolean raw) {
+		long sum=0;
+		for(Counters c:counters.values())
+			sum+=(bytes?(raw?c.rawBytes:c.bytes):c.opened).sum();
+		return sum;
+	}
+
+	@Override
+	public String[] getTypeStatistics() {
+		return getStatistics().stream().map(TypeStatistics::toString).toArray(String[]::new);
+	}
+
+	@Override
+	public void reset() {
+		reset(inputs);
+		reset(outputs);
+	}
+
+	/**
+	 * The counters are replaced, but the gauge of open streams is kept, because the streams that are still open 
+	 * will report their closing to the new counters.
+	 */
+	private static void reset(Map<Class<?>, Counters> counters) {
+		counters.values().removeIf(c -> c.open.sum()==0);
+		counters.replaceAll((type, c) -> new Counters(type, c.open));
+	}
+
+	private static class Counters {
+		private final Class<?> type;
+		private final LongAdder open;
+		private final LongAdder opened=new LongAdder();
+		private final LongAdder closed=new LongAdder();
+		private final LongAdder openNanos=new LongAdder();
+		private final LongAdder closeNanos=new LongAdder();
+		private final LongAdder firstBytes=new LongAdder();
+		private final LongAdder firstByteNanos=new LongAdder();
+		private final LongAdder bytes=new LongAdder();
+		private final LongAdder rawBytes=new LongAdder();
+
+		private Counters(Class<?> type) {
+			this(type, new LongAdder());
+		}
+
+		private Counters(Class<?> type, LongAdder open) {
+			this.type=type;
+			this.open=open;
+		}
+
+		private TypeStatistics snapshot(boolean input) {
+			return new TypeStatistics(type, input, open.sum(), opened.sum(), closed.sum(), openNanos.sum(), closeNanos.sum(),
+				firstBytes.sum(), firstByteNanos.sum(), bytes.sum(), rawBytes.sum());
+		}
+	}
+
+	/**
+	 * An immutable snapshot of the statistics of one type of source or target.
+	 */
+	public static class TypeStatistics {
+		private final Class<?> type;
+		private final boolean input;
+		private final long open;
+		private final long opened;
+		private final long closed;
+		private final long openNanos;
+		private final long closeNanos;
+		private final long firstBytes;
+		private final long firstByteNanos;
+		private final long bytes;
+		private final long rawBytes;
+
+		private TypeStatistics(Class<?> type, boolean input, long open, long opened, long closed, long openNanos, 
+				long closeNanos, long firstBytes, long firstByteNanos, long bytes, long rawBytes) {
+			this.type=type;
+			this.input=input;
+			this.open=open;
+			this.opened=opened;
+			this.closed=closed;
+			this.openNanos=openNanos;
+			this.closeNanos=closeNanos;
+			this.firstBytes=firstBytes;
+			this.firstByteNanos=firstByteNanos;
+			this.bytes=bytes;
+			this.rawBytes=rawBytes;
+		}
+
+		/**
+		 * @return the class of the source or target
+		 */
+		public Class<?> getType() {
+			return type;
+		}
+
+		/**
+		 * @return true for sources, false for targets
+		 */
+		public boolean isInput() {
+			return input;
+		}
+
+		/**
+		 * @return the number of opened streams
+		 */
+		public long getOpened() {
+			return opened;
+		}
+
+		/**
+		 * @return the number of closed streams
+		 */
+		public long getClosed() {
+			return closed;
+		}
+
+		/**
+		 * @return the number of streams that are currently open, including streams opened before the last reset
+		 */
+		public long getOpen() {
+			return open;
+		}
+
+		/**
+		 * @return the number of bytes read or written by the users of the builders, i.e. after decompression or
+		 * before compression
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return the number of bytes read from the sources or written to the targets
+		 */
+		public long getRawBytes() {
+			return rawBytes;
+		}
+
+		/**
+		 * @return the ratio of {@link #getBytes()} to {@link #getRawBytes()} or 1 if there were no raw bytes
+		 */
+		public double getCompressionRatio() {
+			return rawBytes==0?1:(double)bytes/rawBytes;
+		}
+
+		/**
+		 * @return the average time it took to open a stream
+		 */
+		public long getAverageOpenNanos() {
+			return opened==0?0:openNanos/opened;
+		}
+
+		/**
+		 * @return the average time it took to close a stream
+		 */
+		public long getAverageCloseNanos() {
+			return closed==0?0:closeNanos/closed;
+		}
+
+		/**
+		 * @return the average time between starting to open a stream and its first byte
+		 */
+		public long getAverageTimeToFirstByteNanos() {
+			return firstBytes==0?0:firstByteNanos/firstBytes;
+		}
+
+		@Override
+		public String toString() {
+			return type.getName()+(input?" in":" out")
+				+": opened="+opened
+				+", open="+getOpen()
+				+", bytes="+bytes
+				+", rawBytes="+rawBytes
+				+", compressionRatio="+getCompressionRatio()
+				+", avgOpenNanos="+getAverageOpenNanos()
+				+", avgCloseNanos="+getAverageCloseNanos()
+				+", avgTimeToFirstByteNanos="+getAverageTimeToFirstByteNanos();
+		}
+	}
+}
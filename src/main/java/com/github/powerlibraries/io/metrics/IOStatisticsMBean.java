@@ -0,0 +1,53 @@
+package com.github.powerlibraries.io.metrics;
+
+/**
+ * The management interface of {@link IOStatistics}. All values are totals over all types of sources or targets.
+ */
+public interface IOStatisticsMBean {
+
+	/**
+	 * @return the number of streams that were opened and not yet closed
+	 */
+	public long getOpenStreams();
+
+	/**
+	 * @return the number of opened input streams
+	 */
+	public long getInputStreamsOpened();
+
+	/**
+	 * @return the number of opened output streams
+	 */
+	public long getOutputStreamsOpened();
+
+	/**
+	 * @return the number of bytes read from the builders after decompression
+	 */
+	public long getBytesRead();
+
+	/**
+	 * @return the number of bytes read from the sources
+	 */
+	public long getRawBytesRead();
+
+	/**
+	 * @return the number of bytes written to the builders before compression
+	 */
+	public long getBytesWritten();
+
+	/**
+	 * @return the number of bytes written to the targets
+	 */
+	public long getRawBytesWritten();
+
+	/**
+	 * @return the statistics of every type of source and target, one line each
+	 */
+	public String[] getTypeStatistics();
+
+	/**
+	 * Resets all statistics except the number of currently open streams, which keeps counting the streams that
+	 * were opened before and are closed after the reset.
+	 */
+	public void reset();
+}
@@ -0,0 +1,79 @@
+package com.github.powerlibraries.io.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} that counts the bytes read through it for a {@link StreamMeter}.
+ */
+public class MeteredInputStream extends FilterInputStream {
+
+	private final StreamMeter meter;
+	private final boolean raw;
+	boolean result;
+
+	MeteredInputStream(InputStream in, StreamMeter meter, boolean raw, boolean result) {
+		super(in);
+		this.meter=meter;
+		this.raw=raw;
+		this.result=result;
+	}
+
+	/**
+	 * @return true if this stream counts the bytes of the source as well as the bytes of the result, which means
+	 * that the builder did not transform the bytes in any way
+	 */
+	public boolean isPassThrough() {
+		return raw && result;
+	}
+
+	/**
+	 * @return the metered stream
+	 */
+	public InputStream getWrappedStream() {
+		return in;
+	}
+
+	/**
+	 * This method counts bytes that were read from the wrapped stream without using this stream, e.g. by 
+	 * transferring them from its channel.
+	 * @param n the number of bytes
+	 */
+	public void recordTransfer(long n) {
+		if(n>0)
+			meter.count(n, raw, result);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b=in.read();
+		if(b>=0)
+			meter.count(1, raw, result);
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n=in.read(b, off, len);
+		if(n>0)
+			meter.count(n, raw, result);
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped=in.skip(n);
+		if(skipped>0)
+			meter.count(skipped, raw, result);
+		return skipped;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(result)
+			meter.close(in);
+		else
+			in.close();
+	}
+}
@@ -0,0 +1,68 @@
+package com.github.powerlibraries.io.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An {@link OutputStream} that counts the bytes written through it for a {@link StreamMeter}.
+ */
+public class MeteredOutputStream extends FilterOutputStream {
+
+	private final StreamMeter meter;
+	private final boolean raw;
+	boolean result;
+
+	MeteredOutputStream(OutputStream out, StreamMeter meter, boolean raw, boolean result) {
+		super(out);
+		this.meter=meter;
+		this.raw=raw;
+		this.result=result;
+	}
+
+	/**
+	 * @return true if this stream counts the bytes of the target as well as the bytes of the result, which means
+	 * that the builder does not transform the bytes in any way
+	 */
+	public boolean isPassThrough() {
+		return raw && result;
+	}
+
+	/**
+	 * @return the metered stream
+	 */
+	public OutputStream getWrappedStream() {
+		return out;
+	}
+
+	/**
+	 * This method counts bytes that were written to the wrapped stream without using this stream, e.g. by 
+	 * transferring them to its channel.
+	 * @param n the number of bytes
+	 */
+	public void recordTransfer(long n) {
+		if(n>0)
+			meter.count(n, raw, result);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		meter.count(1, raw, result);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		out.write(b, off, len);
+		if(len>0)
+			meter.count(len, raw, result);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(result)
+			meter.close(out);
+		else
+			out.close();
+	}
+}
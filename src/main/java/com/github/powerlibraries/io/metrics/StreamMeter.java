@@ -0,0 +1,115 @@
+package com.github.powerlibraries.io.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * This class measures a single stream opened by a builder and reports it to an {@link IOListener}. The builders
+ * wrap the stream of the source or target with {@link #meterRaw} and the end of their chain with 
+ * {@link #meterResult}, so that the bytes before and after (de)compression are counted separately. 
+ * <p>
+ * Builders only create meters if a listener is set, so there is no overhead if metrics are disabled.
+ */
+public final class StreamMeter {
+
+	private final IOListener listener;
+	private final Class<?> type;
+	private final boolean input;
+	private final long start;
+	private long bytes;
+	private long rawBytes;
+	private boolean firstByte;
+	private boolean closed;
+	private Object raw;
+
+	/**
+	 * Creates a meter for a stream that was just opened and reports the opening to the listener.
+	 * @param listener the listener to report to
+	 * @param type the class of the source or target
+	 * @param input true for sources, false for targets
+	 * @param start the value of {@link System#nanoTime()} before the stream was opened
+	 */
+	public StreamMeter(IOListener listener, Class<?> type, boolean input, long start) {
+		this.listener=listener;
+		this.type=type;
+		this.input=input;
+		this.start=start;
+		listener.streamOpened(type, input, System.nanoTime()-start);
+	}
+
+	/**
+	 * @param in the stream opened by the source
+	 * @return a stream counting the raw bytes
+	 */
+	public InputStream meterRaw(InputStream in) {
+		MeteredInputStream metered=new MeteredInputStream(in, this, true, false);
+		raw=metered;
+		return metered;
+	}
+
+	/**
+	 * @param in the last stream of the chain created by the builder
+	 * @return a stream counting the bytes and reporting when it is closed
+	 */
+	public InputStream meterResult(InputStream in) {
+		if(in==raw) {
+			((MeteredInputStream)in).result=true;
+			return in;
+		}
+		return new MeteredInputStream(in, this, false, true);
+	}
+
+	/**
+	 * @param out the stream opened by the target
+	 * @return a stream counting the raw bytes
+	 */
+	public OutputStream meterRaw(OutputStream out) {
+		MeteredOutputStream metered=new MeteredOutputStream(out, this, true, false);
+		raw=metered;
+		return metered;
+	}
+
+	/**
+	 * @param out the first stream of the chain created by the builder
+	 * @return a stream counting the bytes and reporting when it is closed
+	 */
+	public OutputStream meterResult(OutputStream out) {
+		if(out==raw) {
+			((MeteredOutputStream)out).result=true;
+			return out;
+		}
+		return new MeteredOutputStream(out, this, false, true);
+	}
+
+	void count(long n, boolean raw, boolean result) {
+		if(raw) {
+			if(!firstByte) {
+				firstByte=true;
+				listener.firstByte(type, input, System.nanoTime()-start);
+			}
+			rawBytes+=n;
+		}
+		if(result)
+			bytes+=n;
+	}
+
+	/**
+	 * This method closes the given stream and reports the closing to the listener, unless this was already reported.
+	 * The builders use this to close a chain that failed while it was built, before the result was metered.
+	 * @param stream the stream to close
+	 * @throws IOException if closing the stream throws an {@link IOException}
+	 */
+	public void close(Closeable stream) throws IOException {
+		long closeStart=System.nanoTime();
+		try {
+			stream.close();
+		} finally {
+			if(!closed) {
+				closed=true;
+				listener.streamClosed(type, input, bytes, rawBytes, System.nanoTime()-closeStart);
+			}
+		}
+	}
+}
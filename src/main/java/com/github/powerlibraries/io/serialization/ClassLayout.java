@@ -0,0 +1,251 @@
+package com.github.powerlibraries.io.serialization;
+
+import java.io.Externalizable;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class describes how the {@link CompactSerializationCodec} writes the fields of a class. It holds
+ * {@link MethodHandle}s for reading and writing the fields that are created once per class and cached in a
+ * {@link ClassValue}.
+ */
+final class ClassLayout {
+
+	private static final ClassLayout UNSUPPORTED=new ClassLayout(null, false, new String[0], new char[0],
+		new MethodHandle[0], null, null);
+	private static final ClassValue<ClassLayout> LAYOUTS=new ClassValue<ClassLayout>() {
+		@Override
+		protected ClassLayout computeValue(Class<?> type) {
+			try {
+				if(isRecord(type))
+					return createRecordLayout(type);
+				return createClassLayout(type);
+			} catch(ReflectiveOperationException | RuntimeException e) {
+				return UNSUPPORTED;
+			}
+		}
+	};
+	//records exist since Java 16, so their reflection methods are looked up at runtime
+	private static final Method IS_RECORD=findMethod(Class.class, "isRecord");
+	private static final Method GET_RECORD_COMPONENTS=findMethod(Class.class, "getRecordComponents");
+	/**
+	 * sun.reflect.ReflectionFactory of the jdk.unsupported module creates constructors like the ones used by Java 
+	 * serialization. It is looked up at runtime, without it classes are not written field by field.
+	 */
+	private static final Object REFLECTION_FACTORY;
+	private static final Method NEW_CONSTRUCTOR_FOR_SERIALIZATION;
+	private static final MethodHandle NEW_INSTANCE;
+	static {
+		Object factory=null;
+		Method newConstructor=null;
+		MethodHandle newInstance=null;
+		try {
+			Class<?> factoryClass=Class.forName("sun.reflect.ReflectionFactory");
+			factory=factoryClass.getMethod("getReflectionFactory").invoke(null);
+			newConstructor=factoryClass.getMethod("newConstructorForSerialization", Class.class, Constructor.class);
+			newInstance=MethodHandles.lookup().findVirtual(Constructor.class, "newInstance", 
+				MethodType.methodType(Object.class, Object[].class));
+		} catch(ReflectiveOperationException | RuntimeException e) {
+			factory=null;
+		}
+		REFLECTION_FACTORY=factory;
+		NEW_CONSTRUCTOR_FOR_SERIALIZATION=newConstructor;
+		NEW_INSTANCE=newInstance;
+	}
+
+	final Class<?> type;
+	final boolean record;
+	final String[] names;
+	final char[] kinds;
+	/**
+	 * Getters of the type (Object)kind where kind is the primitive type or Object.
+	 */
+	final MethodHandle[] getters;
+	/**
+	 * Setters of the type (Object,kind)void, null for records.
+	 */
+	final MethodHandle[] setters;
+	/**
+	 * ()Object for classes, (Object[])Object for records. Like in Java serialization the constructor of a class only
+	 * runs the argument-less constructor of its first superclass that is not {@link Serializable}.
+	 */
+	final MethodHandle constructor;
+
+	private ClassLayout(Class<?> type, boolean record, String[] names, char[] kinds, MethodHandle[] getters,
+			MethodHandle[] setters, MethodHandle constructor) {
+		this.type=type;
+		this.record=record;
+		this.names=names;
+		this.kinds=kinds;
+		this.getters=getters;
+		this.setters=setters;
+		this.constructor=constructor;
+	}
+
+	/**
+	 * @param type a class
+	 * @return the layout of the class or null if the class can not be written field by field
+	 */
+	static ClassLayout of(Class<?> type) {
+		ClassLayout layout=LAYOUTS.get(type);
+		return layout==UNSUPPORTED?null:layout;
+	}
+
+	/**
+	 * @param type a field type
+	 * @return the character describing how a field of this type is written
+	 */
+	static char kindOf(Class<?> type) {
+		if(type==boolean.class) return 'Z';
+		if(type==byte.class) return 'B';
+		if(type==short.class) return 'S';
+		if(type==char.class) return 'C';
+		if(type==int.class) return 'I';
+		if(type==long.class) return 'J';
+		if(type==float.class) return 'F';
+		if(type==double.class) return 'D';
+		return 'L';
+	}
+
+	private static ClassLayout createRecordLayout(Class<?> type) throws ReflectiveOperationException {
+		if(!Serializable.class.isAssignableFrom(type) || hasSerializationMethods(type))
+			return UNSUPPORTED;
+		MethodHandles.Lookup lookup=MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+		Object[] components=(Object[])GET_RECORD_COMPONENTS.invoke(type);
+		String[] names=new String[components.length];
+		char[] kinds=new char[components.length];
+		MethodHandle[] getters=new MethodHandle[components.length];
+		Class<?>[] types=new Class<?>[components.length];
+		for(int i=0;i<components.length;i++) {
+			Class<?> componentClass=components[i].getClass();
+			names[i]=(String)componentClass.getMethod("getName").invoke(components[i]);
+			types[i]=(Class<?>)componentClass.getMethod("getType").invoke(components[i]);
+			kinds[i]=kindOf(types[i]);
+			Method accessor=(Method)componentClass.getMethod("getAccessor").invoke(components[i]);
+			getters[i]=lookup.unreflect(accessor).asType(MethodType.methodType(erase(types[i]), Object.class));
+		}
+		MethodHandle constructor=lookup.findConstructor(type, MethodType.methodType(void.class, types))
+			.asType(MethodType.methodType(Object.class, types))
+			.asSpreader(Object[].class, types.length)
+			.asType(MethodType.methodType(Object.class, Object[].class));
+		return new ClassLayout(type, true, names, kinds, getters, null, constructor);
+	}
+
+	private static ClassLayout createClassLayout(Class<?> type) throws ReflectiveOperationException {
+		if(!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+				|| type.isArray() || type.isEnum() || type.isInterface() || Modifier.isAbstract(type.getModifiers()))
+			return UNSUPPORTED;
+		Class<?> base=type;
+		for(;Serializable.class.isAssignableFrom(base);base=base.getSuperclass()) {
+			if(hasSerializationMethods(base))
+				return UNSUPPORTED;
+		}
+		MethodHandle constructor=createSerializationConstructor(type, base);
+		if(constructor==null)
+			return UNSUPPORTED;
+
+		List<Field> fields=new ArrayList<>();
+		collectFields(type, base, fields);
+		String[] names=new String[fields.size()];
+		char[] kinds=new char[fields.size()];
+		MethodHandle[] getters=new MethodHandle[fields.size()];
+		MethodHandle[] setters=new MethodHandle[fields.size()];
+		for(int i=0;i<fields.size();i++) {
+			Field f=fields.get(i);
+			f.setAccessible(true);
+			MethodHandles.Lookup lookup=MethodHandles.privateLookupIn(f.getDeclaringClass(), MethodHandles.lookup());
+			Class<?> erased=erase(f.getType());
+			names[i]=f.getName();
+			kinds[i]=kindOf(f.getType());
+			getters[i]=lookup.unreflectGetter(f).asType(MethodType.methodType(erased, Object.class));
+			setters[i]=lookup.unreflectSetter(f).asType(MethodType.methodType(void.class, Object.class, erased));
+		}
+		return new ClassLayout(type, false, names, kinds, getters, setters, constructor);
+	}
+
+	/**
+	 * Creates a constructor for the given class that only runs the argument-less constructor of the base class, like
+	 * Java serialization does.
+	 * @param type a serializable class
+	 * @param base the first superclass of type that is not {@link Serializable}
+	 * @return a handle of the type ()Object or null if Java serialization could not create the class either
+	 */
+	private static MethodHandle createSerializationConstructor(Class<?> type, Class<?> base) 
+			throws ReflectiveOperationException {
+		if(REFLECTION_FACTORY==null)
+			return null;
+		Constructor<?> baseConstructor=base.getDeclaredConstructor();
+		int modifiers=baseConstructor.getModifiers();
+		if(Modifier.isPrivate(modifiers) || !Modifier.isPublic(modifiers) && !Modifier.isProtected(modifiers) 
+				&& !base.getPackageName().equals(type.getPackageName()))
+			return null;
+		Constructor<?> constructor=(Constructor<?>)NEW_CONSTRUCTOR_FOR_SERIALIZATION.invoke(REFLECTION_FACTORY, type, 
+			baseConstructor);
+		constructor.setAccessible(true);
+		return MethodHandles.insertArguments(NEW_INSTANCE.bindTo(constructor), 0, (Object)new Object[0]);
+	}
+
+	/**
+	 * Collects the serialized fields of the given class and its superclasses up to the first superclass that is not 
+	 * {@link Serializable}, starting with the fields of the topmost superclass.
+	 */
+	private static void collectFields(Class<?> type, Class<?> base, List<Field> fields) {
+		if(type==base)
+			return;
+		collectFields(type.getSuperclass(), base, fields);
+		for(Field f:type.getDeclaredFields()) {
+			int modifiers=f.getModifiers();
+			if(!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers))
+				fields.add(f);
+		}
+	}
+
+	private static boolean hasSerializationMethods(Class<?> type) {
+		try {
+			type.getDeclaredField("serialPersistentFields");
+			return true;
+		} catch(NoSuchFieldException e) {
+			//expected
+		}
+		return hasMethod(type, "writeObject", ObjectOutputStream.class)
+			|| hasMethod(type, "readObject", ObjectInputStream.class)
+			|| hasMethod(type, "readObjectNoData")
+			|| hasMethod(type, "writeReplace")
+			|| hasMethod(type, "readResolve");
+	}
+
+	private static boolean hasMethod(Class<?> type, String name, Class<?>... parameters) {
+		try {
+			type.getDeclaredMethod(name, parameters);
+			return true;
+		} catch(NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static boolean isRecord(Class<?> type) throws ReflectiveOperationException {
+		return IS_RECORD!=null && (Boolean)IS_RECORD.invoke(type);
+	}
+
+	private static Class<?> erase(Class<?> type) {
+		return type.isPrimitive()?type:Object.class;
+	}
+
+	private static Method findMethod(Class<?> type, String name) {
+		try {
+			return type.getMethod(name);
+		} catch(NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
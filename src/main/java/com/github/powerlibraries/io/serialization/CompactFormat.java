@@ -0,0 +1,53 @@
+package com.github.powerlibraries.io.serialization;
+
+import java.io.IOException;
+
+/**
+ * This class contains the tags of the values written by the {@link CompactSerializationCodec}.
+ */
+final class CompactFormat {
+	static final int NULL=0;
+	static final int TRUE=1;
+	static final int FALSE=2;
+	static final int BYTE=3;
+	static final int SHORT=4;
+	static final int CHAR=5;
+	static final int INT=6;
+	static final int LONG=7;
+	static final int FLOAT=8;
+	static final int DOUBLE=9;
+	static final int STRING=10;
+	static final int BYTE_ARRAY=11;
+	static final int INT_ARRAY=12;
+	static final int LONG_ARRAY=13;
+	static final int DOUBLE_ARRAY=14;
+	static final int ARRAY_LIST=15;
+	static final int HASH_MAP=16;
+	static final int LINKED_HASH_MAP=17;
+	static final int ENUM=18;
+	static final int OBJECT=19;
+	static final int JAVA=20;
+
+	/**
+	 * There is no reason to create an instance.
+	 */
+	private CompactFormat() {}
+
+	/**
+	 * This method rethrows the given throwable of a {@link java.lang.invoke.MethodHandle} invocation as an
+	 * {@link IOException} if it is not unchecked.
+	 * @param t the thrown throwable
+	 * @param type the class that was accessed
+	 * @return never returns normally
+	 * @throws IOException the wrapped throwable
+	 */
+	static IOException rethrow(Throwable t, Class<?> type) throws IOException {
+		if(t instanceof IOException)
+			throw (IOException)t;
+		if(t instanceof RuntimeException)
+			throw (RuntimeException)t;
+		if(t instanceof Error)
+			throw (Error)t;
+		throw new IOException("Error while accessing an object of "+type.getName(), t);
+	}
+}
@@ -0,0 +1,240 @@
+package com.github.powerlibraries.io.serialization;
+
+import static com.github.powerlibraries.io.serialization.CompactFormat.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@link ObjectInput} of the {@link CompactSerializationCodec}.
+ */
+class CompactObjectInput extends DataInputStream implements ObjectInput {
+
+	private final ClassLoader classLoader;
+	private final ArrayList<Class<?>> classes=new ArrayList<>();
+	private final ArrayList<ClassLayout> layouts=new ArrayList<>();
+
+	CompactObjectInput(InputStream in, ClassLoader classLoader) {
+		super(in);
+		this.classLoader=classLoader;
+	}
+
+	@Override
+	public Object readObject() throws ClassNotFoundException, IOException {
+		int tag=read();
+		switch(tag) {
+			case NULL: return null;
+			case TRUE: return Boolean.TRUE;
+			case FALSE: return Boolean.FALSE;
+			case BYTE: return readByte();
+			case SHORT: return readShort();
+			case CHAR: return readChar();
+			case INT: return readInt();
+			case LONG: return readLong();
+			case FLOAT: return readFloat();
+			case DOUBLE: return readDouble();
+			case STRING: return readString();
+			case BYTE_ARRAY: {
+				byte[] array=new byte[readLength()];
+				readFully(array);
+				return array;
+			}
+			case INT_ARRAY: {
+				int[] array=new int[readLength()];
+				for(int i=0;i<array.length;i++)
+					array[i]=readInt();
+				return array;
+			}
+			case LONG_ARRAY: {
+				long[] array=new long[readLength()];
+				for(int i=0;i<array.length;i++)
+					array[i]=readLong();
+				return array;
+			}
+			case DOUBLE_ARRAY: {
+				double[] array=new double[readLength()];
+				for(int i=0;i<array.length;i++)
+					array[i]=readDouble();
+				return array;
+			}
+			case ARRAY_LIST: {
+				int size=readLength();
+				ArrayList<Object> list=new ArrayList<>(size);
+				for(int i=0;i<size;i++)
+					list.add(readObject());
+				return list;
+			}
+			case HASH_MAP: {
+				int size=readLength();
+				return readMap(new HashMap<>(), size);
+			}
+			case LINKED_HASH_MAP: {
+				int size=readLength();
+				return readMap(new LinkedHashMap<>(), size);
+			}
+			case ENUM: return readEnum();
+			case OBJECT: return readFields();
+			case JAVA: return readJava();
+			case -1: throw new EOFException();
+			default: throw new StreamCorruptedException("Unknown tag "+tag);
+		}
+	}
+
+	private Map<Object, Object> readMap(Map<Object, Object> map, int size) throws ClassNotFoundException, IOException {
+		for(int i=0;i<size;i++) {
+			Object key=readObject();
+			map.put(key, readObject());
+		}
+		return map;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object readEnum() throws ClassNotFoundException, IOException {
+		Class<?> type=readClass(false);
+		if(!type.isEnum())
+			throw new InvalidClassException(type.getName(), "not an enum");
+		return Enum.valueOf((Class)type, readString());
+	}
+
+	private Object readFields() throws ClassNotFoundException, IOException {
+		int id=readClassId(true);
+		ClassLayout layout=layouts.get(id);
+		MethodHandle[] setters=layout.setters;
+		char[] kinds=layout.kinds;
+		try {
+			if(layout.record) {
+				Object[] values=new Object[kinds.length];
+				for(int i=0;i<kinds.length;i++)
+					values[i]=readField(kinds[i]);
+				return (Object)layout.constructor.invokeExact(values);
+			}
+			Object o=(Object)layout.constructor.invokeExact();
+			for(int i=0;i<kinds.length;i++) {
+				MethodHandle setter=setters[i];
+				switch(kinds[i]) {
+					case 'Z': setter.invokeExact(o, readBoolean()); break;
+					case 'B': setter.invokeExact(o, readByte()); break;
+					case 'S': setter.invokeExact(o, readShort()); break;
+					case 'C': setter.invokeExact(o, readChar()); break;
+					case 'I': setter.invokeExact(o, readInt()); break;
+					case 'J': setter.invokeExact(o, readLong()); break;
+					case 'F': setter.invokeExact(o, readFloat()); break;
+					case 'D': setter.invokeExact(o, readDouble()); break;
+					default: setter.invokeExact(o, readObject()); break;
+				}
+			}
+			return o;
+		} catch(ClassNotFoundException e) {
+			throw e;
+		} catch(Throwable t) {
+			throw rethrow(t, layout.type);
+		}
+	}
+
+	private Object readField(char kind) throws ClassNotFoundException, IOException {
+		switch(kind) {
+			case 'Z': return readBoolean();
+			case 'B': return readByte();
+			case 'S': return readShort();
+			case 'C': return readChar();
+			case 'I': return readInt();
+			case 'J': return readLong();
+			case 'F': return readFloat();
+			case 'D': return readDouble();
+			default: return readObject();
+		}
+	}
+
+	private Class<?> readClass(boolean withFields) throws ClassNotFoundException, IOException {
+		return classes.get(readClassId(withFields));
+	}
+
+	/**
+	 * Reads a reference to a class written by {@link CompactObjectOutput}. The first reference to a class is
+	 * checked against the layout of the local class.
+	 * @return the index of the class in {@link #classes}
+	 */
+	private int readClassId(boolean withFields) throws ClassNotFoundException, IOException {
+		int id=readLength();
+		if(id>0) {
+			if(id>classes.size())
+				throw new StreamCorruptedException("Unknown class reference "+id);
+			return id-1;
+		}
+		String name=readString();
+		Class<?> type=Class.forName(name, false, classLoader);
+		ClassLayout layout=null;
+		if(withFields) {
+			if(!Serializable.class.isAssignableFrom(type))
+				throw new InvalidClassException(name, "not serializable");
+			int count=readLength();
+			String[] names=new String[count];
+			char[] kinds=new char[count];
+			for(int i=0;i<count;i++) {
+				names[i]=readString();
+				kinds[i]=(char)readUnsignedByte();
+			}
+			layout=ClassLayout.of(type);
+			if(layout==null)
+				throw new InvalidClassException(name, "the class can not be read field by field");
+			if(!Arrays.equals(names, layout.names) || !Arrays.equals(kinds, layout.kinds))
+				throw new InvalidClassException(name, "the fields of the local class do not match the written fields");
+		}
+		classes.add(type);
+		layouts.add(layout);
+		return classes.size()-1;
+	}
+
+	private Object readJava() throws ClassNotFoundException, IOException {
+		byte[] bytes=new byte[readLength()];
+		readFully(bytes);
+		try(ObjectInputStream in=new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+			@Override
+			protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+				try {
+					return Class.forName(desc.getName(), false, classLoader);
+				} catch(ClassNotFoundException e) {
+					return super.resolveClass(desc);
+				}
+			}
+		}) {
+			return in.readObject();
+		}
+	}
+
+	private String readString() throws IOException {
+		byte[] bytes=new byte[readLength()];
+		readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private int readLength() throws IOException {
+		int value=0;
+		for(int shift=0;shift<32;shift+=7) {
+			int b=readUnsignedByte();
+			value|=(b&0x7F)<<shift;
+			if((b&0x80)==0) {
+				if(value<0)
+					throw new StreamCorruptedException("Invalid length "+value);
+				return value;
+			}
+		}
+		throw new StreamCorruptedException("Invalid length");
+	}
+}
@@ -0,0 +1,235 @@
+package com.github.powerlibraries.io.serialization;
+
+import static com.github.powerlibraries.io.serialization.CompactFormat.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@link ObjectOutput} of the {@link CompactSerializationCodec}.
+ */
+class CompactObjectOutput extends DataOutputStream implements ObjectOutput {
+
+	private final IdentityHashMap<Class<?>, Integer> classIds=new IdentityHashMap<>();
+	/**
+	 * The containers and objects that are currently written, to detect cycles.
+	 */
+	private final IdentityHashMap<Object, Object> writing=new IdentityHashMap<>();
+
+	CompactObjectOutput(OutputStream out) {
+		super(out);
+	}
+
+	@Override
+	public void writeObject(Object o) throws IOException {
+		if(o==null) {
+			write(NULL);
+			return;
+		}
+		Class<?> type=o.getClass();
+		if(type==String.class) {
+			write(STRING);
+			writeString((String)o);
+		}
+		else if(type==Integer.class) {
+			write(INT);
+			writeInt((Integer)o);
+		}
+		else if(type==Long.class) {
+			write(LONG);
+			writeLong((Long)o);
+		}
+		else if(type==Double.class) {
+			write(DOUBLE);
+			writeDouble((Double)o);
+		}
+		else if(type==Boolean.class)
+			write((Boolean)o?TRUE:FALSE);
+		else if(type==Float.class) {
+			write(FLOAT);
+			writeFloat((Float)o);
+		}
+		else if(type==Short.class) {
+			write(SHORT);
+			writeShort((Short)o);
+		}
+		else if(type==Byte.class) {
+			write(BYTE);
+			writeByte((Byte)o);
+		}
+		else if(type==Character.class) {
+			write(CHAR);
+			writeChar((Character)o);
+		}
+		else if(type==byte[].class) {
+			byte[] array=(byte[])o;
+			write(BYTE_ARRAY);
+			writeVarInt(array.length);
+			write(array);
+		}
+		else if(type==int[].class) {
+			int[] array=(int[])o;
+			write(INT_ARRAY);
+			writeVarInt(array.length);
+			for(int v:array)
+				writeInt(v);
+		}
+		else if(type==long[].class) {
+			long[] array=(long[])o;
+			write(LONG_ARRAY);
+			writeVarInt(array.length);
+			for(long v:array)
+				writeLong(v);
+		}
+		else if(type==double[].class) {
+			double[] array=(double[])o;
+			write(DOUBLE_ARRAY);
+			writeVarInt(array.length);
+			for(double v:array)
+				writeDouble(v);
+		}
+		else if(type==ArrayList.class) {
+			write(ARRAY_LIST);
+			enter(o);
+			try {
+				ArrayList<?> list=(ArrayList<?>)o;
+				writeVarInt(list.size());
+				for(int i=0;i<list.size();i++)
+					writeObject(list.get(i));
+			} finally {
+				writing.remove(o);
+			}
+		}
+		else if(type==HashMap.class) {
+			write(HASH_MAP);
+			writeMap((Map<?, ?>)o);
+		}
+		else if(type==LinkedHashMap.class) {
+			write(LINKED_HASH_MAP);
+			writeMap((Map<?, ?>)o);
+		}
+		else if(o instanceof Enum) {
+			write(ENUM);
+			writeClass(((Enum<?>)o).getDeclaringClass(), null);
+			writeString(((Enum<?>)o).name());
+		}
+		else {
+			ClassLayout layout=ClassLayout.of(type);
+			if(layout!=null) {
+				write(OBJECT);
+				writeClass(type, layout);
+				writeFields(o, layout);
+			}
+			else {
+				write(JAVA);
+				writeJava(o);
+			}
+		}
+	}
+
+	/**
+	 * This method marks the given object as currently written. The format has no back references, so an object 
+	 * that is reached again while it is written can not be written.
+	 */
+	private void enter(Object o) throws NotSerializableException {
+		if(writing.put(o, o)!=null)
+			throw new NotSerializableException(o.getClass().getName()+" is part of a reference cycle, which is only "
+				+ "supported for objects written with Java serialization");
+	}
+
+	private void writeFields(Object o, ClassLayout layout) throws IOException {
+		MethodHandle[] getters=layout.getters;
+		char[] kinds=layout.kinds;
+		enter(o);
+		try {
+			for(int i=0;i<kinds.length;i++) {
+				MethodHandle getter=getters[i];
+				switch(kinds[i]) {
+					case 'Z': writeBoolean((boolean)getter.invokeExact(o)); break;
+					case 'B': writeByte((byte)getter.invokeExact(o)); break;
+					case 'S': writeShort((short)getter.invokeExact(o)); break;
+					case 'C': writeChar((char)getter.invokeExact(o)); break;
+					case 'I': writeInt((int)getter.invokeExact(o)); break;
+					case 'J': writeLong((long)getter.invokeExact(o)); break;
+					case 'F': writeFloat((float)getter.invokeExact(o)); break;
+					case 'D': writeDouble((double)getter.invokeExact(o)); break;
+					default: writeObject((Object)getter.invokeExact(o)); break;
+				}
+			}
+		} catch(Throwable t) {
+			throw rethrow(t, layout.type);
+		} finally {
+			writing.remove(o);
+		}
+	}
+
+	private void writeMap(Map<?, ?> map) throws IOException {
+		enter(map);
+		try {
+			writeVarInt(map.size());
+			for(Map.Entry<?, ?> e:map.entrySet()) {
+				writeObject(e.getKey());
+				writeObject(e.getValue());
+			}
+		} finally {
+			writing.remove(map);
+		}
+	}
+
+	/**
+	 * Writes a reference to the given class. The first reference to a class contains its name and the names and
+	 * kinds of its fields, later references only the number of the class.
+	 */
+	private void writeClass(Class<?> type, ClassLayout layout) throws IOException {
+		Integer id=classIds.get(type);
+		if(id!=null) {
+			writeVarInt(id+1);
+			return;
+		}
+		writeVarInt(0);
+		writeString(type.getName());
+		if(layout!=null) {
+			writeVarInt(layout.names.length);
+			for(int i=0;i<layout.names.length;i++) {
+				writeString(layout.names[i]);
+				write(layout.kinds[i]);
+			}
+		}
+		classIds.put(type, classIds.size());
+	}
+
+	private void writeJava(Object o) throws IOException {
+		ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+		try(ObjectOutputStream out=new ObjectOutputStream(bytes)) {
+			out.writeObject(o);
+		}
+		writeVarInt(bytes.size());
+		bytes.writeTo(this);
+	}
+
+	private void writeString(String s) throws IOException {
+		byte[] bytes=s.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(bytes.length);
+		write(bytes);
+	}
+
+	private void writeVarInt(int value) throws IOException {
+		while((value&~0x7F)!=0) {
+			write((value&0x7F)|0x80);
+			value>>>=7;
+		}
+		write(value);
+	}
+}
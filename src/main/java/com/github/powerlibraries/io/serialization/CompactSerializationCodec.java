@@ -0,0 +1,61 @@
+package com.github.powerlibraries.io.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+
+/**
+ * This codec writes a compact binary format that is considerably faster than Java serialization for records and
+ * simple classes with many primitive fields. 
+ * <p>
+ * Primitive wrappers, strings, primitive arrays, enums, {@link java.util.ArrayList}s, {@link java.util.HashMap}s
+ * and {@link java.util.LinkedHashMap}s are written directly. {@link java.io.Serializable} records and 
+ * {@link java.io.Serializable} classes without custom serialization methods are written field by field. The fields are accessed with {@link java.lang.invoke.MethodHandle}s that are created 
+ * once per class. The names of the fields are written with the first occurrence of each class and have to 
+ * match when the class is read. All other objects fall back to Java serialization.
+ * <p>
+ * Like in Java serialization only the fields of the serializable classes are written and a class is created by 
+ * running the argument-less constructor of its first superclass that is not {@link java.io.Serializable}. If that 
+ * constructor is not accessible, or if the JDK does not provide sun.reflect.ReflectionFactory, the class falls
+ * back to Java serialization.
+ * <p>
+ * In contrast to Java serialization this codec does not preserve the identity of objects that are referenced 
+ * more than once, such objects are read as separate copies. Cyclic references are only supported for objects 
+ * that fall back to Java serialization, other cycles are rejected with a 
+ * {@link java.io.NotSerializableException}.
+ */
+public class CompactSerializationCodec implements SerializationCodec {
+
+	private final ClassLoader classLoader;
+
+	/**
+	 * Creates a codec that resolves classes with the context class loader of the reading thread.
+	 */
+	public CompactSerializationCodec() {
+		this(null);
+	}
+
+	/**
+	 * @param classLoader the class loader used to resolve the classes of read objects
+	 */
+	public CompactSerializationCodec(ClassLoader classLoader) {
+		this.classLoader=classLoader;
+	}
+
+	@Override
+	public ObjectOutput createOutput(OutputStream out) throws IOException {
+		return new CompactObjectOutput(out);
+	}
+
+	@Override
+	public ObjectInput createInput(InputStream in) throws IOException {
+		ClassLoader loader=classLoader;
+		if(loader==null)
+			loader=Thread.currentThread().getContextClassLoader();
+		if(loader==null)
+			loader=CompactSerializationCodec.class.getClassLoader();
+		return new CompactObjectInput(in, loader);
+	}
+}
@@ -0,0 +1,31 @@
+package com.github.powerlibraries.io.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * This codec uses the standard Java serialization with {@link ObjectOutputStream} and {@link ObjectInputStream}.
+ * This is the behavior of builders without a codec.
+ */
+public class JavaSerializationCodec implements SerializationCodec {
+
+	/**
+	 * The shared instance of this stateless codec.
+	 */
+	public static final JavaSerializationCodec INSTANCE=new JavaSerializationCodec();
+
+	@Override
+	public ObjectOutput createOutput(OutputStream out) throws IOException {
+		return new ObjectOutputStream(out);
+	}
+
+	@Override
+	public ObjectInput createInput(InputStream in) throws IOException {
+		return new ObjectInputStream(in);
+	}
+}
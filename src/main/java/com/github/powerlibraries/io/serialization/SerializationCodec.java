@@ -0,0 +1,32 @@
+package com.github.powerlibraries.io.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+
+/**
+ * This interface defines how objects are written by the writeObject(s) methods of the out builders and read by 
+ * the readObject(s) methods of the {@link com.github.powerlibraries.io.builder.InBuilder}. A codec can be chosen 
+ * for a single builder with <code>withCodec(...)</code>. Builders without a codec use Java serialization, 
+ * see {@link JavaSerializationCodec}.
+ */
+public interface SerializationCodec {
+
+	/**
+	 * This method creates the output that serializes objects to the given stream.
+	 * @param out the stream to write to
+	 * @return an {@link ObjectOutput} writing to the given stream
+	 * @throws IOException if writing a header to the stream throws an {@link IOException}
+	 */
+	public ObjectOutput createOutput(OutputStream out) throws IOException;
+
+	/**
+	 * This method creates the input that deserializes objects written by an output of this codec.
+	 * @param in the stream to read from
+	 * @return an {@link ObjectInput} reading from the given stream
+	 * @throws IOException if reading a header from the stream throws an {@link IOException}
+	 */
+	public ObjectInput createInput(InputStream in) throws IOException;
+}
@@ -1,20 +1,59 @@
 package org.github.power.io;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.github.powerlibraries.io.IOConfig;
 import com.github.powerlibraries.io.In;
+import com.github.powerlibraries.io.Out;
+import com.github.powerlibraries.io.builder.InBuilder;
+import com.github.powerlibraries.io.builder.sources.FileSource;
+import com.github.powerlibraries.io.builder.sources.MappedFileSource;
+import com.github.powerlibraries.io.helper.BufferPool;
+import com.github.powerlibraries.io.helper.CompressorRegistry;
+import com.github.powerlibraries.io.helper.compression.GZIPIndex;
+import com.github.powerlibraries.io.helper.compression.IndexedGZIPOutputStream;
+import com.github.powerlibraries.io.helper.compression.ParallelGZIPInputStream;
+import com.github.powerlibraries.io.helper.compression.ParallelGZIPOutputStream;
+import com.github.powerlibraries.io.metrics.IOStatistics;
 
 public class InTests {
 
@@ -96,6 +135,256 @@ public class InTests {
 		}
 	}
 
+	@Test
+	public void testCopyToFile() throws IOException {
+		File copy=new File("target/test-classes/utf8test.copy.txt");
+		try(FileOutputStream out=new FileOutputStream(copy)) {
+			In.file("target/test-classes/utf8test.txt").copyTo(out);
+		}
+		Assert.assertArrayEquals(
+			Files.readAllBytes(Paths.get("target/test-classes/utf8test.txt")),
+			Files.readAllBytes(copy.toPath())
+		);
+	}
+
+	@Test
+	public void testMapped() throws IOException {
+		ArrayList<String> expected=loadExpected(StandardCharsets.UTF_8);
+		Assert.assertEquals(expected, In.mapped(new File("target/test-classes/utf8test.txt")).withUTF8().readLines());
+		
+		//small regions force characters to be split between two mappings
+		for(int regionSize:new int[] {97, 98, 99, 1001}) {
+			InBuilder in=In.source(new MappedFileSource(Paths.get("target/test-classes/utf8test.txt"), regionSize)).withUTF8();
+			Assert.assertEquals(expected, in.readLines());
+			try(Stream<String> lines=in.streamLines()) {
+				Assert.assertEquals(expected, lines.collect(Collectors.toList()));
+			}
+			byte[] bytes=Files.readAllBytes(Paths.get("target/test-classes/utf8test.txt"));
+			Assert.assertArrayEquals(bytes, in.readBytes(bytes.length));
+		}
+	}
+
+	@Test
+	public void testIndexedGZIP() throws IOException {
+		byte[] data=new byte[300000];
+		Random r=new Random(42);
+		for(int i=0;i<data.length;i++)
+			data[i]=(byte)('a'+r.nextInt(4));
+		File file=new File("target/test-classes/indexed.bin.gz");
+		Out.file(file).compress(out -> new IndexedGZIPOutputStream(out, 4096, Deflater.DEFAULT_COMPRESSION)).writeBytes(data);
+		
+		GZIPIndex index;
+		try(FileChannel channel=FileChannel.open(file.toPath())) {
+			index=GZIPIndex.read(channel);
+			Assert.assertEquals((data.length+4095)/4096, index.size());
+			Assert.assertEquals(data.length, index.getUncompressedLength());
+		}
+		
+		for(long position:new long[] {0, 1, 4095, 4096, 150001, data.length-1, data.length, data.length+10}) {
+			ByteArrayOutputStream out=new ByteArrayOutputStream();
+			IOStatistics statistics=new IOStatistics();
+			IOConfig.setListener(statistics);
+			try {
+				In.file(file).decompress().seek(position).copyTo(out);
+			} finally {
+				IOConfig.setListener(null);
+			}
+			int from=(int)Math.min(position, data.length);
+			Assert.assertArrayEquals(Arrays.copyOfRange(data, from, data.length), out.toByteArray());
+			//the stream has to start at the block of the position instead of inflating everything before it
+			long blockOffset=index.getCompressedOffset(index.findBlock(position));
+			Assert.assertTrue(statistics.getStatistics(FileSource.class, true).getRawBytes()<=file.length()-blockOffset);
+		}
+		
+		ByteArrayOutputStream out=new ByteArrayOutputStream();
+		In.bytes(data).seek(1000).copyTo(out);
+		Assert.assertArrayEquals(Arrays.copyOfRange(data, 1000, data.length), out.toByteArray());
+	}
+
+	@Test
+	public void testParallelStreamLines() throws IOException {
+		ArrayList<String> expected=loadExpected(StandardCharsets.UTF_8);
+		StringBuilder content=new StringBuilder();
+		ArrayList<String> lines=new ArrayList<>();
+		for(int i=0;i<20000;i++) {
+			String l=i+" "+expected.get(i%expected.size());
+			lines.add(l);
+			content.append(l).append(i%3==0?"\r\n":"\n");
+		}
+		File file=new File("target/test-classes/lines.txt");
+		Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+		
+		try(Stream<String> stream=In.file(file).withUTF8().streamLines()) {
+			Assert.assertEquals(lines, stream.parallel().collect(Collectors.toList()));
+		}
+		try(Stream<String> stream=In.mapped(file).withUTF8().streamLines()) {
+			Assert.assertEquals(lines, stream.collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	public void testWrappers() throws IOException {
+		ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+		In.file("target/test-classes/utf8test.txt.gz").decompress().copyTo(bytes);
+		long[] count=new long[1];
+		InBuilder in=In.file("target/test-classes/utf8test.txt.gz").decompress().withUTF8()
+			.wrap((InputStream s) -> new FilterInputStream(s) {
+				@Override
+				public int read(byte[] b, int off, int len) throws IOException {
+					int read=super.read(b, off, len);
+					if(read>0)
+						count[0]+=read;
+					return read;
+				}
+			})
+			.wrap((Reader r) -> new FilterReader(r) {
+				@Override
+				public int read(char[] cbuf, int off, int len) throws IOException {
+					int read=super.read(cbuf, off, len);
+					for(int i=off;i<off+read;i++)
+						cbuf[i]=Character.toUpperCase(cbuf[i]);
+					return read;
+				}
+			});
+		
+		ArrayList<String> expected=loadExpected(StandardCharsets.UTF_8);
+		for(int i=0;i<3;i++) {
+			List<String> lines=in.readLines();
+			Assert.assertEquals(expected.size(), lines.size());
+			for(int l=0;l<lines.size();l++) {
+				char[] upper=expected.get(l).toCharArray();
+				for(int c=0;c<upper.length;c++)
+					upper[c]=Character.toUpperCase(upper[c]);
+				Assert.assertEquals(new String(upper), lines.get(l));
+			}
+			Assert.assertEquals(bytes.size()*(i+1), count[0]);
+		}
+		
+		CompressorRegistry registry=CompressorRegistry.getInstance().copy();
+		Out.file("target/test-classes/wrapped.txt.b64").withCompressorRegistry(registry).compress(Base64.getEncoder()::wrap).write("wrapped");
+		InBuilder reused=In.file("target/test-classes/wrapped.txt.b64").withCompressorRegistry(registry).decompress();
+		try {
+			reused.readAll();
+			Assert.fail("the unknown extension should fall back to the inflater");
+		} catch(ZipException e) {
+			//expected
+		}
+		//the resolved chain has to be updated after the registry changed
+		registry.registerWrapper("b64", Base64.getDecoder()::wrap);
+		Assert.assertEquals("wrapped", reused.readAll());
+	}
+
+	@Test
+	public void testBufferSize() throws IOException {
+		ArrayList<String> expected=loadExpected(StandardCharsets.UTF_8);
+		File file=new File("target/test-classes/utf8test.txt");
+		Assert.assertEquals(BufferPool.DEFAULT_BUFFER_SIZE, In.file(file).getBufferSize());
+		Assert.assertEquals(file.length(), In.file(file).withAutoBufferSize().getBufferSize());
+		Assert.assertEquals(10, In.bytes(new byte[10]).withAutoBufferSize().getBufferSize());
+		Assert.assertEquals(BufferPool.MIN_SIZE, Out.bytes().withAutoBufferSize().getBufferSize());
+		Assert.assertEquals(BufferPool.DEFAULT_BUFFER_SIZE, Out.file(file).withAutoBufferSize().getBufferSize());
+		
+		byte[] large=new byte[3*BufferPool.MAX_AUTO_BUFFER_SIZE];
+		new Random(3).nextBytes(large);
+		File largeFile=new File("target/test-classes/large.bin");
+		Out.file(largeFile).withBufferSize(BufferPool.MAX_AUTO_BUFFER_SIZE).writeBytes(large);
+		Assert.assertEquals(BufferPool.MAX_AUTO_BUFFER_SIZE, In.file(largeFile).withAutoBufferSize().getBufferSize());
+		ByteArrayOutputStream out=new ByteArrayOutputStream();
+		In.file(largeFile).withBufferSize(1<<20).copyTo(out);
+		Assert.assertArrayEquals(large, out.toByteArray());
+		
+		for(int size:new int[] {1, 3, 1<<20})
+			Assert.assertEquals(expected, In.file(file).withUTF8().withBufferSize(size).readLines());
+		try {
+			In.file(file).withBufferSize(0);
+			Assert.fail();
+		} catch(IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void testMarkReset() throws IOException {
+		byte[] data=new byte[100000];
+		new Random(5).nextBytes(data);
+		try(DataInputStream in=In.bytes(data).withBufferSize(16).asData()) {
+			Assert.assertTrue(in.markSupported());
+			in.skipBytes(10);
+			in.mark(5000);
+			byte[] first=new byte[3000];
+			in.readFully(first);
+			Assert.assertArrayEquals(Arrays.copyOfRange(data, 10, 3010), first);
+			in.reset();
+			byte[] again=new byte[4000];
+			in.readFully(again);
+			Assert.assertArrayEquals(Arrays.copyOfRange(data, 10, 4010), again);
+
+			//the mark is dropped after more than readlimit bytes
+			in.mark(16);
+			in.readFully(new byte[50000]);
+			try {
+				in.reset();
+				Assert.fail();
+			} catch(IOException e) {
+				//expected
+			}
+			Assert.assertEquals(data[54010]&0xFF, in.read());
+		}
+	}
+
+	@Test
+	public void testReadAll() throws IOException {
+		ArrayList<String> expected=loadExpected(StandardCharsets.UTF_8);
+		File file=new File("target/test-classes/utf8test.txt");
+		Assert.assertEquals(String.join("\n", expected), In.file(file).withUTF8().readAll());
+		Assert.assertEquals(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), In.file(file).withUTF8().readAll(true));
+		Assert.assertEquals(String.join("\n", expected), In.mapped(file).withUTF8().readAll());
+		
+		for(String content:new String[] {"", "\n", "a", "a\n", "a\r\n", "a\r", "a\n\n", "\r\r\n", "a\rb\r\nc\n\rd", "\u00e4\r\n\u00f6\r"}) {
+			String lines;
+			try(BufferedReader in=new BufferedReader(new StringReader(content))) {
+				lines=in.lines().collect(Collectors.joining("\n"));
+			}
+			Assert.assertEquals(lines, In.bytes(content.getBytes(StandardCharsets.UTF_8)).withUTF8().readAll());
+			Assert.assertEquals(lines, In.string(content, StandardCharsets.UTF_8).withUTF8().readAll());
+			Assert.assertEquals(content, In.string(content, StandardCharsets.UTF_8).withUTF8().readAll(true));
+			Assert.assertEquals(content, In.bytes(content.getBytes(StandardCharsets.UTF_8)).withUTF8().wrap((Reader r) -> r).readAll(true));
+		}
+	}
+
+	@Test
+	public void testReadBytes() throws IOException {
+		byte[] data=new byte[200000];
+		new Random(11).nextBytes(data);
+		byte[] compressed=Out.bytes().compress(GZIPOutputStream::new).writeBytes(data);
+		Assert.assertArrayEquals(data, In.bytes(compressed).decompress(GZIPInputStream::new).readBytes(data.length));
+		Assert.assertArrayEquals(data, In.bytes(compressed).decompress(GZIPInputStream::new).readAllBytes());
+		try {
+			In.bytes(compressed).decompress(GZIPInputStream::new).readBytes(data.length+1);
+			Assert.fail();
+		} catch(EOFException e) {
+			//expected
+		}
+		
+		File file=new File("target/test-classes/readbytes.bin");
+		Files.write(file.toPath(), data);
+		Assert.assertArrayEquals(data, In.file(file).readAllBytes());
+		Assert.assertArrayEquals(Arrays.copyOfRange(data, 5, data.length), In.file(file).seek(5).readAllBytes());
+		Assert.assertArrayEquals(data, In.bytes(data).readAllBytes());
+		try {
+			In.file(file).readBytesAsync(data.length+1).join();
+			Assert.fail();
+		} catch(CompletionException e) {
+			Assert.assertTrue(e.getCause() instanceof EOFException);
+		}
+		try {
+			In.file(file).readBytesAsync(-1).join();
+			Assert.fail();
+		} catch(CompletionException e) {
+			Assert.assertTrue(e.getCause() instanceof NegativeArraySizeException);
+		}
+	}
+
 	@Test
 	public void testResource() throws IOException {
 		ArrayList<String> expected=loadExpected(StandardCharsets.UTF_8);
@@ -108,4 +397,137 @@ public class InTests {
 			Assert.assertFalse(expectedIt.hasNext());
 		}
 	}
+	
+	@Test
+	public void testPrefetch() throws IOException {
+		byte[] data=new byte[300000];
+		new Random(5).nextBytes(data);
+		byte[] compressed=Out.bytes().compress(GZIPOutputStream::new).writeBytes(data);
+		//a source that delivers its bytes in small bursts
+		InputStream slow=new FilterInputStream(new ByteArrayInputStream(compressed)) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return super.read(b, off, Math.min(len, 1000));
+			}
+		};
+		Assert.assertArrayEquals(data, In.stream(slow).prefetch(3, 4096).decompress(GZIPInputStream::new).readAllBytes());
+		
+		try(InputStream in=In.bytes(data).prefetch(1, 100).asStream()) {
+			Assert.assertEquals(data[0]&0xFF, in.read());
+			byte[] part=new byte[1000];
+			Assert.assertEquals(99, in.read(part));
+			Assert.assertArrayEquals(Arrays.copyOfRange(data, 1, 100), Arrays.copyOf(part, 99));
+		}
+		
+		InputStream failing=new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("failing source");
+			}
+		};
+		try {
+			In.stream(failing).prefetch(2, 100).readAllBytes();
+			Assert.fail();
+		} catch(IOException e) {
+			Assert.assertEquals("failing source", e.getMessage());
+		}
+	}
+	
+	@Test(timeout=10000)
+	public void testPrefetchClose() throws IOException, InterruptedException {
+		//a source that is not gzip, so the chain fails after the prefetching task was started
+		CountDownLatch closed=new CountDownLatch(1);
+		InputStream zeros=new FilterInputStream(new ByteArrayInputStream(new byte[100000])) {
+			@Override
+			public void close() throws IOException {
+				super.close();
+				closed.countDown();
+			}
+		};
+		try {
+			In.stream(zeros).prefetch(2, 8192).decompress(GZIPInputStream::new).readAll();
+			Assert.fail();
+		} catch(ZipException e) {
+			//expected
+		}
+		Assert.assertEquals(0, closed.getCount());
+		
+		//a source that stalls until it is closed
+		CountDownLatch reading=new CountDownLatch(1);
+		CountDownLatch released=new CountDownLatch(1);
+		InputStream stalled=new InputStream() {
+			@Override
+			public int read() throws IOException {
+				reading.countDown();
+				try {
+					released.await();
+				} catch(InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+				throw new IOException("Stream closed");
+			}
+			
+			@Override
+			public void close() {
+				released.countDown();
+			}
+		};
+		InputStream in=In.stream(stalled).prefetch(2, 100).asStream();
+		reading.await();
+		in.close();
+		Assert.assertEquals(0, released.getCount());
+	}
+	
+	@Test
+	public void testParallelGZIPInput() throws IOException {
+		byte[] data=new byte[1000000];
+		Random r=new Random(3);
+		for(int i=0;i<data.length;i++)
+			data[i]=(byte)('a'+r.nextInt(4));
+		//without compression these headers appear inside of the members
+		byte[] header={0x1f, (byte)0x8b, 8, 0, 0, 0, 0, 0, 0, 3};
+		for(int i=0;i<data.length;i+=1000)
+			System.arraycopy(header, 0, data, i, header.length);
+		
+		byte[] multi=Out.bytes().compress(ParallelGZIPOutputStream.wrapper(ForkJoinPool.commonPool(), 10000, Deflater.NO_COMPRESSION)).writeBytes(data);
+		byte[] single=Out.bytes().compress(GZIPOutputStream::new).writeBytes(data);
+		for(byte[] compressed:new byte[][] {multi, single, concat(single, multi)}) {
+			byte[] expected=compressed.length>multi.length?concat(data, data):data;
+			try(InputStream in=new ParallelGZIPInputStream(new ByteArrayInputStream(compressed), ForkJoinPool.commonPool(), 2000, null)) {
+				Assert.assertArrayEquals(expected, In.stream(in).readAllBytes());
+			}
+			Assert.assertArrayEquals(expected, In.bytes(compressed).decompressParallel().readAllBytes());
+			//with a small budget the chunks that inflate to too many bytes are inflated again while reading
+			for(long maxPendingBytes:new long[] {20000, 100000}) {
+				try(InputStream in=new ParallelGZIPInputStream(new ByteArrayInputStream(compressed), ForkJoinPool.commonPool(), 2000, null, maxPendingBytes)) {
+					Assert.assertArrayEquals(expected, In.stream(in).readAllBytes());
+				}
+			}
+		}
+		byte[] zeros=new byte[3000000];
+		byte[] compressedZeros=Out.bytes().compress(ParallelGZIPOutputStream.wrapper(ForkJoinPool.commonPool(), 1000000, Deflater.DEFAULT_COMPRESSION)).writeBytes(zeros);
+		try(InputStream in=new ParallelGZIPInputStream(new ByteArrayInputStream(compressedZeros), ForkJoinPool.commonPool(), 100, null, 100000)) {
+			Assert.assertArrayEquals(zeros, In.stream(in).readAllBytes());
+		}
+		
+		File file=new File("target/test-classes/parallel.bin.gz");
+		Out.file(file).compress(out -> new IndexedGZIPOutputStream(out, 5000, Deflater.DEFAULT_COMPRESSION)).writeBytes(data);
+		Assert.assertArrayEquals(data, In.file(file).decompressParallel().readAllBytes());
+		Assert.assertArrayEquals(Arrays.copyOfRange(data, 123456, data.length), In.file(file).decompressParallel().seek(123456).readAllBytes());
+		
+		byte[] corrupt=multi.clone();
+		corrupt[corrupt.length/2+100]^=0x55;
+		try {
+			In.bytes(corrupt).decompressParallel().readAllBytes();
+			Assert.fail();
+		} catch(ZipException e) {
+			//expected
+		}
+	}
+	
+	private static byte[] concat(byte[] a, byte[] b) {
+		byte[] result=Arrays.copyOf(a, a.length+b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
 }
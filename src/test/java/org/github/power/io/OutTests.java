@@ -1,16 +1,74 @@
 package org.github.power.io;
 
 import java.awt.Point;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.NotSerializableException;
 import java.io.ObjectOutputStream;
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.github.powerlibraries.io.IOConfig;
+import com.github.powerlibraries.io.In;
 import com.github.powerlibraries.io.Out;
+import com.github.powerlibraries.io.builder.ByteOutBuilder;
+import com.github.powerlibraries.io.builder.OutBuilder;
+import com.github.powerlibraries.io.builder.sources.FileSource;
+import com.github.powerlibraries.io.builder.sources.MappedFileSource;
+import com.github.powerlibraries.io.builder.targets.FileTarget;
+import com.github.powerlibraries.io.builder.targets.OutputStreamTarget;
+import com.github.powerlibraries.io.builder.targets.StringTarget;
+import com.github.powerlibraries.io.builder.targets.Target;
+import com.github.powerlibraries.io.functions.OutputStreamWrapper;
+import com.github.powerlibraries.io.functions.OutputStreamWrapper;
+import com.github.powerlibraries.io.helper.AtomicFileOutputStream;
+import com.github.powerlibraries.io.helper.Backpressure;
+import com.github.powerlibraries.io.helper.BufferPool;
+import com.github.powerlibraries.io.helper.CompressorRegistry;
+import com.github.powerlibraries.io.helper.ConcurrentTeeOutputStream;
+import com.github.powerlibraries.io.helper.GroupCommit;
+import com.github.powerlibraries.io.helper.WriteBehindOutputStream;
 import com.github.powerlibraries.io.helper.byteout.BAObjectOutputStream;
+import com.github.powerlibraries.io.helper.byteout.BAOutputStream;
+import com.github.powerlibraries.io.helper.compression.ParallelGZIPOutputStream;
+import com.github.powerlibraries.io.helper.stringout.SBWriter;
+import com.github.powerlibraries.io.metrics.IOStatistics;
+import com.github.powerlibraries.io.metrics.IOStatistics.TypeStatistics;
 
 public class OutTests {
 	
@@ -32,4 +90,696 @@ public class OutTests {
 			Assert.assertEquals(expected, out.toString());
 		}
 	}
+	
+	@Test
+	public void testAsync() throws Exception {
+		ArrayList<CompletableFuture<Void>> writes=new ArrayList<>();
+		for(int i=0;i<50;i++)
+			writes.add(Out.file("target/test-classes/async"+i+".txt").withUTF8().writeLinesAsync(Arrays.asList("file", i, "\u00e4")));
+		CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).get();
+		
+		for(int i=0;i<50;i++) {
+			Assert.assertEquals("file\n"+i+"\n\u00e4", In.file("target/test-classes/async"+i+".txt").withUTF8().readAllAsync().get());
+			byte[] expected=("file\n"+i).getBytes(StandardCharsets.UTF_8);
+			Assert.assertArrayEquals(expected, In.file("target/test-classes/async"+i+".txt").readBytesAsync(expected.length).get());
+		}
+		
+		try {
+			In.file("target/test-classes/missing.txt").readBytesAsync(10).get();
+			Assert.fail();
+		} catch(ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+	
+	@Test
+	public void testBufferPool() throws IOException {
+		BufferPool pool=new BufferPool(1<<20);
+		byte[] bytes=pool.takeBytes(1000);
+		Assert.assertEquals(1024, bytes.length);
+		pool.returnBytes(bytes);
+		Assert.assertEquals(1024, pool.getRetainedBytes());
+		Assert.assertSame(bytes, pool.takeBytes(600));
+		Assert.assertEquals(0, pool.getRetainedBytes());
+		pool.returnBytes(new byte[1000]);
+		pool.returnBytes(new byte[BufferPool.MAX_SIZE*2]);
+		Assert.assertEquals(0, pool.getRetainedBytes());
+		
+		BufferPool disabled=new BufferPool(0);
+		char[] chars=disabled.takeChars(BufferPool.DEFAULT_BUFFER_SIZE);
+		disabled.returnChars(chars);
+		Assert.assertEquals(0, disabled.getRetainedBytes());
+		Assert.assertNotSame(chars, disabled.takeChars(BufferPool.DEFAULT_BUFFER_SIZE));
+		
+		BufferPool original=IOConfig.getBufferPool();
+		IOConfig.setBufferPool(pool);
+		try {
+			byte[] data=new byte[100000];
+			new Random(7).nextBytes(data);
+			byte[] copy=Out.bytes().copyFrom(new ByteArrayInputStream(data));
+			Assert.assertArrayEquals(data, copy);
+			Assert.assertEquals(BufferPool.DEFAULT_BUFFER_SIZE, pool.getRetainedBytes());
+			Point p=new Point(3, 4);
+			Assert.assertEquals(p, In.bytes(Out.bytes().writeObject(p)).readObject());
+			Assert.assertEquals(BufferPool.DEFAULT_BUFFER_SIZE, pool.getRetainedBytes());
+		} catch(ClassNotFoundException e) {
+			throw new IOException(e);
+		} finally {
+			IOConfig.setBufferPool(original);
+		}
+	}
+	
+	@Test
+	public void testMetrics() throws Exception {
+		IOStatistics statistics=new IOStatistics();
+		ObjectName name=statistics.registerMBean();
+		IOConfig.setListener(statistics);
+		try {
+			StringBuilder content=new StringBuilder();
+			for(int i=0;i<10000;i++)
+				content.append("line ").append(i%10).append('\n');
+			File file=new File("target/test-classes/metrics.txt.gz");
+			Out.file(file).compress().write(content.toString());
+			Assert.assertEquals(content.toString(), In.file(file).decompress().readAll(true));
+			File copy=new File("target/test-classes/metrics.copy.gz");
+			try(FileOutputStream out=new FileOutputStream(copy)) {
+				In.file(file).copyTo(out);
+			}
+			
+			TypeStatistics written=statistics.getStatistics(FileTarget.class, false);
+			Assert.assertEquals(1, written.getOpened());
+			Assert.assertEquals(0, written.getOpen());
+			Assert.assertEquals(content.length(), written.getBytes());
+			Assert.assertEquals(file.length(), written.getRawBytes());
+			Assert.assertTrue(written.getCompressionRatio()>10);
+			
+			TypeStatistics read=statistics.getStatistics(FileSource.class, true);
+			Assert.assertEquals(2, read.getOpened());
+			Assert.assertEquals(0, read.getOpen());
+			Assert.assertEquals(content.length()+file.length(), read.getBytes());
+			Assert.assertEquals(2*file.length(), read.getRawBytes());
+			Assert.assertArrayEquals(Files.readAllBytes(file.toPath()), Files.readAllBytes(copy.toPath()));
+			
+			MBeanServer server=ManagementFactory.getPlatformMBeanServer();
+			Assert.assertEquals((long)content.length(), server.getAttribute(name, "BytesWritten"));
+			Assert.assertEquals(0L, server.getAttribute(name, "OpenStreams"));
+			
+			//chains that fail while they are built do not stay open
+			try {
+				Out.file(copy).compress(out -> {
+					throw new IOException("wrapper failed");
+				}).write("x");
+				Assert.fail();
+			} catch(IOException e) {
+				Assert.assertEquals("wrapper failed", e.getMessage());
+			}
+			try {
+				In.file(copy).decompress(GZIPInputStream::new).readAll();
+				Assert.fail();
+			} catch(IOException e) {
+				//expected
+			}
+			Assert.assertEquals(0, statistics.getOpenStreams());
+			
+			try(OutputStream out=Out.file(copy).asStream()) {
+				statistics.reset();
+				Assert.assertEquals(1, statistics.getOpenStreams());
+			}
+			Assert.assertEquals(0, statistics.getOpenStreams());
+			Assert.assertEquals(0, statistics.getStatistics(FileTarget.class, false).getOpen());
+
+			//the fast paths that bypass the stream chain are not taken while a listener is set
+			statistics.reset();
+			File plain=new File("target/test-classes/metrics.txt");
+			Out.file(plain).write(content.toString());
+			try(Stream<String> lines=In.file(plain).withUTF8().streamLines()) {
+				Assert.assertEquals(10000, lines.count());
+			}
+			Assert.assertEquals(content.length(), In.file(plain).readBytesAsync(content.length()).join().length);
+			Assert.assertEquals(content.toString(), In.mapped(plain).withUTF8().readAll(true));
+			Assert.assertEquals(content.toString(), Out.string().write(content.toString()));
+			Assert.assertEquals(2*content.length(), statistics.getStatistics(FileSource.class, true).getBytes());
+			Assert.assertEquals(content.length(), statistics.getStatistics(MappedFileSource.class, true).getBytes());
+			Assert.assertEquals(content.length(), statistics.getStatistics(StringTarget.class, false).getBytes());
+		} finally {
+			IOConfig.setListener(null);
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+	}
+	
+	@Test
+	public void testScopedCompressorRegistry() throws IOException {
+		CompressorRegistry registry=CompressorRegistry.getInstance().copy();
+		registry.registerWrapper("b64", Base64.getDecoder()::wrap, Base64.getEncoder()::wrap);
+		Assert.assertTrue(registry.canWrapOutput("test.txt.b64"));
+		Assert.assertFalse(CompressorRegistry.getInstance().canWrapOutput("test.txt.b64"));
+		
+		Out.file("target/test-classes/scoped.txt.b64").withCompressorRegistry(registry).compress().write("scoped");
+		Assert.assertEquals(Base64.getEncoder().encodeToString("scoped".getBytes()), In.file("target/test-classes/scoped.txt.b64").readAll());
+		Assert.assertEquals("scoped", In.file("target/test-classes/scoped.txt.b64").withCompressorRegistry(registry).decompress().readAll());
+		
+		Out.file("target/test-classes/scoped.txt.b64.gz").withCompressorRegistry(registry).compress().write("chained");
+		Assert.assertEquals("chained", In.file("target/test-classes/scoped.txt.b64.gz").withCompressorRegistry(registry).decompress().readAll());
+	}
+	
+	@Test
+	public void testStringOut() throws IOException {
+		Assert.assertEquals("h\u00e4llo \ud83d\ude00", Out.string().write("h\u00e4llo \ud83d\ude00"));
+		Assert.assertEquals("a\nb", Out.string().withUTF16().writeLines(Arrays.asList("a", "b")).replace(System.lineSeparator(), "\n"));
+		Assert.assertEquals("ABC", Out.string().wrap((Writer w) -> new FilterWriter(w) {
+			@Override
+			public void write(char[] cbuf, int off, int len) throws IOException {
+				super.write(new String(cbuf, off, len).toUpperCase(), 0, len);
+			}
+		}).write("abc"));
+		Assert.assertEquals(Base64.getEncoder().encodeToString("\u00e4".getBytes(StandardCharsets.UTF_8)), Out.string().withUTF8().encodeBase64().write("\u00e4"));
+		
+		try(SBWriter out=Out.string().asWriter()) {
+			out.write("direct");
+			Assert.assertEquals("direct", out.getResult());
+		}
+	}
+	
+	@Test
+	public void testChunkedBytes() throws IOException {
+		byte[] data=new byte[3000000];
+		new Random(42).nextBytes(data);
+		
+		for(ByteOutBuilder builder:new ByteOutBuilder[] {Out.bytes(), Out.bytes().withDirectBuffers().withChunkSize(1000)}) {
+			try(BAOutputStream out=builder.asStream()) {
+				for(int i=0;i<data.length;i+=777)
+					out.write(data, i, Math.min(777, data.length-i));
+				out.close();
+				Assert.assertEquals(data.length, out.bufferSize());
+				Assert.assertArrayEquals(data, out.toByteArray());
+				
+				ByteArrayOutputStream copy=new ByteArrayOutputStream();
+				for(ByteBuffer b:out.asByteBuffers()) {
+					while(b.hasRemaining())
+						copy.write(b.get());
+				}
+				Assert.assertArrayEquals(data, copy.toByteArray());
+				Assert.assertArrayEquals(data, In.stream(out.asInputStream()).readBytes(data.length));
+			}
+		}
+	}
+	
+	@Test
+	public void testParallelGZIP() throws IOException {
+		byte[] data=new byte[1000000];
+		Random r=new Random(42);
+		for(int i=0;i<data.length;i++)
+			data[i]=(byte)('a'+r.nextInt(4));
+		
+		OutputStreamWrapper parallel=ParallelGZIPOutputStream.wrapper(ForkJoinPool.commonPool(), 10000, Deflater.DEFAULT_COMPRESSION);
+		byte[] compressed=Out.bytes().compress(parallel).writeBytes(data);
+		ByteArrayOutputStream decompressed=new ByteArrayOutputStream();
+		In.bytes(compressed).decompress(GZIPInputStream::new).copyTo(decompressed);
+		Assert.assertArrayEquals(data, decompressed.toByteArray());
+		
+		byte[] empty=Out.bytes().compress(parallel).writeBytes(new byte[0]);
+		Assert.assertEquals(-1, In.bytes(empty).decompress(GZIPInputStream::new).asStream().read());
+		
+		//the blocks are compressed deterministically, so the file has to match the output of the parallel stream
+		CompressorRegistry registry=CompressorRegistry.getInstance().copy();
+		registry.registerWrapper("gz", ParallelGZIPOutputStream.wrapper());
+		File file=File.createTempFile("parallel", ".txt.gz");
+		file.deleteOnExit();
+		Out.file(file).withCompressorRegistry(registry).compress().writeBytes(data);
+		byte[] expected=Out.bytes().compress(ParallelGZIPOutputStream.wrapper()).writeBytes(data);
+		Assert.assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+		Assert.assertArrayEquals(data, In.file(file).decompress().readAllBytes());
+	}
+	
+	@Test
+	public void testBulkWrites() throws IOException {
+		byte[] data=new byte[100000];
+		new Random(42).nextBytes(data);
+		
+		int[] singleWrites={0};
+		OutputStreamWrapper counter=out -> new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				singleWrites[0]++;
+				out.write(b);
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+			
+			@Override
+			public void close() throws IOException {
+				out.close();
+			}
+		};
+		Assert.assertArrayEquals(data, Out.bytes().wrap(counter).writeBytes(data));
+		Assert.assertEquals(0, singleWrites[0]);
+		Assert.assertArrayEquals(data, Out.bytes().wrap(counter).copyFrom(new ByteArrayInputStream(data)));
+		Assert.assertEquals(0, singleWrites[0]);
+	}
+	
+	@Test
+	public void testTee() throws IOException {
+		byte[] data=new byte[300000];
+		new Random(42).nextBytes(data);
+		File plain=File.createTempFile("tee", ".bin");
+		File compressed=File.createTempFile("tee", ".bin.gz");
+		plain.deleteOnExit();
+		compressed.deleteOnExit();
+		
+		for(int queueCapacity:new int[] {0, 2}) {
+			ByteArrayOutputStream copy=new ByteArrayOutputStream();
+			Target[] targets={Out.file(plain).asTarget(), Out.file(compressed).compress().asTarget(), new OutputStreamTarget(copy)};
+			OutBuilder tee=queueCapacity==0?Out.tee(targets):Out.teeConcurrently(queueCapacity, targets);
+			try(OutputStream out=tee.asStream()) {
+				for(int i=0;i<data.length;i+=777)
+					out.write(data, i, Math.min(777, data.length-i));
+			}
+			Assert.assertArrayEquals(data, Files.readAllBytes(plain.toPath()));
+			Assert.assertArrayEquals(data, In.file(compressed).decompress().readAllBytes());
+			Assert.assertArrayEquals(data, copy.toByteArray());
+		}
+		
+		Target failing=() -> new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("failing target");
+			}
+		};
+		try(OutputStream out=Out.teeConcurrently(1, failing, Out.file(plain).asTarget()).asStream()) {
+			for(int i=0;i<100;i++)
+				out.write(data);
+			Assert.fail();
+		} catch(IOException e) {
+			Assert.assertEquals("failing target", e.getMessage());
+		}
+		
+		//an executor that rejects the second branch
+		AtomicInteger executed=new AtomicInteger();
+		Executor rejecting=command -> {
+			if(executed.incrementAndGet()>1)
+				throw new RejectedExecutionException("saturated");
+			ForkJoinPool.commonPool().execute(command);
+		};
+		CountDownLatch closed=new CountDownLatch(3);
+		OutputStream[] streams=new OutputStream[3];
+		for(int i=0;i<streams.length;i++) {
+			streams[i]=new ByteArrayOutputStream() {
+				@Override
+				public void close() {
+					closed.countDown();
+				}
+			};
+		}
+		try {
+			new ConcurrentTeeOutputStream(rejecting, 1, streams);
+			Assert.fail();
+		} catch(RejectedExecutionException e) {
+			Assert.assertEquals("saturated", e.getMessage());
+		}
+		Assert.assertEquals(0, closed.getCount());
+		
+		//an interrupted close still hands the buffered bytes and the end to every stream
+		CountDownLatch released=new CountDownLatch(1);
+		ByteArrayOutputStream slow=blockingStream(released);
+		ByteArrayOutputStream fast=new ByteArrayOutputStream();
+		//a thread per branch, because the common pool might not run both branches at once
+		Executor threads=command -> new Thread(command).start();
+		OutputStream interrupted=new ConcurrentTeeOutputStream(threads, 1, 100, slow, fast);
+		interrupted.write(data, 0, 250);
+		new Thread(() -> {
+			try {
+				Thread.sleep(100);
+			} catch(InterruptedException e) {
+				//release early
+			}
+			released.countDown();
+		}).start();
+		Thread.currentThread().interrupt();
+		interrupted.close();
+		Assert.assertTrue(Thread.interrupted());
+		Assert.assertArrayEquals(Arrays.copyOf(data, 250), slow.toByteArray());
+		Assert.assertArrayEquals(Arrays.copyOf(data, 250), fast.toByteArray());
+	}
+	
+	@Test
+	public void testAtomicFile() throws IOException, InterruptedException, ExecutionException {
+		File dir=Files.createTempDirectory("atomic").toFile();
+		File file=new File(dir, "state.txt");
+		Out.fileWith(file).atomic().write("first");
+		Assert.assertEquals("first", In.file(file).readAll());
+		
+		try(OutputStream out=Out.fileWith(file).atomic(true).asStream()) {
+			out.write("second".getBytes(StandardCharsets.UTF_8));
+			Assert.assertEquals("first", In.file(file).readAll());
+		}
+		Assert.assertEquals("second", In.file(file).readAll());
+		
+		try(AtomicFileOutputStream out=(AtomicFileOutputStream)Out.fileWith(file).atomic().asStream()) {
+			out.write("aborted".getBytes(StandardCharsets.UTF_8));
+			out.abort();
+		}
+		Assert.assertEquals("second", In.file(file).readAll());
+		
+		try(GroupCommit groupCommit=new GroupCommit(Duration.ofMillis(5))) {
+			List<CompletableFuture<Void>> writes=new ArrayList<>();
+			for(int i=0;i<20;i++)
+				writes.add(Out.fileWith(new File(dir, "state"+i+".txt")).atomic(groupCommit).writeAsync(i));
+			for(int i=0;i<20;i++) {
+				writes.get(i).get();
+				Assert.assertEquals(Integer.toString(i), In.file(dir, "state"+i+".txt").readAll());
+			}
+		}
+		Assert.assertEquals(21, dir.list().length);
+	}
+	
+	@Test
+	public void testAtomicFileFailure() throws IOException {
+		File dir=Files.createTempDirectory("atomic").toFile();
+		File file=new File(dir, "state.txt");
+		Out.file(file).write("OLD");
+		
+		try {
+			Out.fileWith(file).atomic().writeObject(new Object());
+			Assert.fail();
+		} catch(NotSerializableException e) {
+			//expected
+		}
+		Assert.assertEquals("OLD", In.file(file).readAll());
+		
+		InputStream failing=new InputStream() {
+			private int count=0;
+			@Override
+			public int read() throws IOException {
+				if(count++>100000)
+					throw new IOException("source failed");
+				return 'x';
+			}
+		};
+		try {
+			Out.fileWith(file).atomic().compress().copyFrom(failing);
+			Assert.fail();
+		} catch(IOException e) {
+			Assert.assertEquals("source failed", e.getMessage());
+		}
+		Assert.assertEquals("OLD", In.file(file).readAll());
+		
+		try {
+			Out.fileWith(file).atomic(true).writeLines(Stream.generate(() -> {
+				throw new IllegalStateException("element failed");
+			}).iterator());
+			Assert.fail();
+		} catch(IllegalStateException e) {
+			Assert.assertEquals("element failed", e.getMessage());
+		}
+		Assert.assertEquals("OLD", In.file(file).readAll());
+		Assert.assertEquals(1, dir.list().length);
+	}
+
+	@Test
+	public void testAtomicTeeFailure() throws IOException {
+		File dir=Files.createTempDirectory("atomictee").toFile();
+		File file=new File(dir, "state.txt");
+		File compressed=new File(dir, "state.txt.gz");
+		Out.file(file).write("OLD");
+		Out.file(compressed).compress().write("OLD");
+
+		for(int queueCapacity:new int[] {0, 2}) {
+			Target[] targets={
+				Out.fileWith(file).atomic().asTarget(),
+				Out.fileWith(compressed).atomic().compress().asTarget(),
+				Out.bytes().asTarget()
+			};
+			AtomicInteger count=new AtomicInteger();
+			Iterator<String> lines=Stream.generate(() -> {
+				if(count.incrementAndGet()==3)
+					throw new IllegalStateException("element failed");
+				return "line"+count;
+			}).iterator();
+			try {
+				(queueCapacity==0?Out.tee(targets):Out.teeConcurrently(queueCapacity, targets)).writeLines(lines);
+				Assert.fail();
+			} catch(IllegalStateException e) {
+				Assert.assertEquals("element failed", e.getMessage());
+			}
+			Assert.assertEquals("OLD", In.file(file).readAll());
+			Assert.assertEquals("OLD", In.file(compressed).decompress().readAll());
+			Assert.assertEquals(2, dir.list().length);
+		}
+
+		//a branch that can not be opened aborts the branches opened before it
+		try {
+			Out.tee(Out.fileWith(file).atomic().asTarget(), new FileTarget(new File(dir, "missing/dir/x"))).write("NEW");
+			Assert.fail();
+		} catch(IOException e) {
+			//expected
+		}
+		Assert.assertEquals("OLD", In.file(file).readAll());
+		Assert.assertEquals(2, dir.list().length);
+
+		//a branch rejected by the executor aborts the started branches and the rejected ones
+		AtomicInteger executed=new AtomicInteger();
+		Executor rejecting=command -> {
+			if(executed.incrementAndGet()>1)
+				throw new RejectedExecutionException("saturated");
+			ForkJoinPool.commonPool().execute(command);
+		};
+		try {
+			new ConcurrentTeeOutputStream(rejecting, 1, AtomicFileOutputStream.open(file.toPath(), false, null), AtomicFileOutputStream.open(compressed.toPath(), false, null));
+			Assert.fail();
+		} catch(RejectedExecutionException e) {
+			Assert.assertEquals("saturated", e.getMessage());
+		}
+		Assert.assertEquals("OLD", In.file(file).readAll());
+		Assert.assertEquals("OLD", In.file(compressed).decompress().readAll());
+		Assert.assertEquals(2, dir.list().length);
+
+		//a successful write still commits every branch
+		Out.tee(Out.fileWith(file).atomic().asTarget(), Out.fileWith(compressed).atomic().compress().asTarget()).write("NEW");
+		Assert.assertEquals("NEW", In.file(file).readAll());
+		Assert.assertEquals("NEW", In.file(compressed).decompress().readAll());
+	}
+
+	@Test
+	public void testFileModes() throws IOException, InterruptedException, ExecutionException {
+		Path file=Files.createTempFile("modes", ".bin");
+		file.toFile().deleteOnExit();
+		Out.file(file).write("journal");
+		Out.fileWith(file).append().write("-segment");
+		Assert.assertEquals("journal-segment", In.file(file.toFile()).readAll());
+		Out.fileWith(file).at(8).write("SEGMENT");
+		Assert.assertEquals("journal-SEGMENT", In.file(file.toFile()).readAll());
+		
+		byte[] data=new byte[100000];
+		new Random(42).nextBytes(data);
+		Out.fileWith(file).preallocate(4*data.length).writeBytes(new byte[0]);
+		Assert.assertEquals(4*data.length, Files.size(file));
+		List<CompletableFuture<Void>> writes=new ArrayList<>();
+		for(int i=0;i<4;i++)
+			writes.add(Out.fileWith(file).at(i*data.length).writeBytesAsync(data));
+		for(CompletableFuture<Void> f:writes)
+			f.get();
+		byte[] written=Files.readAllBytes(file);
+		Assert.assertEquals(4*data.length, written.length);
+		for(int i=0;i<4;i++)
+			Assert.assertArrayEquals(data, Arrays.copyOfRange(written, i*data.length, (i+1)*data.length));
+		
+		Path compressed=Files.createTempFile("modes", ".txt.gz");
+		compressed.toFile().deleteOnExit();
+		Out.fileWith(compressed).compress().withUTF8().append().write("first");
+		Out.fileWith(compressed).compress().withUTF8().append().write(" second");
+		Assert.assertEquals("first second", In.file(compressed.toFile()).decompress().readAll());
+		
+		try {
+			Out.fileWith(file).atomic().append();
+			Assert.fail();
+		} catch(IllegalStateException e) {
+			Assert.assertEquals("An atomic file can not be appended, written at a position or preallocated", e.getMessage());
+		}
+		try {
+			Out.fileWith(file).append().at(8);
+			Assert.fail();
+		} catch(IllegalStateException e) {
+			Assert.assertEquals("An appended file can not be written at a position or preallocated", e.getMessage());
+		}
+		try {
+			Out.fileWith(file).preallocate(10).withBufferSize(100).atomic();
+			Assert.fail();
+		} catch(IllegalStateException e) {
+			Assert.assertEquals("An atomic file can not be appended, written at a position or preallocated", e.getMessage());
+		}
+	}
+	
+	@Test
+	public void testWriteBehind() throws IOException, InterruptedException {
+		byte[] data=new byte[300000];
+		new Random(42).nextBytes(data);
+		File file=File.createTempFile("writebehind", ".bin.gz");
+		file.deleteOnExit();
+		try(OutputStream out=Out.file(file).compress().withBufferSize(1000).writeBehind(4).asStream()) {
+			for(int i=0;i<data.length;i+=777)
+				out.write(data, i, Math.min(777, data.length-i));
+		}
+		Assert.assertArrayEquals(data, In.file(file).decompress().readAllBytes());
+		
+		CountDownLatch release=new CountDownLatch(1);
+		ByteArrayOutputStream slow=blockingStream(release);
+		try(WriteBehindOutputStream out=(WriteBehindOutputStream)Out.stream(slow).withBufferSize(100).writeBehind(1, Backpressure.DROP).asStream()) {
+			out.write(data, 0, 1000);
+			Assert.assertTrue(out.getDroppedBytes()>0);
+			release.countDown();
+		}
+		Assert.assertTrue(slow.size()>0 && slow.size()<1000);
+		
+		release=new CountDownLatch(1);
+		OutputStream failFast=Out.stream(blockingStream(release)).withBufferSize(100).writeBehind(1, Backpressure.FAIL).asStream();
+		try {
+			failFast.write(data, 0, 1000);
+			Assert.fail();
+		} catch(IOException e) {
+			Assert.assertTrue(e.getMessage().startsWith("The write-behind queue is full"));
+		} finally {
+			release.countDown();
+		}
+		try {
+			failFast.close();
+			Assert.fail();
+		} catch(IOException e) {
+			Assert.assertTrue(e.getMessage().startsWith("The write-behind queue is full"));
+		}
+		
+		//a discarded buffer aborts an atomic file with FAIL and leaves a gap with DROP
+		File dir=Files.createTempDirectory("writebehind").toFile();
+		File atomic=new File(dir, "state.bin");
+		Out.file(atomic).write("OLD");
+		OutputStreamWrapper slowWrapper=out -> new FilterOutputStream(out) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				try {
+					Thread.sleep(50);
+				} catch(InterruptedException e) {
+					throw new InterruptedIOException();
+				}
+				out.write(b, off, len);
+			}
+		};
+		int failed=0;
+		OutputStream failingAtomic=Out.fileWith(atomic).atomic().wrap(slowWrapper).withBufferSize(1024).writeBehind(1, Backpressure.FAIL).asStream();
+		for(int i=0;i<10;i++) {
+			try {
+				failingAtomic.write(data, i*1024, 1024);
+			} catch(IOException e) {
+				failed++;
+			}
+		}
+		Assert.assertTrue(failed>0);
+		try {
+			failingAtomic.close();
+			Assert.fail();
+		} catch(IOException e) {
+			Assert.assertTrue(e.getMessage().startsWith("The write-behind queue is full"));
+		}
+		Assert.assertEquals("OLD", In.file(atomic).readAll());
+		Assert.assertEquals(1, dir.list().length);
+		
+		long dropped;
+		try(WriteBehindOutputStream out=(WriteBehindOutputStream)Out.fileWith(atomic).atomic().wrap(slowWrapper).withBufferSize(1024)
+				.writeBehind(1, Backpressure.DROP).asStream()) {
+			for(int i=0;i<10;i++)
+				out.write(data, i*1024, 1024);
+			dropped=out.getDroppedBytes();
+		}
+		Assert.assertTrue(dropped>0);
+		Assert.assertEquals(10*1024-dropped, atomic.length());
+		
+		OutputStream failing=new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("failing target");
+			}
+		};
+		try(OutputStream out=Out.stream(failing).writeBehind(2).asStream()) {
+			out.write(data);
+			out.close();
+			Assert.fail();
+		} catch(IOException e) {
+			Assert.assertEquals("failing target", e.getMessage());
+		}
+		
+		//an interrupted close still queues the buffered bytes and the end and waits until the target is closed
+		CountDownLatch released=new CountDownLatch(1);
+		CountDownLatch closed=new CountDownLatch(1);
+		ByteArrayOutputStream blocking=blockingStream(released);
+		OutputStream interrupted=Out.stream(new FilterOutputStream(blocking) {
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+			
+			@Override
+			public void close() throws IOException {
+				super.close();
+				closed.countDown();
+			}
+		}).withBufferSize(100).writeBehind(1).asStream();
+		interrupted.write(data, 0, 250);
+		new Thread(() -> {
+			try {
+				Thread.sleep(100);
+			} catch(InterruptedException e) {
+				//release early
+			}
+			released.countDown();
+		}).start();
+		Thread.currentThread().interrupt();
+		interrupted.close();
+		Assert.assertTrue(Thread.interrupted());
+		Assert.assertEquals(0, closed.getCount());
+		Assert.assertEquals(250, blocking.size());
+	}
+	
+	@Test
+	public void testWriteBehindAtomicFailure() throws IOException {
+		File dir=Files.createTempDirectory("writebehind").toFile();
+		File file=new File(dir, "state.gz");
+		Out.file(file).compress().write("OLD");
+		
+		//the writer fails after some bytes, the compressor must not be finished into the target
+		try(OutputStream out=Out.fileWith(file).atomic().compress().wrap((OutputStreamWrapper)o -> new FilterOutputStream(o) {
+			private int written=0;
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				if((written+=len)>1000)
+					throw new IOException("failing stage");
+				out.write(b, off, len);
+			}
+		}).withBufferSize(100).writeBehind(2).asStream()) {
+			for(int i=0;i<100;i++)
+				out.write(new byte[100]);
+			Assert.fail();
+		} catch(IOException e) {
+			Assert.assertEquals("failing stage", e.getMessage());
+		}
+		Assert.assertEquals("OLD", In.file(file).decompress().readAll());
+		Assert.assertEquals(1, dir.list().length);
+	}
+	
+	/**
+	 * @return a stream whose writes block until the latch is released
+	 */
+	private static ByteArrayOutputStream blockingStream(CountDownLatch release) {
+		return new ByteArrayOutputStream() {
+			@Override
+			public synchronized void write(byte[] b, int off, int len) {
+				try {
+					release.await();
+				} catch(InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				super.write(b, off, len);
+			}
+		};
+	}
 }
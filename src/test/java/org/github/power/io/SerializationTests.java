@@ -2,15 +2,27 @@ package org.github.power.io;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.github.powerlibraries.io.In;
 import com.github.powerlibraries.io.Out;
+import com.github.powerlibraries.io.serialization.CompactSerializationCodec;
+import com.github.powerlibraries.io.serialization.SerializationCodec;
 
 public class SerializationTests {
 	@Test
@@ -26,4 +38,181 @@ public class SerializationTests {
 		
 		Assert.assertEquals(l, copy);
 	}
+	
+	@Test
+	public void streamingTest() throws IOException, ClassNotFoundException {
+		File file=new File("target/test-classes/objects.bin.gz");
+		Out.file(file).compress().writeObjects(IntStream.range(0, 10000).mapToObj(i -> Arrays.asList(i, "element "+i)));
+		
+		try(Stream<List<Object>> stream=In.file(file).decompress().streamObjects()) {
+			Iterator<List<Object>> it=stream.iterator();
+			for(int i=0;i<10000;i++)
+				Assert.assertEquals(Arrays.asList(i, "element "+i), it.next());
+			Assert.assertFalse(it.hasNext());
+		}
+		Assert.assertEquals(10000, In.file(file).decompress().readObjects().size());
+		
+		byte[] bytes=Out.bytes().writeObjects("a", "b", "c");
+		try(Stream<String> stream=In.bytes(bytes).streamObjects()) {
+			Assert.assertEquals(Arrays.asList("a", "b", "c"), stream.collect(Collectors.toList()));
+		}
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void compactCodecTest() throws IOException, ClassNotFoundException {
+		ArrayList<Object> l=new ArrayList<>();
+		HashMap<String, Object> map=new HashMap<>();
+		map.put("values", new int[] {1, 2, 3});
+		map.put("unit", TimeUnit.SECONDS);
+		l.add(map);
+		l.add(new Point(4, 2, "p"));
+		l.add(new File("test.txt"));
+		l.add(null);
+		l.add(Long.MAX_VALUE);
+		l.add("t\u00e4st");
+		
+		SerializationCodec codec=new CompactSerializationCodec();
+		byte[] bytes=Out.bytes().withCodec(codec).writeObject(l);
+		List<Object> copy=In.bytes(bytes).withCodec(codec).readObject();
+		Assert.assertEquals(6, copy.size());
+		Map<String, Object> mapCopy=(Map<String, Object>)copy.get(0);
+		Assert.assertArrayEquals(new int[] {1, 2, 3}, (int[])mapCopy.get("values"));
+		Assert.assertEquals(TimeUnit.SECONDS, mapCopy.get("unit"));
+		Assert.assertEquals(l.subList(1, 6), copy.subList(1, 6));
+		
+		Point[] points=new Point[1000];
+		for(int i=0;i<points.length;i++)
+			points[i]=new Point(i, -i, "point "+i);
+		bytes=Out.bytes().withCodec(codec).compress().writeObjects(Arrays.asList(points).iterator());
+		Assert.assertTrue(bytes.length<Out.bytes().compress().writeObjects(Arrays.asList(points).iterator()).length);
+		try(Stream<Point> stream=In.bytes(bytes).withCodec(codec).decompress().streamObjects()) {
+			Assert.assertEquals(Arrays.asList(points), stream.collect(Collectors.toList()));
+		}
+	}
+	
+	@Test
+	public void compactCodecCycleTest() throws IOException, ClassNotFoundException {
+		Node parent=new Node();
+		Node child=new Node();
+		parent.child=child;
+		child.parent=parent;
+		
+		SerializationCodec codec=new CompactSerializationCodec();
+		try {
+			Out.bytes().withCodec(codec).writeObject(parent);
+			Assert.fail();
+		} catch(NotSerializableException e) {
+			//expected
+		}
+		ArrayList<Object> list=new ArrayList<>();
+		list.add(list);
+		try {
+			Out.bytes().withCodec(codec).writeObject(list);
+			Assert.fail();
+		} catch(NotSerializableException e) {
+			//expected
+		}
+		
+		//objects that are referenced twice without a cycle are still written
+		ArrayList<Object> shared=new ArrayList<>();
+		shared.add(child);
+		shared.add(child);
+		child.parent=null;
+		byte[] bytes=Out.bytes().withCodec(codec).writeObject(shared);
+		List<Object> copy=In.bytes(bytes).withCodec(codec).readObject();
+		Assert.assertEquals(2, copy.size());
+		
+		child.parent=parent;
+		Node parentCopy=In.bytes(Out.bytes().writeObject(parent)).readObject();
+		Assert.assertSame(parentCopy, parentCopy.child.parent);
+	}
+	
+	@Test
+	public void compactCodecSuperclassTest() throws IOException, ClassNotFoundException {
+		Task task=new Task("task");
+		task.worker=Thread.currentThread();
+		SerializationCodec codec=new CompactSerializationCodec();
+		byte[] bytes=Out.bytes().withCodec(codec).writeObject(task);
+		//the task is written field by field instead of falling back to Java serialization
+		Assert.assertTrue(bytes.length<Out.bytes().writeObject(task).length);
+		
+		//like Java serialization only the constructor of the non-serializable base runs
+		int constructed=Worker.constructed;
+		Task copy=In.bytes(bytes).withCodec(codec).readObject();
+		Task javaCopy=In.bytes(Out.bytes().writeObject(task)).readObject();
+		Assert.assertEquals(constructed+2, Worker.constructed);
+		for(Task t:Arrays.asList(copy, javaCopy)) {
+			Assert.assertEquals("task", t.name);
+			Assert.assertNull(t.worker);
+			Assert.assertEquals(0, t.initialized);
+		}
+	}
+	
+	private static class Worker {
+		static int constructed;
+		Thread worker;
+		
+		Worker() {
+			constructed++;
+		}
+	}
+	
+	private static class Task extends Worker implements Serializable {
+		private static final long serialVersionUID=1L;
+		private final String name;
+		private transient int initialized=1;
+		
+		Task(String name) {
+			this.name=name;
+		}
+	}
+	
+	private static class Node implements Serializable {
+		private static final long serialVersionUID=1L;
+		private Node parent;
+		private Node child;
+	}
+	
+	private static class Base implements Serializable {
+		private static final long serialVersionUID=1L;
+		protected final String name;
+		
+		Base(String name) {
+			this.name=name;
+		}
+	}
+	
+	private static class Point extends Base {
+		private static final long serialVersionUID=1L;
+		private final int x;
+		private final int y;
+		private transient int hash;
+		
+		@SuppressWarnings("unused")
+		private Point() {
+			this(0, 0, null);
+		}
+		
+		Point(int x, int y, String name) {
+			super(name);
+			this.x=x;
+			this.y=y;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Point))
+				return false;
+			Point p=(Point)obj;
+			return x==p.x && y==p.y && Objects.equals(name, p.name);
+		}
+		
+		@Override
+		public int hashCode() {
+			if(hash==0)
+				hash=Objects.hash(x, y, name);
+			return hash;
+		}
+	}
 }